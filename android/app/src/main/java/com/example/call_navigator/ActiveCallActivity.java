@@ -12,6 +12,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
@@ -19,6 +20,7 @@ import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
+import androidx.core.content.ContextCompat;
 import com.example.call_navigator.CallManager;
 
 /**
@@ -60,12 +62,14 @@ public class ActiveCallActivity extends Activity {
     private long callStartTime = 0;
     private boolean isMuted = false;
     private boolean isSpeakerOn = false;
+    private final AudioRouteController.AudioStateListener audioStateListener = this::onAudioStateChanged;
     private boolean isOnHold = false;
     private boolean isPostCallState = false;
     private boolean isCallTimerRunning = false;
     private String currentState = "DIALING";
     private static final long TIMEOUT_DURATION = 300000; // 5 minutes timeout
     private boolean isLeadFound = false;
+    private String waitingCallNumber;
     private Button editLeadButton;
     private final BroadcastReceiver disconnectReceiver = new BroadcastReceiver() {
         @Override
@@ -108,6 +112,27 @@ public class ActiveCallActivity extends Activity {
         }
     };
     
+    private final BroadcastReceiver callerInfoReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            try {
+                String updatedNumber = intent.getStringExtra(CallTrackingInCallService.EXTRA_PHONE_NUMBER);
+                String updatedName = intent.getStringExtra(CallTrackingInCallService.EXTRA_CONTACT_NAME);
+                String shownNumber = getIntent() != null ? getIntent().getStringExtra(EXTRA_CALL_NUMBER) : null;
+                if (PhoneNumberUtils.sameNumber(updatedNumber, shownNumber)) {
+                    runOnUiThread(() -> {
+                        showContactName(updatedName);
+                        applyLeadState(CallerIdentityResolver.getInstance().peek(updatedNumber));
+                    });
+                } else if (PhoneNumberUtils.sameNumber(updatedNumber, waitingCallNumber)) {
+                    runOnUiThread(() -> showCallWaitingName(updatedName));
+                }
+            } catch (Throwable e) {
+                Log.e(TAG, "Error in caller info receiver", e);
+            }
+        }
+    };
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -146,11 +171,17 @@ public class ActiveCallActivity extends Activity {
         }
         
         // Register for call state changes
-        CallManager.getInstance().addListener(this::onCallStateChanged);
+        // Cancelled automatically in onDestroy
+        CallManager.getInstance().subscribe(this::onCallDelta, ContextCompat.getMainExecutor(this)).bindTo(this);
         try {
             IntentFilter f = new IntentFilter(CallTrackingInCallService.ACTION_CALL_DISCONNECTED);
             registerReceiver(disconnectReceiver, f);
         } catch (Throwable ignored) {}
+        try {
+            ContextCompat.registerReceiver(this, callerInfoReceiver,
+                    new IntentFilter(CallTrackingInCallService.ACTION_CALLER_INFO_UPDATED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        } catch (Throwable ignored) {}
+        AudioRouteController.getInstance().addListener(audioStateListener);
         
         Log.d(TAG, "ActiveCallActivity created" + (isPostCallState ? " in post-call mode" : ""));
     }
@@ -377,11 +408,11 @@ public class ActiveCallActivity extends Activity {
                 phoneNumberText.setText(phoneNumber);
             }
             
-            if (contactName != null && !contactName.isEmpty()) {
-                contactNameText.setText(contactName);
-                contactNameText.setVisibility(View.VISIBLE);
-                phoneNumberText.setTextSize(18); // Make number smaller when name is shown
+            if (contactName == null || contactName.isEmpty()) {
+                // A name resolved after launch may already be known
+                contactName = CallerIdentityResolver.getInstance().resolveName(this, phoneNumber);
             }
+            showContactName(contactName);
             
             if (duration != null && !duration.isEmpty()) {
                 durationText.setText(duration);
@@ -397,16 +428,17 @@ public class ActiveCallActivity extends Activity {
         }
     }
     
+    private void showContactName(String contactName) {
+        if (contactName != null && !contactName.isEmpty()) {
+            contactNameText.setText(contactName);
+            contactNameText.setVisibility(View.VISIBLE);
+            phoneNumberText.setTextSize(18); // Make number smaller when name is shown
+        }
+    }
+    
     private void toggleMute() {
         try {
-            isMuted = !isMuted;
-            boolean success = CallTrackingInCallService.setMutedState(isMuted);
-            if (success) {
-                muteButton.setText(isMuted ? "Unmute" : "Mute");
-                muteButton.setBackground(createButtonBackground(
-                    isMuted ? Color.parseColor("#FF5722") : Color.parseColor("#2196F3")
-                ));
-            }
+            AudioRouteController.getInstance().toggleMute();
         } catch (Exception e) {
             Log.e(TAG, "Mute toggle failed", e);
         }
@@ -414,18 +446,29 @@ public class ActiveCallActivity extends Activity {
     
     private void toggleSpeaker() {
         try {
-            isSpeakerOn = !isSpeakerOn;
-            boolean success = CallTrackingInCallService.setSpeaker(isSpeakerOn);
-            if (success) {
-                speakerButton.setText(isSpeakerOn ? "Earpiece" : "Speaker");
-                speakerButton.setBackground(createButtonBackground(
-                    isSpeakerOn ? Color.parseColor("#FF5722") : Color.parseColor("#00BCD4")
-                ));
-            }
+            AudioRouteController.getInstance().toggleSpeaker();
         } catch (Exception e) {
             Log.e(TAG, "Speaker toggle failed", e);
         }
     }
+
+    // Buttons show the state Telecom reports, whoever changed it
+    private void onAudioStateChanged(boolean speakerOn, boolean muted, int route) {
+        if (muteButton != null && muted != isMuted) {
+            isMuted = muted;
+            muteButton.setText(isMuted ? "Unmute" : "Mute");
+            muteButton.setBackground(createButtonBackground(
+                isMuted ? Color.parseColor("#FF5722") : Color.parseColor("#2196F3")
+            ));
+        }
+        if (speakerButton != null && speakerOn != isSpeakerOn) {
+            isSpeakerOn = speakerOn;
+            speakerButton.setText(isSpeakerOn ? "Earpiece" : "Speaker");
+            speakerButton.setBackground(createButtonBackground(
+                isSpeakerOn ? Color.parseColor("#FF5722") : Color.parseColor("#00BCD4")
+            ));
+        }
+    }
     
     private void toggleHold() {
         try {
@@ -479,7 +522,13 @@ public class ActiveCallActivity extends Activity {
     
     private void startDurationTimer() {
         if (callStartTime == 0) {
-            callStartTime = System.currentTimeMillis();
+            // Continue from when the call connected, which survives a process restart
+            CallRegistry.CallEntry primary = CallManager.getInstance().getCalls().getPrimaryCall();
+            if (primary != null && primary.activeAt > 0) {
+                callStartTime = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - primary.activeAt);
+            } else {
+                callStartTime = System.currentTimeMillis();
+            }
         }
         
         if (durationHandler != null && durationRunnable != null) {
@@ -548,8 +597,9 @@ public class ActiveCallActivity extends Activity {
             unregisterReceiver(disconnectReceiver); 
         } catch (Throwable ignored) {}
         try {
-            CallManager.getInstance().removeListener(this::onCallStateChanged);
+            unregisterReceiver(callerInfoReceiver);
         } catch (Throwable ignored) {}
+        AudioRouteController.getInstance().removeListener(audioStateListener);
         super.onDestroy();
     }
     
@@ -620,39 +670,43 @@ public class ActiveCallActivity extends Activity {
         // User must use End Call button
     }
     
-    // Call state change handler
-    private void onCallStateChanged(CallManager.CallState state, String phoneNumber, String waitingNumber) {
-        runOnUiThread(() -> {
-            Log.d(TAG, "Call state changed: " + state + ", phone: " + phoneNumber + ", waiting: " + waitingNumber);
-            
-            switch (state) {
-                case CALL_WAITING:
-                    showCallWaiting(waitingNumber);
-                    break;
-                case ACTIVE:
+    // Call change handler, delivered on the main thread; only touches views the delta affects
+    private void onCallDelta(CallDelta delta) {
+        CallManager.CallSnapshot s = delta.current;
+        Log.d(TAG, "Call changed: " + delta + ", phone: " + s.currentCallNumber + ", waiting: " + s.waitingCallNumber);
+        
+        switch (s.state) {
+            case CALL_WAITING:
+                if (delta.has(CallDelta.STATE_CHANGED | CallDelta.WAITING_ADDED | CallDelta.WAITING_NUMBER_RESOLVED)) {
+                    showCallWaiting(s.waitingCallNumber);
+                }
+                break;
+            case ACTIVE:
+                if (delta.has(CallDelta.STATE_CHANGED | CallDelta.WAITING_REMOVED)) {
                     hideCallWaiting();
-                    // Start timer only when call actually connects
-                    if (!isCallTimerRunning) {
-                        startDurationTimer();
-                        isCallTimerRunning = true;
-                        Log.d(TAG, "Call timer started - call connected");
-                    }
-                    break;
-                case IDLE:
-                    // Before finishing, double-check if there's still an active call
-                    // This prevents destroying activity when waiting call is declined
-                    boolean hasActiveCall = CallTrackingInCallService.hasActiveCall();
-                    if (!hasActiveCall) {
-                        Log.d(TAG, "No active call, finishing activity");
-                        finish();
-                    } else {
-                        Log.d(TAG, "Active call still exists despite IDLE state, not finishing");
-                    }
-                    break;
-                default:
-                    break;
-            }
-        });
+                }
+                // Start timer only when call actually connects
+                if (!isCallTimerRunning) {
+                    startDurationTimer();
+                    isCallTimerRunning = true;
+                    Log.d(TAG, "Call timer started - call connected");
+                }
+                break;
+            case IDLE:
+                if (!delta.has(CallDelta.STATE_CHANGED)) break;
+                // Before finishing, double-check if there's still an active call
+                // This prevents destroying activity when waiting call is declined
+                boolean hasActiveCall = CallTrackingInCallService.hasActiveCall();
+                if (!hasActiveCall) {
+                    Log.d(TAG, "No active call, finishing activity");
+                    finish();
+                } else {
+                    Log.d(TAG, "Active call still exists despite IDLE state, not finishing");
+                }
+                break;
+            default:
+                break;
+        }
     }
     
     private void showCallWaiting(String waitingNumber) {
@@ -682,43 +736,26 @@ public class ActiveCallActivity extends Activity {
             if (phoneNumber == null || phoneNumber.isEmpty()) {
                 return;
             }
-            
-            // Get base URL from preferences
-            String baseUrl = CallerInfoApiClient.getBaseUrl(this);
-            
+            waitingCallNumber = phoneNumber;
             Log.d(TAG, "Looking up caller name for waiting call: " + phoneNumber);
             
-            // Lookup caller information
-            CallerInfoApiClient.lookupCaller(phoneNumber, baseUrl, new CallerInfoApiClient.CallerInfoCallback() {
-                @Override
-                public void onSuccess(CallerInfoApiClient.CallerInfo callerInfo) {
-                    runOnUiThread(() -> {
-                        if (callWaitingNameText != null && callerInfo != null && callerInfo.name != null && !callerInfo.name.isEmpty()) {
-                            callWaitingNameText.setText(callerInfo.name);
-                            callWaitingNameText.setVisibility(View.VISIBLE);
-                            Log.d(TAG, "Displaying caller name in call waiting: " + callerInfo.name);
-                        }
-                    });
-                }
-                
-                @Override
-                public void onError(String error) {
-                    Log.d(TAG, "Could not get caller name for waiting call: " + error);
-                    // Don't show name if lookup fails
-                }
-                
-                @Override
-                public void onTimeout() {
-                    Log.d(TAG, "Timeout getting caller name for waiting call");
-                    // Don't show name if timeout
-                }
-            });
+            // Shared resolution; later answers arrive through callerInfoReceiver
+            showCallWaitingName(CallerIdentityResolver.getInstance().resolveName(this, phoneNumber));
         } catch (Exception e) {
             Log.e(TAG, "Failed to lookup caller name for waiting call", e);
         }
     }
     
+    private void showCallWaitingName(String name) {
+        if (callWaitingNameText != null && name != null && !name.isEmpty()) {
+            callWaitingNameText.setText(name);
+            callWaitingNameText.setVisibility(View.VISIBLE);
+            Log.d(TAG, "Displaying caller name in call waiting: " + name);
+        }
+    }
+    
     private void hideCallWaiting() {
+        waitingCallNumber = null;
         if (callWaitingContainer != null) {
             callWaitingContainer.setVisibility(View.GONE);
             Log.d(TAG, "Hiding call waiting");
@@ -761,46 +798,26 @@ public class ActiveCallActivity extends Activity {
                 return;
             }
             
-            // Get base URL from preferences
-            String baseUrl = CallerInfoApiClient.getBaseUrl(this);
-            
             Log.d(TAG, "Checking if lead exists in database for: " + phoneNumber);
             
-            // Lookup caller information
-            CallerInfoApiClient.lookupCaller(phoneNumber, baseUrl, new CallerInfoApiClient.CallerInfoCallback() {
-                @Override
-                public void onSuccess(CallerInfoApiClient.CallerInfo callerInfo) {
-                    Log.d(TAG, "Lead lookup result - found: " + callerInfo.found);
-                    runOnUiThread(() -> {
-                        isLeadFound = callerInfo.found;
-                        updateEditLeadButtonVisibility(callerInfo.found);
-                    });
-                }
-                
-                @Override
-                public void onError(String error) {
-                    Log.e(TAG, "Error checking lead in database: " + error);
-                    runOnUiThread(() -> {
-                        isLeadFound = false;
-                        updateEditLeadButtonVisibility(false);
-                    });
-                }
-                
-                @Override
-                public void onTimeout() {
-                    Log.w(TAG, "Timeout checking lead in database");
-                    runOnUiThread(() -> {
-                        isLeadFound = false;
-                        updateEditLeadButtonVisibility(false);
-                    });
-                }
-            });
+            // Local lead data can answer right away; the server's answer arrives through callerInfoReceiver
+            applyLeadState(CallerIdentityResolver.getInstance().resolve(this, phoneNumber));
         } catch (Exception e) {
             Log.e(TAG, "Failed to check lead in database", e);
             updateEditLeadButtonVisibility(false);
         }
     }
     
+    private void applyLeadState(CallerIdentityResolver.CallerIdentity identity) {
+        if (identity == null) {
+            updateEditLeadButtonVisibility(false);
+            return;
+        }
+        Log.d(TAG, "Lead lookup result - found: " + identity.leadFound + " (" + identity.source + (identity.isFinal ? ", final)" : ")"));
+        isLeadFound = identity.leadFound;
+        updateEditLeadButtonVisibility(identity.leadFound);
+    }
+    
     private void updateEditLeadButtonVisibility(boolean show) {
         if (editLeadButton != null) {
             editLeadButton.setVisibility(show ? View.VISIBLE : View.GONE);
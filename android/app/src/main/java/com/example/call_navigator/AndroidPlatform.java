@@ -0,0 +1,38 @@
+package com.example.call_navigator;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * {@link CallManager}'s clock and logger on a device.
+ */
+final class AndroidPlatform implements CallManager.Clock, CallManager.Logger {
+    static final AndroidPlatform INSTANCE = new AndroidPlatform();
+
+    private AndroidPlatform() {}
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    @Override
+    public void d(String tag, String message) {
+        Log.d(tag, message);
+    }
+
+    @Override
+    public void w(String tag, String message) {
+        Log.w(tag, message);
+    }
+
+    @Override
+    public void e(String tag, String message, Throwable t) {
+        Log.e(tag, message, t);
+    }
+}
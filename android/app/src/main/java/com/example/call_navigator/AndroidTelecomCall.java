@@ -0,0 +1,87 @@
+package com.example.call_navigator;
+
+import android.net.Uri;
+import android.telecom.Call;
+import android.telecom.DisconnectCause;
+import android.telecom.VideoProfile;
+
+/**
+ * {@link TelecomCall} backed by a real {@link Call}. Stateless, so wrapping is cheap and
+ * two wrappers of the same call are interchangeable.
+ */
+final class AndroidTelecomCall implements TelecomCall {
+    final Call call;
+
+    private AndroidTelecomCall(Call call) {
+        this.call = call;
+    }
+
+    static TelecomCall of(Call call) {
+        return call != null ? new AndroidTelecomCall(call) : null;
+    }
+
+    @Override
+    public int getState() {
+        return call.getState();
+    }
+
+    @Override
+    public String getNumber() {
+        try {
+            Uri handle = call.getDetails().getHandle();
+            return handle != null ? handle.getSchemeSpecificPart() : null;
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getDisconnectCause() {
+        try {
+            DisconnectCause cause = call.getDetails().getDisconnectCause();
+            return cause != null ? cause.getCode() : CAUSE_UNKNOWN;
+        } catch (Throwable ignored) {
+            return CAUSE_UNKNOWN;
+        }
+    }
+
+    @Override
+    public void answer() {
+        call.answer(VideoProfile.STATE_AUDIO_ONLY);
+    }
+
+    @Override
+    public void hold() {
+        call.hold();
+    }
+
+    @Override
+    public void unhold() {
+        call.unhold();
+    }
+
+    @Override
+    public void disconnect() {
+        call.disconnect();
+    }
+
+    @Override
+    public void playDtmfTone(char digit) {
+        call.playDtmfTone(digit);
+    }
+
+    @Override
+    public void stopDtmfTone() {
+        call.stopDtmfTone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof AndroidTelecomCall && ((AndroidTelecomCall) o).call == call;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(call);
+    }
+}
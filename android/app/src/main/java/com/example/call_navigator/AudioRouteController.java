@@ -0,0 +1,249 @@
+package com.example.call_navigator;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.telecom.CallAudioState;
+import android.telecom.InCallService;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single owner of the call's audio route and mute state. The {@link CallAudioState} Telecom
+ * reports through onCallAudioStateChanged is the truth every surface (call screens, overlay,
+ * notification) renders from. Requests only record what the user wants; at most one route or
+ * mute change is in flight at a time, route changes are spaced by a debounce interval, and a
+ * request that the current or pending state already satisfies is dropped, so rapid toggles end
+ * in a single transition (or none). Main thread only.
+ */
+public final class AudioRouteController {
+    private static final String TAG = "AudioRouteController";
+    private static AudioRouteController instance;
+
+    // Minimum spacing between route changes pushed to Telecom
+    private static final long ROUTE_DEBOUNCE_MS = 300;
+    // Give up waiting for Telecom to report a change after this long
+    private static final long SETTLE_TIMEOUT_MS = 1000;
+
+    private static final int NONE = -1;
+
+    public interface AudioStateListener {
+        void onAudioStateChanged(boolean speakerOn, boolean muted, int route);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<AudioStateListener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable pump = this::pump;
+
+    private InCallService service;
+    private CallAudioState state;
+
+    // Wanted but not yet sent; NONE / null when nothing is wanted
+    private int desiredRoute = NONE;
+    private Boolean desiredMute;
+    // Sent, waiting for onCallAudioStateChanged
+    private int inFlightRoute = NONE;
+    private Boolean inFlightMute;
+    private long inFlightSince;
+    private long lastRouteSentAt;
+
+    private long requests;
+    private long redundant;
+    private long routeChanges;
+    private long muteChanges;
+
+    private AudioRouteController() {}
+
+    public static synchronized AudioRouteController getInstance() {
+        if (instance == null) {
+            instance = new AudioRouteController();
+        }
+        return instance;
+    }
+
+    public void attach(InCallService service) {
+        this.service = service;
+    }
+
+    public void detach(InCallService service) {
+        if (this.service != service) return;
+        this.service = null;
+        state = null;
+        desiredRoute = inFlightRoute = NONE;
+        desiredMute = inFlightMute = null;
+        handler.removeCallbacks(pump);
+        notifyListeners();
+    }
+
+    /**
+     * Telecom's report of the route and mute state actually in effect.
+     */
+    public void onCallAudioStateChanged(CallAudioState audioState) {
+        state = audioState;
+        inFlightRoute = NONE;
+        inFlightMute = null;
+        handler.removeCallbacks(pump);
+        pump();
+        notifyListeners();
+    }
+
+    /**
+     * Speaker on, or back to the wired headset or earpiece. False if there is no call service.
+     */
+    public boolean requestSpeaker(boolean on) {
+        if (service == null) return false;
+        requests++;
+        int route = on ? CallAudioState.ROUTE_SPEAKER : CallAudioState.ROUTE_WIRED_OR_EARPIECE;
+        if (desiredRoute == NONE && routeSatisfied(inFlightRoute != NONE ? inFlightRoute : currentRoute(), route)) {
+            redundant++;
+            return true;
+        }
+        desiredRoute = route;
+        pump();
+        return true;
+    }
+
+    public boolean requestMute(boolean muted) {
+        if (service == null) return false;
+        requests++;
+        boolean effective = inFlightMute != null ? inFlightMute : isMuted();
+        if (desiredMute == null && effective == muted) {
+            redundant++;
+            return true;
+        }
+        desiredMute = muted;
+        pump();
+        return true;
+    }
+
+    /** Flip the speaker relative to where it is headed, not where it was */
+    public boolean toggleSpeaker() {
+        return requestSpeaker(!isSpeakerHeading());
+    }
+
+    public boolean toggleMute() {
+        boolean target = desiredMute != null ? desiredMute : inFlightMute != null ? inFlightMute : isMuted();
+        return requestMute(!target);
+    }
+
+    public boolean isSpeakerOn() {
+        return state != null && state.getRoute() == CallAudioState.ROUTE_SPEAKER;
+    }
+
+    public boolean isMuted() {
+        return state != null && state.isMuted();
+    }
+
+    public void addListener(AudioStateListener listener) {
+        if (listener != null && listeners.addIfAbsent(listener)) {
+            listener.onAudioStateChanged(isSpeakerOn(), isMuted(), currentRoute());
+        }
+    }
+
+    public void removeListener(AudioStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean isSpeakerHeading() {
+        int route = desiredRoute != NONE ? desiredRoute : inFlightRoute != NONE ? inFlightRoute : currentRoute();
+        return route == CallAudioState.ROUTE_SPEAKER;
+    }
+
+    private int currentRoute() {
+        return state != null ? state.getRoute() : NONE;
+    }
+
+    // WIRED_OR_EARPIECE is a request mask: any of its routes satisfies it
+    private static boolean routeSatisfied(int actual, int wanted) {
+        if (actual == NONE) return false;
+        return wanted == CallAudioState.ROUTE_WIRED_OR_EARPIECE
+                ? (actual & CallAudioState.ROUTE_WIRED_OR_EARPIECE) != 0
+                : actual == wanted;
+    }
+
+    private void pump() {
+        if (service == null) return;
+        long now = SystemClock.uptimeMillis();
+        boolean waiting = inFlightRoute != NONE || inFlightMute != null;
+        if (waiting && now - inFlightSince < SETTLE_TIMEOUT_MS) return;
+        if (waiting) {
+            Log.w(TAG, "No audio state change reported for route " + inFlightRoute + " / mute " + inFlightMute);
+            inFlightRoute = NONE;
+            inFlightMute = null;
+        }
+        if (desiredMute != null) {
+            boolean muted = desiredMute;
+            desiredMute = null;
+            if (isMuted() != muted || state == null) {
+                send(() -> service.setMuted(muted));
+                inFlightMute = muted;
+                inFlightSince = now;
+                muteChanges++;
+                handler.removeCallbacks(pump);
+                handler.postDelayed(pump, SETTLE_TIMEOUT_MS);
+                return;
+            }
+        }
+        if (desiredRoute != NONE) {
+            if (routeSatisfied(currentRoute(), desiredRoute)) {
+                // Toggled back to where it already is
+                desiredRoute = NONE;
+                redundant++;
+                return;
+            }
+            long wait = lastRouteSentAt + ROUTE_DEBOUNCE_MS - now;
+            if (wait > 0) {
+                handler.removeCallbacks(pump);
+                handler.postDelayed(pump, wait);
+                return;
+            }
+            int route = desiredRoute;
+            desiredRoute = NONE;
+            send(() -> service.setAudioRoute(route));
+            inFlightRoute = route;
+            inFlightSince = now;
+            lastRouteSentAt = now;
+            routeChanges++;
+            handler.removeCallbacks(pump);
+            handler.postDelayed(pump, SETTLE_TIMEOUT_MS);
+        }
+    }
+
+    private void send(Runnable change) {
+        try {
+            change.run();
+        } catch (Throwable t) {
+            Log.e(TAG, "Audio change failed", t);
+        }
+    }
+
+    private void notifyListeners() {
+        boolean speakerOn = isSpeakerOn();
+        boolean muted = isMuted();
+        int route = currentRoute();
+        for (AudioStateListener l : listeners) {
+            try {
+                l.onAudioStateChanged(speakerOn, muted, route);
+            } catch (Throwable t) {
+                Log.e(TAG, "Audio state listener failed", t);
+            }
+        }
+    }
+
+    /**
+     * Current state as Telecom reports it, plus request accounting.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("speakerOn", isSpeakerOn());
+        stats.put("muted", isMuted());
+        stats.put("route", state != null ? CallAudioState.audioRouteToString(state.getRoute()) : null);
+        stats.put("requests", requests);
+        stats.put("redundant", redundant);
+        stats.put("routeChanges", routeChanges);
+        stats.put("muteChanges", muteChanges);
+        return stats;
+    }
+}
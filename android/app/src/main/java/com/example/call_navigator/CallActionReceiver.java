@@ -3,7 +3,6 @@ package com.example.call_navigator;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.telecom.Call;
 import android.util.Log;
 
 public class CallActionReceiver extends BroadcastReceiver {
@@ -17,18 +16,8 @@ public class CallActionReceiver extends BroadcastReceiver {
         try {
             if (CallTrackingInCallService.ACTION_TOGGLE_SPEAKER.equals(action)) {
                 boolean toSpeaker = intent.getBooleanExtra("toSpeaker", true);
+                // The notification label follows once Telecom reports the new route
                 CallTrackingInCallService.setSpeaker(toSpeaker);
-                // Update sticky notification label
-                try {
-                    String number = null;
-                    int state = CallTrackingInCallService.getCurrentState();
-                    if (state == Call.STATE_ACTIVE || state == Call.STATE_CONNECTING || state == Call.STATE_DIALING) {
-                        CallTrackingInCallService.class.getDeclaredMethod("updateActiveCallNotification", String.class)
-                                .setAccessible(true);
-                        CallTrackingInCallService.class.getDeclaredMethod("updateActiveCallNotification", String.class)
-                                .invoke(null, number);
-                    }
-                } catch (Throwable ignored) {}
             } else if (CallTrackingInCallService.ACTION_END_CALL.equals(action)) {
                 CallTrackingInCallService.endCurrentCall();
             }
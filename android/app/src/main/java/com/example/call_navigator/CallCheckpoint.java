@@ -0,0 +1,198 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Small binary checkpoint of {@link CallManager}'s state, so a process killed mid-call can put
+ * its call screens back without rediscovering everything. Written on a background thread through
+ * {@link AtomicFile} (write-then-rename), coalescing bursts to the latest snapshot; deleted once
+ * the phone is idle. Timestamps are elapsedRealtime, which survives process death but not a
+ * reboot, so checkpoints from a previous boot are ignored.
+ */
+final class CallCheckpoint {
+    private static final String TAG = "CallCheckpoint";
+    private static final String FILE_NAME = "call_state.bin";
+    private static final int MAGIC = 0x43414c4c; // "CALL"
+    private static final int VERSION = 1;
+    // Slack when comparing boot times derived from two clocks
+    private static final long BOOT_TOLERANCE_MS = 5000;
+
+    /**
+     * One call as it was when the checkpoint was written.
+     */
+    static final class SavedCall {
+        final String number;
+        final int telecomState;
+        final boolean incoming;
+        final long addedAt;
+        final long activeAt;
+
+        SavedCall(String number, int telecomState, boolean incoming, long addedAt, long activeAt) {
+            this.number = number;
+            this.telecomState = telecomState;
+            this.incoming = incoming;
+            this.addedAt = addedAt;
+            this.activeAt = activeAt;
+        }
+    }
+
+    /**
+     * Decoded checkpoint.
+     */
+    static final class Saved {
+        final CallManager.CallState state;
+        final String currentCallNumber;
+        final String waitingCallNumber;
+        final List<SavedCall> calls;
+
+        Saved(CallManager.CallState state, String currentCallNumber, String waitingCallNumber, List<SavedCall> calls) {
+            this.state = state;
+            this.currentCallNumber = currentCallNumber;
+            this.waitingCallNumber = waitingCallNumber;
+            this.calls = calls;
+        }
+
+        SavedCall find(String number) {
+            String key = PhoneNumberUtils.toLookupKey(number);
+            if (key == null) return null;
+            for (SavedCall c : calls) {
+                if (key.equals(PhoneNumberUtils.toLookupKey(c.number))) return c;
+            }
+            return null;
+        }
+    }
+
+    interface ReadCallback {
+        /** Main thread; saved is null if there was nothing usable */
+        void onRead(Saved saved);
+    }
+
+    private final AtomicFile file;
+    private final Handler handler;
+    // Latest snapshot not yet written; null when the writer is idle
+    private final AtomicReference<CallManager.CallSnapshot> pending = new AtomicReference<>();
+    private final Runnable writeTask = this::writePending;
+
+    /**
+     * Reads the previous process's checkpoint on the writer thread and reports it on the main
+     * thread. The read is queued ahead of any write, so this process can't replace the file
+     * before it has been read.
+     */
+    CallCheckpoint(Context context, ReadCallback onRead) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        HandlerThread thread = new HandlerThread("call-checkpoint");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        Handler main = new Handler(Looper.getMainLooper());
+        handler.post(() -> {
+            Saved saved = read();
+            main.post(() -> onRead.onRead(saved));
+        });
+    }
+
+    /**
+     * Queue a snapshot for writing. Cheap on the caller's thread; a write already queued just
+     * picks up the newer snapshot.
+     */
+    void save(CallManager.CallSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            handler.post(writeTask);
+        }
+    }
+
+    private void writePending() {
+        CallManager.CallSnapshot s = pending.getAndSet(null);
+        if (s == null) return;
+        if (s.state == CallManager.CallState.IDLE && s.calls.isEmpty()) {
+            file.delete();
+            return;
+        }
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(bootTimeMs());
+            out.writeByte(s.state.ordinal());
+            writeString(out, s.currentCallNumber);
+            writeString(out, s.waitingCallNumber);
+            List<CallRegistry.CallEntry> calls = s.calls.all();
+            out.writeByte(calls.size());
+            for (CallRegistry.CallEntry e : calls) {
+                writeString(out, e.number);
+                out.writeByte(e.telecomState);
+                out.writeBoolean(e.incoming);
+                out.writeLong(e.addedAt);
+                out.writeLong(e.activeAt);
+            }
+            out.flush();
+            file.finishWrite(fos);
+        } catch (Throwable t) {
+            if (fos != null) file.failWrite(fos);
+            Log.e(TAG, "Failed to write checkpoint", t);
+        }
+    }
+
+    // Writer thread. The checkpoint left by a previous process in this boot, or null
+    private Saved read() {
+        FileInputStream fis = null;
+        try {
+            fis = file.openRead();
+            DataInputStream in = new DataInputStream(fis);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (Math.abs(in.readLong() - bootTimeMs()) > BOOT_TOLERANCE_MS) {
+                Log.d(TAG, "Ignoring checkpoint from a previous boot");
+                return null;
+            }
+            CallManager.CallState[] states = CallManager.CallState.values();
+            int ordinal = in.readByte();
+            CallManager.CallState state = ordinal >= 0 && ordinal < states.length ? states[ordinal] : CallManager.CallState.IDLE;
+            String current = readString(in);
+            String waiting = readString(in);
+            int count = in.readByte();
+            List<SavedCall> calls = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                calls.add(new SavedCall(readString(in), in.readByte(), in.readBoolean(), in.readLong(), in.readLong()));
+            }
+            return new Saved(state, current, waiting, Collections.unmodifiableList(calls));
+        } catch (java.io.FileNotFoundException e) {
+            return null;
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to read checkpoint", t);
+            return null;
+        } finally {
+            if (fis != null) {
+                try { fis.close(); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    private static long bootTimeMs() {
+        return System.currentTimeMillis() - SystemClock.elapsedRealtime();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws java.io.IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws java.io.IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
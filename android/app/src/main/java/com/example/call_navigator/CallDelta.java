@@ -0,0 +1,78 @@
+package com.example.call_navigator;
+
+import java.util.Objects;
+
+/**
+ * What changed between two {@link CallManager.CallSnapshot}s, as a bitmask of change kinds.
+ * Listeners test the bits they render and leave other views alone. When deliveries are
+ * collapsed, the delta spans from the last snapshot the listener saw to the latest one.
+ */
+public final class CallDelta {
+    /** CallManager.CallState differs */
+    public static final int STATE_CHANGED = 1;
+    /** The current call is a different call (answered waiting call, call ended, new call) */
+    public static final int CALL_CHANGED = 1 << 1;
+    /** Same current call, new number (e.g. the handle arrived after the call was added) */
+    public static final int NUMBER_RESOLVED = 1 << 2;
+    public static final int WAITING_ADDED = 1 << 3;
+    public static final int WAITING_REMOVED = 1 << 4;
+    /** Same waiting call, new number */
+    public static final int WAITING_NUMBER_RESOLVED = 1 << 5;
+    /** Entered or left HOLD; see {@link #isOnHold()} */
+    public static final int HOLD_TOGGLED = 1 << 6;
+
+    public final CallManager.CallSnapshot previous;
+    public final CallManager.CallSnapshot current;
+    public final int changes;
+
+    private CallDelta(CallManager.CallSnapshot previous, CallManager.CallSnapshot current, int changes) {
+        this.previous = previous;
+        this.current = current;
+        this.changes = changes;
+    }
+
+    static CallDelta between(CallManager.CallSnapshot previous, CallManager.CallSnapshot current) {
+        int changes = 0;
+        if (previous.state != current.state) changes |= STATE_CHANGED;
+        if ((previous.state == CallManager.CallState.HOLD) != (current.state == CallManager.CallState.HOLD)) {
+            changes |= HOLD_TOGGLED;
+        }
+        if (!Objects.equals(previous.currentCall, current.currentCall)) {
+            changes |= CALL_CHANGED;
+        } else if (!Objects.equals(previous.currentCallNumber, current.currentCallNumber)) {
+            changes |= NUMBER_RESOLVED;
+        }
+        if (!Objects.equals(previous.waitingCall, current.waitingCall)) {
+            if (previous.waitingCall != null) changes |= WAITING_REMOVED;
+            if (current.waitingCall != null) changes |= WAITING_ADDED;
+        } else if (!Objects.equals(previous.waitingCallNumber, current.waitingCallNumber)) {
+            changes |= WAITING_NUMBER_RESOLVED;
+        }
+        return new CallDelta(previous, current, changes);
+    }
+
+    /** True if any of the given change bits is set */
+    public boolean has(int mask) {
+        return (changes & mask) != 0;
+    }
+
+    public boolean isEmpty() {
+        return changes == 0;
+    }
+
+    public boolean isOnHold() {
+        return current.state == CallManager.CallState.HOLD;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CallDelta{").append(previous.state).append("->").append(current.state);
+        if (has(CALL_CHANGED)) sb.append(" call");
+        if (has(NUMBER_RESOLVED)) sb.append(" number");
+        if (has(WAITING_ADDED)) sb.append(" +waiting");
+        if (has(WAITING_REMOVED)) sb.append(" -waiting");
+        if (has(WAITING_NUMBER_RESOLVED)) sb.append(" waitingNumber");
+        if (has(HOLD_TOGGLED)) sb.append(" hold");
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.call_navigator;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stages a Telecom state change goes through in {@link CallTrackingInCallService}, with timing
+ * per stage. Classification, enrichment and the UI launch run inline on the main thread, in that
+ * order, so the call screen starts as early as possible; Flutter notification is posted to run
+ * after them, and system side effects (notifications, broadcasts) run on a dedicated thread.
+ */
+public final class CallEventPipeline {
+    private static final String TAG = "CallEventPipeline";
+    private static CallEventPipeline instance;
+
+    public enum Stage {
+        CLASSIFY,       // main: update state holders, decide what the event means
+        ENRICH,         // main: caller identity and photo (memory only; lookups continue async)
+        DISPATCH_UI,    // main: launch, update or close call screens
+        NOTIFY_FLUTTER, // main, posted after the UI: platform channel events
+        NOTIFY_SYSTEM,  // pipeline thread: ongoing-call notification, broadcasts
+        PERSIST         // pipeline thread: outcome journal
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Handler handler;
+
+    private final AtomicLongArray runs = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray totalNanos = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray maxNanos = new AtomicLongArray(STAGES.length);
+
+    private CallEventPipeline() {
+        HandlerThread thread = new HandlerThread("call-pipeline");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized CallEventPipeline getInstance() {
+        if (instance == null) {
+            instance = new CallEventPipeline();
+        }
+        return instance;
+    }
+
+    /** Start timing an inline stage; pass the result to {@link #end} */
+    public long begin() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public void end(Stage stage, long startNanos) {
+        record(stage, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /** Run a stage on the main thread after whatever is running there now */
+    public void postMain(Stage stage, Runnable task) {
+        mainHandler.post(timed(stage, task));
+    }
+
+    /** Run a stage on the pipeline thread; tasks run in the order they were posted */
+    public void postBackground(Stage stage, Runnable task) {
+        handler.post(timed(stage, task));
+    }
+
+    private Runnable timed(Stage stage, Runnable task) {
+        return () -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Log.e(TAG, "Stage " + stage + " failed", t);
+            }
+            record(stage, SystemClock.elapsedRealtimeNanos() - start);
+        };
+    }
+
+    private void record(Stage stage, long nanos) {
+        int i = stage.ordinal();
+        runs.incrementAndGet(i);
+        totalNanos.addAndGet(i, nanos);
+        long max;
+        while (nanos > (max = maxNanos.get(i))) {
+            if (maxNanos.compareAndSet(i, max, nanos)) break;
+        }
+    }
+
+    /**
+     * Per stage: runs, average and max duration in microseconds.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Stage stage : STAGES) {
+            int i = stage.ordinal();
+            long count = runs.get(i);
+            Map<String, Object> s = new HashMap<>();
+            s.put("runs", count);
+            s.put("avgMicros", count > 0 ? totalNanos.get(i) / count / 1000 : 0);
+            s.put("maxMicros", maxNanos.get(i) / 1000);
+            stats.put(stage.name(), s);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Call events for Flutter ("onCallStateChanged"), kept on disk until Dart acknowledges them.
+ * Events get increasing sequence numbers that survive restarts; they are sent as they happen
+ * while Dart is listening, and replayed in order when Dart (re)attaches and asks for them with
+ * replayCallEvents. Dart acks with ackCallEvents and skips sequences it has already processed,
+ * so each event is handled once even if the process dies between processing and ack. Sequences
+ * restart at 1 when the file is lost (app data cleared, restored from backup), so every event
+ * also carries the queue's epoch; Dart forgets the last sequence it handled when the epoch changes.
+ * Main thread only, except the file write.
+ */
+public final class CallEventQueue {
+    private static final String TAG = "CallEventQueue";
+    private static final String FILE_NAME = "call_events.bin";
+    private static final int MAGIC = 0x43455651; // "CEVQ"
+    private static final int VERSION = 1;
+    // Oldest events are dropped beyond this; a few days of calls with Dart down
+    public static final int MAX_EVENTS = 256;
+
+    private static CallEventQueue instance;
+
+    static final class Event {
+        final long seq;
+        final long timeMs;
+        final String state;
+        final String number;
+
+        Event(long seq, long timeMs, String state, String number) {
+            this.seq = seq;
+            this.timeMs = timeMs;
+            this.state = state;
+            this.number = number;
+        }
+    }
+
+    private final ArrayDeque<Event> events = new ArrayDeque<>();
+    private long nextSeq = 1;
+    // Identifies this numbering of sequences; replaced by the stored one if the file is read
+    private long epoch = System.currentTimeMillis();
+    private long dropped;
+    // True between Dart asking for a replay and the engine detaching
+    private boolean dartReady;
+    private AtomicFile file;
+    private Handler io;
+    private final Runnable writeTask = this::write;
+    // Copy handed to the writer thread; guarded by itself
+    private final Object pendingLock = new Object();
+    private List<Event> pendingWrite;
+    private long pendingNextSeq;
+    private long pendingEpoch;
+
+    private CallEventQueue() {}
+
+    public static synchronized CallEventQueue getInstance() {
+        if (instance == null) {
+            instance = new CallEventQueue();
+        }
+        return instance;
+    }
+
+    /**
+     * Load undelivered events from the previous process. The file is small (bounded), so this
+     * reads it synchronously to keep ordering simple.
+     */
+    public void attach(Context context) {
+        if (file != null) return;
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        HandlerThread thread = new HandlerThread("call-events");
+        thread.start();
+        io = new Handler(thread.getLooper());
+        read();
+        if (!events.isEmpty()) Log.d(TAG, "Restored " + events.size() + " undelivered call events");
+    }
+
+    /**
+     * Queue an event and send it now if Dart is listening.
+     */
+    public void enqueue(String state, String number) {
+        Event e = new Event(nextSeq++, System.currentTimeMillis(), state, number);
+        events.addLast(e);
+        while (events.size() > MAX_EVENTS) {
+            events.removeFirst();
+            dropped++;
+        }
+        persist();
+        if (dartReady) send(e);
+    }
+
+    /**
+     * Dart's handler is ready: send everything not yet acknowledged, oldest first.
+     */
+    public int replay() {
+        dartReady = true;
+        if (dropped > 0) {
+            Log.w(TAG, dropped + " call events were dropped before Dart attached");
+            dropped = 0;
+        }
+        int sent = 0;
+        for (Event e : new ArrayList<>(events)) {
+            if (!send(e)) break;
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * Dart has processed every event up to and including seq.
+     */
+    public void ack(long seq) {
+        boolean changed = false;
+        while (!events.isEmpty() && events.peekFirst().seq <= seq) {
+            events.removeFirst();
+            changed = true;
+        }
+        if (changed) persist();
+    }
+
+    public void onDetached() {
+        dartReady = false;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    private boolean send(Event e) {
+        try {
+            if (CallTrackingPlugin.channel == null) {
+                dartReady = false;
+                return false;
+            }
+            // state and number stay first so handlers reading only those keep working
+            CallTrackingPlugin.channel.invokeMethod("onCallStateChanged", Arrays.asList(e.state, e.number, e.seq, e.timeMs, epoch));
+            return true;
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to send call event " + e.seq, t);
+            return false;
+        }
+    }
+
+    private void persist() {
+        if (file == null) return;
+        boolean schedule;
+        synchronized (pendingLock) {
+            schedule = pendingWrite == null;
+            pendingWrite = new ArrayList<>(events);
+            pendingNextSeq = nextSeq;
+            pendingEpoch = epoch;
+        }
+        if (schedule) io.post(writeTask);
+    }
+
+    // Writer thread
+    private void write() {
+        List<Event> snapshot;
+        long seq;
+        long seqEpoch;
+        synchronized (pendingLock) {
+            snapshot = pendingWrite;
+            seq = pendingNextSeq;
+            seqEpoch = pendingEpoch;
+            pendingWrite = null;
+        }
+        if (snapshot == null) return;
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seqEpoch);
+            out.writeLong(seq);
+            out.writeInt(snapshot.size());
+            for (Event e : snapshot) {
+                out.writeLong(e.seq);
+                out.writeLong(e.timeMs);
+                out.writeUTF(e.state != null ? e.state : "");
+                out.writeBoolean(e.number != null);
+                if (e.number != null) out.writeUTF(e.number);
+            }
+            out.flush();
+            file.finishWrite(fos);
+        } catch (Throwable t) {
+            if (fos != null) file.failWrite(fos);
+            Log.e(TAG, "Failed to write call events", t);
+        }
+    }
+
+    private void read() {
+        FileInputStream fis = null;
+        try {
+            fis = file.openRead();
+            DataInputStream in = new DataInputStream(fis);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            epoch = in.readLong();
+            nextSeq = Math.max(nextSeq, in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long seq = in.readLong();
+                long timeMs = in.readLong();
+                String state = in.readUTF();
+                String number = in.readBoolean() ? in.readUTF() : null;
+                events.addLast(new Event(seq, timeMs, state, number));
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing queued
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to read call events", t);
+        } finally {
+            if (fis != null) {
+                try { fis.close(); } catch (Throwable ignored) {}
+            }
+        }
+    }
+}
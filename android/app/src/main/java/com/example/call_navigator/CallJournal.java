@@ -0,0 +1,117 @@
+package com.example.call_navigator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-size journal of call state transitions for post-mortem debugging.
+ * Events are written into preallocated parallel arrays, so recording a transition costs a few
+ * stores and no allocation; the oldest events are overwritten once the buffer is full.
+ * {@link #export()} rebuilds the sequence on demand (getCallJournal on the call_tracking channel).
+ */
+public final class CallJournal {
+    private static CallJournal instance;
+
+    public static final int CAPACITY = 512;
+
+    // Event sources
+    public static final int SOURCE_MANAGER = 0;   // CallManager.CallState transition (ordinals)
+    public static final int SOURCE_TELECOM = 1;   // Telecom Call.STATE_* transition
+
+    // Used for old/new state when a call appears or disappears
+    public static final int STATE_NONE = -1;
+
+    private final long[] timeMs = new long[CAPACITY];
+    private final int[] callIds = new int[CAPACITY];
+    private final byte[] sources = new byte[CAPACITY];
+    private final byte[] oldStates = new byte[CAPACITY];
+    private final byte[] newStates = new byte[CAPACITY];
+    private final byte[] telecomStates = new byte[CAPACITY];
+    private final short[] disconnectCauses = new short[CAPACITY];
+    // Total events ever recorded; the next write goes to count % CAPACITY
+    private long count = 0;
+
+    private CallJournal() {}
+
+    public static synchronized CallJournal getInstance() {
+        if (instance == null) {
+            instance = new CallJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Append one transition. Allocation-free; safe from any thread.
+     */
+    public void record(int source, int callId, int oldState, int newState, int telecomState, int disconnectCause) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            int i = (int) (count % CAPACITY);
+            timeMs[i] = now;
+            callIds[i] = callId;
+            sources[i] = (byte) source;
+            oldStates[i] = (byte) oldState;
+            newStates[i] = (byte) newState;
+            telecomStates[i] = (byte) telecomState;
+            disconnectCauses[i] = (short) disconnectCause;
+            count++;
+        }
+    }
+
+    public synchronized long getTotalRecorded() {
+        return count;
+    }
+
+    /**
+     * Events still in the buffer, oldest first, with state names resolved.
+     */
+    public List<Map<String, Object>> export() {
+        List<Map<String, Object>> events;
+        synchronized (this) {
+            int size = (int) Math.min(count, CAPACITY);
+            long first = count - size;
+            events = new ArrayList<>(size);
+            for (long seq = first; seq < count; seq++) {
+                int i = (int) (seq % CAPACITY);
+                Map<String, Object> e = new HashMap<>();
+                e.put("seq", seq);
+                e.put("timeMs", timeMs[i]);
+                e.put("callId", callIds[i]);
+                boolean manager = sources[i] == SOURCE_MANAGER;
+                e.put("source", manager ? "manager" : "telecom");
+                e.put("oldState", manager ? managerStateName(oldStates[i]) : telecomStateName(oldStates[i]));
+                e.put("newState", manager ? managerStateName(newStates[i]) : telecomStateName(newStates[i]));
+                e.put("telecomState", telecomStateName(telecomStates[i]));
+                e.put("disconnectCause", (int) disconnectCauses[i]);
+                events.add(e);
+            }
+        }
+        return events;
+    }
+
+    private static String managerStateName(int ordinal) {
+        CallManager.CallState[] states = CallManager.CallState.values();
+        return ordinal >= 0 && ordinal < states.length ? states[ordinal].name() : "NONE";
+    }
+
+    private static String telecomStateName(int state) {
+        switch (state) {
+            case STATE_NONE: return "NONE";
+            case TelecomCall.STATE_NEW: return "NEW";
+            case TelecomCall.STATE_DIALING: return "DIALING";
+            case TelecomCall.STATE_RINGING: return "RINGING";
+            case TelecomCall.STATE_HOLDING: return "HOLDING";
+            case TelecomCall.STATE_ACTIVE: return "ACTIVE";
+            case TelecomCall.STATE_DISCONNECTED: return "DISCONNECTED";
+            case TelecomCall.STATE_SELECT_PHONE_ACCOUNT: return "SELECT_PHONE_ACCOUNT";
+            case TelecomCall.STATE_CONNECTING: return "CONNECTING";
+            case TelecomCall.STATE_DISCONNECTING: return "DISCONNECTING";
+            case TelecomCall.STATE_PULLING_CALL: return "PULLING_CALL";
+            case TelecomCall.STATE_AUDIO_PROCESSING: return "AUDIO_PROCESSING";
+            case TelecomCall.STATE_SIMULATED_RINGING: return "SIMULATED_RINGING";
+            default: return String.valueOf(state);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.call_navigator;
 
-import android.telecom.Call;
-import android.util.Log;
-import java.util.ArrayList;
-import java.util.List;
+import android.app.Activity;
+import android.content.Context;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Centralized call state management to prevent activity stacking issues.
- * Manages all call states and notifies UI components appropriately.
+ * Manages all call states and notifies UI components appropriately. Calls are
+ * {@link TelecomCall}s and time and logging are injected, so the state machine runs on a plain
+ * JVM against fakes.
  */
 public class CallManager {
     private static final String TAG = "CallManager";
@@ -21,14 +24,76 @@ public class CallManager {
         CALL_WAITING
     }
     
-    private CallState currentState = CallState.IDLE;
-    private Call currentCall;
-    private Call waitingCall;
-    private String currentCallNumber;
-    private String waitingCallNumber;
-    private List<CallStateListener> listeners = new ArrayList<>();
+    /**
+     * Immutable view of the call state. Replaced as a whole on every transition, so readers
+     * always see the state and both numbers from the same moment.
+     */
+    public static final class CallSnapshot {
+        public final CallState state;
+        public final TelecomCall currentCall;
+        public final TelecomCall waitingCall;
+        public final String currentCallNumber;
+        public final String waitingCallNumber;
+        // Every call Telecom knows about, with its own state and timestamps
+        public final CallRegistry calls;
+        // Increases with every state transition; registry-only updates keep it
+        public final long version;
+        // Clock.elapsedRealtimeNanos() when published, for dispatch latency
+        public final long publishedAtNanos;
+
+        CallSnapshot(CallState state, TelecomCall currentCall, TelecomCall waitingCall,
+                     String currentCallNumber, String waitingCallNumber, CallRegistry calls, long version,
+                     long publishedAtNanos) {
+            this.state = state;
+            this.currentCall = currentCall;
+            this.waitingCall = waitingCall;
+            this.currentCallNumber = currentCallNumber;
+            this.waitingCallNumber = waitingCallNumber;
+            this.calls = calls;
+            this.version = version;
+            this.publishedAtNanos = publishedAtNanos;
+        }
+    }
+
+    /** Time source: SystemClock on a device, a fake in JVM tests */
+    interface Clock {
+        long elapsedRealtime();
+
+        long elapsedRealtimeNanos();
+    }
+
+    /** Log sink: android.util.Log on a device */
+    interface Logger {
+        void d(String tag, String message);
+
+        void w(String tag, String message);
+
+        void e(String tag, String message, Throwable t);
+    }
+
+    private final Clock clock;
+    private final Logger log;
+    private final AtomicReference<CallSnapshot> snapshot;
+    // Serializes writers; readers never take it
+    private final Object writeLock = new Object();
+    private final CallStateDispatcher dispatcher;
+    // Guarded by writeLock
+    private final CallTransitions transitions = new CallTransitions();
+    private volatile CallCheckpoint checkpoint;
+    // Guarded by writeLock: what a killed process left behind, until its calls are matched again
+    private CallCheckpoint.Saved restore;
     
-    private CallManager() {}
+    private CallManager() {
+        this(AndroidPlatform.INSTANCE, AndroidPlatform.INSTANCE);
+    }
+
+    CallManager(Clock clock, Logger log) {
+        this.clock = clock;
+        this.log = log;
+        this.snapshot = new AtomicReference<>(new CallSnapshot(CallState.IDLE, null, null, null, null,
+                CallRegistry.EMPTY, 0, clock.elapsedRealtimeNanos()));
+        this.dispatcher = new CallStateDispatcher(clock, log);
+    }
     
     public static synchronized CallManager getInstance() {
         if (instance == null) {
@@ -37,160 +102,507 @@ public class CallManager {
         return instance;
     }
     
+    /**
+     * Full-state callback, invoked on every transition. Prefer {@link CallDeltaListener}.
+     */
     public interface CallStateListener {
         void onCallStateChanged(CallState state, String phoneNumber, String waitingNumber);
     }
+
+    /**
+     * Change callback; only invoked when something in the snapshot actually changed.
+     */
+    public interface CallDeltaListener {
+        void onCallDelta(CallDelta delta);
+    }
+
+    /**
+     * Handle for one registered listener. Cancelling it is the only reliable way to unregister a
+     * lambda or method reference, since a second {@code this::method} is a different object.
+     */
+    public interface Subscription {
+        void cancel();
+
+        boolean isActive();
+
+        /** Cancel automatically when the activity is destroyed */
+        Subscription bindTo(Activity activity);
+    }
+
+    /**
+     * Register a listener delivered on the executor; see {@link #addListener(CallStateListener, Executor)}.
+     */
+    public Subscription subscribe(CallStateListener listener, Executor executor) {
+        return dispatcher.subscribe(listener, executor, snapshot.get());
+    }
+
+    /**
+     * Register for typed change events on the executor. Transitions that change nothing are not
+     * delivered; collapsed bursts arrive as one delta spanning them.
+     */
+    public Subscription subscribe(CallDeltaListener listener, Executor executor) {
+        return dispatcher.subscribe(listener, executor, snapshot.get());
+    }
     
+    /**
+     * Notify on the publishing thread, synchronously with every transition.
+     */
     public void addListener(CallStateListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
+        dispatcher.subscribe(listener, CallStateDispatcher.DIRECT, snapshot.get());
+    }
+
+    /**
+     * Notify on the given executor. Transitions published while a delivery is still queued are
+     * collapsed into it, so the listener only ever sees the latest state.
+     */
+    public void addListener(CallStateListener listener, Executor executor) {
+        dispatcher.subscribe(listener, executor, snapshot.get());
+    }
+
+    /**
+     * Notify on the publishing thread, like {@link #addListener(CallStateListener)}, for a
+     * listener that belongs to the activity. The activity must remove it; the debug leak check
+     * reports it otherwise. Prefer {@link #subscribe} with {@link Subscription#bindTo}.
+     */
+    public void addListener(CallStateListener listener, Activity owner) {
+        dispatcher.subscribe(listener, CallStateDispatcher.DIRECT, snapshot.get()).setOwner(owner);
+    }
+
+    public void removeListener(CallStateListener listener) {
+        dispatcher.unsubscribe(listener);
+    }
+
+    public int getListenerCount() {
+        return dispatcher.size();
+    }
+
+    /**
+     * Listeners still registered that belong to this activity: bound to it, registered with it as
+     * owner, or the activity itself. Non-zero after the activity is destroyed means a leak.
+     */
+    public int getListenerCount(Activity activity) {
+        return dispatcher.countOwnedBy(activity);
+    }
+
+    /**
+     * Listener count, deliveries, collapsed intermediate states and dispatch latency.
+     */
+    public Map<String, Object> getDispatchStats() {
+        return dispatcher.getStats();
+    }
+
+    /**
+     * Enable checkpointing to app storage. The previous process's checkpoint, if any, is read in
+     * the background before anything is written and held until Telecom re-adds its calls.
+     */
+    public void attach(Context context) {
+        synchronized (writeLock) {
+            if (checkpoint == null) checkpoint = new CallCheckpoint(context.getApplicationContext(), this::onCheckpointRead);
         }
     }
+
+    // Main thread, once per process
+    private void onCheckpointRead(CallCheckpoint.Saved saved) {
+        if (saved == null) return;
+        CallSnapshot published = null;
+        synchronized (writeLock) {
+            restore = saved;
+            // Calls Telecom re-added while the file was being read
+            for (CallRegistry.CallEntry e : snapshot.get().calls.all()) {
+                if (restore == null) break;
+                CallSnapshot p = reconcile(e.call, e.number, e.telecomState);
+                if (p != null) published = p;
+            }
+        }
+        if (published != null) notifyListeners(published);
+    }
+
+    /**
+     * Current state, wait-free.
+     */
+    public CallSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Must hold writeLock
+    private CallSnapshot publish(CallState state, TelecomCall currentCall, TelecomCall waitingCall,
+                                 String currentCallNumber, String waitingCallNumber) {
+        CallSnapshot s = snapshot.get();
+        CallSnapshot next = new CallSnapshot(state, currentCall, waitingCall,
+                currentCallNumber, waitingCallNumber, s.calls, s.version + 1, clock.elapsedRealtimeNanos());
+        snapshot.set(next);
+        save(next);
+        // When the current call is cleared, the entry is about the call that left
+        CallRegistry.CallEntry entry = s.calls.get(currentCall != null ? currentCall : s.currentCall);
+        CallJournal.getInstance().record(CallJournal.SOURCE_MANAGER, entry != null ? entry.id : 0,
+                s.state.ordinal(), state.ordinal(),
+                entry != null ? entry.telecomState : CallJournal.STATE_NONE, 0);
+        return next;
+    }
+
+    // Must hold writeLock. Registry-only changes don't alter what legacy listeners see, so they aren't notified
+    private void publishCalls(CallRegistry calls) {
+        CallSnapshot s = snapshot.get();
+        if (calls == s.calls) return;
+        CallSnapshot next = new CallSnapshot(s.state, s.currentCall, s.waitingCall,
+                s.currentCallNumber, s.waitingCallNumber, calls, s.version, clock.elapsedRealtimeNanos());
+        snapshot.set(next);
+        save(next);
+    }
+
+    private void save(CallSnapshot s) {
+        CallCheckpoint cp = checkpoint;
+        if (cp != null) cp.save(s);
+    }
+
+    // ===== Telecom call registry =====
+
+    public void onTelecomCallAdded(TelecomCall call, String phoneNumber, int telecomState) {
+        CallSnapshot restored;
+        synchronized (writeLock) {
+            CallRegistry calls = snapshot.get().calls.withAdded(call, phoneNumber, telecomState, clock.elapsedRealtime());
+            publishCalls(calls);
+            CallRegistry.CallEntry entry = calls.get(call);
+            if (entry != null) {
+                CallJournal.getInstance().record(CallJournal.SOURCE_TELECOM, entry.id,
+                        CallJournal.STATE_NONE, telecomState, telecomState, 0);
+            }
+            restored = reconcile(call, phoneNumber, telecomState);
+        }
+        if (restored != null) notifyListeners(restored);
+    }
+
+    /**
+     * Match a call Telecom (re)added against the previous process's checkpoint: restore its
+     * timestamps and, for the call that was current, the manager state and numbers, so call
+     * screens come back as they were. Calls added before the checkpoint is read are matched when
+     * it arrives. Must hold writeLock; returns a snapshot to notify, or null.
+     */
+    private CallSnapshot reconcile(TelecomCall call, String phoneNumber, int telecomState) {
+        CallCheckpoint.Saved saved = restore;
+        if (saved == null) return null;
+        CallCheckpoint.SavedCall sc = saved.find(phoneNumber);
+        if (sc == null || (isNewCallState(telecomState) && !isNewCallState(sc.telecomState))) {
+            // Telecom re-adds every surviving call together, so a miss means the checkpoint is stale
+            restore = null;
+            return null;
+        }
+
+        publishCalls(snapshot.get().calls.withHistory(call, sc.incoming, sc.addedAt, sc.activeAt));
+        CallSnapshot s = snapshot.get();
+        CallSnapshot published = null;
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        if (s.currentCall == null && saved.state != CallState.IDLE
+                && key != null && key.equals(PhoneNumberUtils.toLookupKey(saved.currentCallNumber))) {
+            // A waiting call comes back ringing and goes through onIncomingCall as usual
+            CallState state;
+            switch (telecomState) {
+                case TelecomCall.STATE_RINGING: state = CallState.INCOMING; break;
+                case TelecomCall.STATE_HOLDING: state = CallState.HOLD; break;
+                default: state = CallState.ACTIVE; break;
+            }
+            published = publish(state, call, s.waitingCall, phoneNumber, s.waitingCallNumber);
+            log.d(TAG, "Restored " + state + " call " + phoneNumber + " from checkpoint");
+        }
+        boolean allMatched = true;
+        for (CallCheckpoint.SavedCall c : saved.calls) {
+            if (c != sc && !hasCallFor(snapshot.get().calls, c.number)) allMatched = false;
+        }
+        if (allMatched) restore = null;
+        return published;
+    }
+
+    // States a call starts in; a call saved past them can't come back in one
+    private static boolean isNewCallState(int telecomState) {
+        return telecomState == TelecomCall.STATE_NEW || telecomState == TelecomCall.STATE_DIALING
+                || telecomState == TelecomCall.STATE_CONNECTING || telecomState == TelecomCall.STATE_RINGING
+                || telecomState == TelecomCall.STATE_SELECT_PHONE_ACCOUNT;
+    }
+
+    private static boolean hasCallFor(CallRegistry calls, String number) {
+        String key = PhoneNumberUtils.toLookupKey(number);
+        if (key == null) return false;
+        for (CallRegistry.CallEntry e : calls.all()) {
+            if (key.equals(PhoneNumberUtils.toLookupKey(e.number))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Telecom state of a call changed. Holding or resuming the current call, whoever asked for
+     * it, moves the manager between ACTIVE and HOLD.
+     */
+    public void onTelecomStateChanged(TelecomCall call, int telecomState) {
+        CallSnapshot published = null;
+        synchronized (writeLock) {
+            CallRegistry.CallEntry before = snapshot.get().calls.get(call);
+            publishCalls(snapshot.get().calls.withState(call, telecomState, clock.elapsedRealtime()));
+            if (before != null) {
+                CallJournal.getInstance().record(CallJournal.SOURCE_TELECOM, before.id,
+                        before.telecomState, telecomState, telecomState,
+                        telecomState == TelecomCall.STATE_DISCONNECTED ? call.getDisconnectCause() : 0);
+            }
+            CallSnapshot s = snapshot.get();
+            if (call != null && call.equals(s.currentCall)) {
+                if (telecomState == TelecomCall.STATE_HOLDING) {
+                    published = apply(CallTransitions.Event.HOLD, null, null);
+                } else if (telecomState == TelecomCall.STATE_ACTIVE && s.state == CallState.HOLD) {
+                    published = apply(CallTransitions.Event.UNHOLD, null, null);
+                }
+            }
+        }
+        if (published != null) notifyListeners(published);
+    }
+
+    public void onTelecomNumberChanged(TelecomCall call, String phoneNumber) {
+        CallSnapshot published = null;
+        synchronized (writeLock) {
+            CallSnapshot s = snapshot.get();
+            publishCalls(s.calls.withNumber(call, phoneNumber));
+            if (phoneNumber == null || call == null) return;
+            // A handle that arrives late resolves the number listeners are showing
+            if (call.equals(s.currentCall) && !phoneNumber.equals(s.currentCallNumber)) {
+                published = publish(s.state, s.currentCall, s.waitingCall, phoneNumber, s.waitingCallNumber);
+            } else if (call.equals(s.waitingCall) && !phoneNumber.equals(s.waitingCallNumber)) {
+                published = publish(s.state, s.currentCall, s.waitingCall, s.currentCallNumber, phoneNumber);
+            }
+        }
+        if (published != null) notifyListeners(published);
+    }
+
+    public void onTelecomCallRemoved(TelecomCall call) {
+        synchronized (writeLock) {
+            CallRegistry.CallEntry before = snapshot.get().calls.get(call);
+            publishCalls(snapshot.get().calls.withRemoved(call));
+            // Nothing left to reconcile once every call is gone
+            if (snapshot.get().calls.isEmpty()) restore = null;
+            if (before != null) {
+                CallJournal.getInstance().record(CallJournal.SOURCE_TELECOM, before.id,
+                        before.telecomState, CallJournal.STATE_NONE, before.telecomState, call.getDisconnectCause());
+            }
+        }
+    }
+
+    public CallRegistry getCalls() {
+        return snapshot.get().calls;
+    }
     
-    public void removeListener(CallStateListener listener) {
-        listeners.remove(listener);
+    private void notifyListeners(CallSnapshot published) {
+        // A newer transition has been published and will notify on its own
+        if (snapshot.get().version != published.version) return;
+        dispatcher.dispatch(published);
     }
     
-    private void notifyListeners() {
-        for (CallStateListener listener : listeners) {
-            try {
-                listener.onCallStateChanged(currentState, currentCallNumber, waitingCallNumber);
-            } catch (Exception e) {
-                Log.e(TAG, "Error notifying listener", e);
+    // Must hold writeLock. Applies one table transition; returns the published snapshot, or null if nothing changed
+    private CallSnapshot apply(CallTransitions.Event event, TelecomCall call, String phoneNumber) {
+        CallSnapshot s = snapshot.get();
+        int i = CallTransitions.index(s.state, event, s.waitingCall != null);
+        byte action = CallTransitions.action(i);
+        if (action == CallTransitions.ILLEGAL) {
+            transitions.countIllegal(i);
+            log.w(TAG, "Ignoring " + event + " in state " + s.state + (s.waitingCall != null ? " with waiting call" : ""));
+            return null;
+        }
+        if (action == CallTransitions.REDUNDANT) {
+            transitions.countRedundant(i);
+            return null;
+        }
+        transitions.countApplied(i);
+        CallState next = CallTransitions.next(i);
+        switch (action) {
+            case CallTransitions.NEW_CURRENT:
+                return publish(next, call, s.waitingCall, phoneNumber, s.waitingCallNumber);
+            case CallTransitions.NEW_WAITING:
+                return publish(next, s.currentCall, call, s.currentCallNumber, phoneNumber);
+            case CallTransitions.PROMOTE_WAITING:
+                return publish(next, s.waitingCall, null, s.waitingCallNumber, null);
+            case CallTransitions.DROP_WAITING:
+                return publish(next, s.currentCall, null, s.currentCallNumber, null);
+            case CallTransitions.CLEAR:
+                return publish(next, null, null, null, null);
+            default: {
+                TelecomCall current = s.currentCall;
+                String currentNumber = s.currentCallNumber;
+                if (current == null && next == CallState.ACTIVE) {
+                    // Outgoing calls become ACTIVE without ever being announced; adopt the registry's call
+                    CallRegistry.CallEntry foreground = s.calls.getForegroundCall();
+                    if (foreground != null) {
+                        current = foreground.call;
+                        currentNumber = foreground.number;
+                    }
+                }
+                return publish(next, current, s.waitingCall, currentNumber, s.waitingCallNumber);
             }
         }
     }
-    
-    public void onIncomingCall(Call call, String phoneNumber) {
-        Log.d(TAG, "onIncomingCall: " + phoneNumber + ", currentState: " + currentState);
-        
-        if (currentState == CallState.ACTIVE) {
-            // Call waiting scenario - don't launch new activity
-            waitingCall = call;
-            waitingCallNumber = phoneNumber;
-            currentState = CallState.CALL_WAITING;
-            Log.d(TAG, "Call waiting: " + phoneNumber + " while on active call: " + currentCallNumber);
-        } else {
-            // Regular incoming call
-            currentCall = call;
-            currentCallNumber = phoneNumber;
-            currentState = CallState.INCOMING;
-            Log.d(TAG, "Regular incoming call: " + phoneNumber);
+
+    // Must hold writeLock
+    private static boolean allows(CallSnapshot s, CallTransitions.Event event) {
+        return CallTransitions.action(CallTransitions.index(s.state, event, s.waitingCall != null)) > CallTransitions.REDUNDANT;
+    }
+
+    private void fire(CallTransitions.Event event) {
+        CallSnapshot published;
+        synchronized (writeLock) {
+            published = apply(event, null, null);
+        }
+        if (published != null) notifyListeners(published);
+    }
+
+    public void onIncomingCall(TelecomCall call, String phoneNumber) {
+        CallSnapshot published;
+        synchronized (writeLock) {
+            log.d(TAG, "onIncomingCall: " + phoneNumber + ", currentState: " + snapshot.get().state);
+            published = apply(CallTransitions.Event.INCOMING, call, phoneNumber);
+            if (published != null && published.state == CallState.CALL_WAITING) {
+                log.d(TAG, "Call waiting: " + phoneNumber + " while on active call: " + published.currentCallNumber);
+            }
         }
-        notifyListeners();
+        if (published != null) notifyListeners(published);
     }
     
     public void onCallAnswered() {
-        Log.d(TAG, "onCallAnswered, currentState: " + currentState);
-        currentState = CallState.ACTIVE;
-        notifyListeners();
+        log.d(TAG, "onCallAnswered, currentState: " + snapshot.get().state);
+        fire(CallTransitions.Event.ANSWERED);
     }
     
+    /**
+     * The current call ended; a waiting call, if any, takes its place.
+     */
     public void onCallEnded() {
-        Log.d(TAG, "onCallEnded, currentState: " + currentState);
-        
-        if (waitingCall != null) {
-            // Switch to waiting call
-            currentCall = waitingCall;
-            currentCallNumber = waitingCallNumber;
-            waitingCall = null;
-            waitingCallNumber = null;
-            currentState = CallState.ACTIVE;
-            Log.d(TAG, "Switched to waiting call: " + currentCallNumber);
-        } else {
-            // No waiting call, go to idle
-            currentCall = null;
-            currentCallNumber = null;
-            currentState = CallState.IDLE;
-            Log.d(TAG, "No waiting call, going to IDLE");
-        }
-        notifyListeners();
-    }
-    
-    public void onCallHold() {
-        if (currentState == CallState.ACTIVE) {
-            currentState = CallState.HOLD;
-            notifyListeners();
-        }
+        log.d(TAG, "onCallEnded, currentState: " + snapshot.get().state);
+        fire(CallTransitions.Event.ENDED);
     }
     
-    public void onCallUnhold() {
-        if (currentState == CallState.HOLD) {
-            currentState = CallState.ACTIVE;
-            notifyListeners();
+    /**
+     * The waiting call disconnected without being answered; the current call carries on.
+     */
+    public void onWaitingCallEnded(TelecomCall call) {
+        CallSnapshot published;
+        synchronized (writeLock) {
+            if (call == null || !call.equals(snapshot.get().waitingCall)) {
+                transitions.countRejected();
+                return;
+            }
+            published = apply(CallTransitions.Event.WAITING_GONE, null, null);
         }
+        if (published != null) notifyListeners(published);
     }
     
+    /**
+     * Hold the current call and answer the waiting one. The Telecom calls are binder calls, so
+     * they run outside the write lock; the transition is applied afterwards if the waiting call
+     * is still there.
+     */
     public void answerWaitingCall() {
-        if (currentState == CallState.CALL_WAITING && waitingCall != null) {
-            // Hold current call and answer waiting call
-            try {
-                if (currentCall != null) {
-                    currentCall.hold();
-                }
-                waitingCall.answer(android.telecom.VideoProfile.STATE_AUDIO_ONLY);
-                
-                // Switch to waiting call
-                currentCall = waitingCall;
-                currentCallNumber = waitingCallNumber;
-                waitingCall = null;
-                waitingCallNumber = null;
-                currentState = CallState.ACTIVE;
-                
-                Log.d(TAG, "Answered waiting call: " + currentCallNumber);
-                notifyListeners();
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to answer waiting call", e);
+        TelecomCall current;
+        TelecomCall waiting;
+        synchronized (writeLock) {
+            CallSnapshot s = snapshot.get();
+            if (!allows(s, CallTransitions.Event.ANSWER_WAITING)) {
+                apply(CallTransitions.Event.ANSWER_WAITING, null, null);
+                return;
             }
+            current = s.currentCall;
+            waiting = s.waitingCall;
         }
+        try {
+            if (current != null) {
+                current.hold();
+            }
+            waiting.answer();
+        } catch (Exception e) {
+            log.e(TAG, "Failed to answer waiting call", e);
+            synchronized (writeLock) {
+                transitions.countRejected();
+            }
+            return;
+        }
+        applyToWaiting(CallTransitions.Event.ANSWER_WAITING, waiting);
     }
-    
+
+    /**
+     * Disconnect the waiting call; the current call carries on. As with
+     * {@link #answerWaitingCall}, the binder call runs outside the write lock.
+     */
     public void declineWaitingCall() {
-        if (currentState == CallState.CALL_WAITING && waitingCall != null) {
-            try {
-                waitingCall.disconnect();
-                waitingCall = null;
-                waitingCallNumber = null;
-                currentState = CallState.ACTIVE;
-                
-                Log.d(TAG, "Declined waiting call, back to active call");
-                notifyListeners();
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to decline waiting call", e);
+        TelecomCall waiting;
+        synchronized (writeLock) {
+            CallSnapshot s = snapshot.get();
+            if (!allows(s, CallTransitions.Event.DECLINE_WAITING)) {
+                apply(CallTransitions.Event.DECLINE_WAITING, null, null);
+                return;
+            }
+            waiting = s.waitingCall;
+        }
+        try {
+            waiting.disconnect();
+        } catch (Exception e) {
+            log.e(TAG, "Failed to decline waiting call", e);
+            synchronized (writeLock) {
+                transitions.countRejected();
+            }
+            return;
+        }
+        applyToWaiting(CallTransitions.Event.DECLINE_WAITING, waiting);
+    }
+
+    // Apply a waiting-call event unless the waiting call changed while Telecom was acting on it
+    private void applyToWaiting(CallTransitions.Event event, TelecomCall waiting) {
+        CallSnapshot published;
+        synchronized (writeLock) {
+            if (!waiting.equals(snapshot.get().waitingCall)) {
+                transitions.countRejected();
+                return;
             }
+            published = apply(event, null, null);
+        }
+        if (published != null) {
+            log.d(TAG, event + " applied; current call " + published.currentCallNumber);
+            notifyListeners(published);
+        }
+    }
+
+    /**
+     * Applied, redundant, illegal and rejected transition counts by (state, event).
+     */
+    public Map<String, Object> getTransitionStats() {
+        synchronized (writeLock) {
+            return transitions.getStats();
         }
     }
     
-    // Getters
+    // Getters (each reads one snapshot; use getSnapshot() when several values must agree)
     public CallState getCurrentState() {
-        return currentState;
+        return snapshot.get().state;
     }
     
-    public Call getCurrentCall() {
-        return currentCall;
+    public TelecomCall getCurrentCall() {
+        return snapshot.get().currentCall;
     }
     
-    public Call getWaitingCall() {
-        return waitingCall;
+    public TelecomCall getWaitingCall() {
+        return snapshot.get().waitingCall;
     }
     
     public String getCurrentCallNumber() {
-        return currentCallNumber;
+        return snapshot.get().currentCallNumber;
     }
     
     public String getWaitingCallNumber() {
-        return waitingCallNumber;
+        return snapshot.get().waitingCallNumber;
     }
     
     public boolean isCallWaiting() {
-        return currentState == CallState.CALL_WAITING;
+        return snapshot.get().state == CallState.CALL_WAITING;
     }
     
     public boolean hasActiveCall() {
-        return currentState == CallState.ACTIVE || currentState == CallState.HOLD;
+        CallState state = snapshot.get().state;
+        return state == CallState.ACTIVE || state == CallState.HOLD;
     }
     
     public boolean hasIncomingCall() {
-        return currentState == CallState.INCOMING;
+        return snapshot.get().state == CallState.INCOMING;
     }
 }
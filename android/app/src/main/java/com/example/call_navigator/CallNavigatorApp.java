@@ -1,6 +1,12 @@
 package com.example.call_navigator;
 
+import android.app.Activity;
 import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterEngineCache;
 import io.flutter.plugins.GeneratedPluginRegistrant;
@@ -12,10 +18,26 @@ import com.example.call_navigator.CallTrackingPlugin;
  * when returning from Recents or switching between native/Flutter.
  */
 public class CallNavigatorApp extends Application {
+    private static final String TAG = "CallNavigatorApp";
+
     @Override
     public void onCreate() {
         super.onCreate();
 
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            registerListenerLeakCheck();
+        }
+
+        // Checkpoint call state so a restarted process can restore its call screens
+        CallManager.getInstance().attach(this);
+        // Call events Dart hasn't acknowledged yet, replayed once it attaches
+        CallEventQueue.getInstance().attach(this);
+
+        // Preload contacts in the background so call screens resolve names from memory
+        ContactsIndex.getInstance().start(this);
+        LeadDirectory.getInstance().preload(this);
+        DialPadIndex.getInstance().start(this);
+
         // Create and pre-warm Flutter engine
         FlutterEngine flutterEngine = new FlutterEngine(this);
 
@@ -31,4 +53,33 @@ public class CallNavigatorApp extends Application {
         // Cache it for reuse by MainActivity
         FlutterEngineCache.getInstance().put("main_engine", flutterEngine);
     }
+
+    /**
+     * Debug builds: after each activity is destroyed, report CallManager listeners it left behind.
+     */
+    private void registerListenerLeakCheck() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                // Posted so the activity's own bound subscriptions are cancelled first
+                handler.post(() -> {
+                    CallManager manager = CallManager.getInstance();
+                    int leaked = manager.getListenerCount(activity);
+                    if (leaked > 0) {
+                        Log.e(TAG, activity.getClass().getSimpleName() + " leaked " + leaked + " CallManager listener(s)");
+                    }
+                    Log.d(TAG, "CallManager listeners after " + activity.getClass().getSimpleName()
+                            + " destroyed: " + manager.getListenerCount());
+                });
+            }
+
+            @Override public void onActivityCreated(Activity a, Bundle b) {}
+            @Override public void onActivityStarted(Activity a) {}
+            @Override public void onActivityResumed(Activity a) {}
+            @Override public void onActivityPaused(Activity a) {}
+            @Override public void onActivityStopped(Activity a) {}
+            @Override public void onActivitySaveInstanceState(Activity a, Bundle b) {}
+        });
+    }
 }
@@ -0,0 +1,321 @@
+package com.example.call_navigator;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All of the app's call notifications. Channels are created once per process, PendingIntents
+ * are cached per request code and reused while their arguments match, and each notification id
+ * keeps its builder. Ongoing notifications are only re-posted when their content changes, and
+ * the active-call notification is rate limited: updates inside the interval are coalesced into
+ * one trailing post. Safe to call from any thread.
+ */
+public final class CallNotifications {
+    private static final String TAG = "CallNotifications";
+    private static CallNotifications instance;
+
+    public static final String CALLS_CHANNEL_ID = "call_tracking_channel";
+    public static final String MISSED_CALL_CHANNEL_ID = "missed_call_channel";
+
+    public static final int ID_NAVIGATE = 2003;
+    public static final int ID_INCOMING = 3001;
+    public static final int ID_ACTIVE_CALL = 4001;
+    public static final int ID_MISSED_CALL = 5001;
+
+    private static final int RC_NAVIGATE = 201;
+    private static final int RC_INCOMING = 301;
+    private static final int RC_ACTIVE_CALL = 7001;
+    private static final int RC_SPEAKER_ON = 7002;
+    private static final int RC_END_CALL = 7003;
+    private static final int RC_SPEAKER_OFF = 7004;
+
+    // The system drops updates above a few per second per app; stay well below that
+    private static final long ACTIVE_CALL_MIN_INTERVAL_MS = 500;
+
+    private interface Content {
+        void apply(NotificationCompat.Builder builder);
+    }
+
+    private final class Slot {
+        final int id;
+        final NotificationCompat.Builder builder;
+        // Content of the last post; null after a cancel or for notifications posted every time
+        String postedKey;
+        long postedAt;
+        String pendingKey;
+        Content pending;
+        final Runnable flush = () -> flush(this);
+
+        Slot(int id, NotificationCompat.Builder builder) {
+            this.id = id;
+            this.builder = builder;
+        }
+    }
+
+    private static final class CachedIntent {
+        final String arg;
+        final PendingIntent intent;
+
+        CachedIntent(String arg, PendingIntent intent) {
+            this.arg = arg;
+            this.intent = intent;
+        }
+    }
+
+    private Context context;
+    private boolean channelsCreated;
+    private Handler handler;
+    private final SparseArray<Slot> slots = new SparseArray<>();
+    private final SparseArray<CachedIntent> intents = new SparseArray<>();
+
+    private long posted;
+    private long skippedUnchanged;
+    private long coalesced;
+
+    private CallNotifications() {}
+
+    public static synchronized CallNotifications getInstance() {
+        if (instance == null) {
+            instance = new CallNotifications();
+        }
+        return instance;
+    }
+
+    /**
+     * Ongoing notification for the current call with speaker and end actions.
+     */
+    public void showActiveCall(Context ctx, String number, boolean speakerOn) {
+        String content = number != null && !number.isEmpty() ? number : "Unknown";
+        update(ctx, ID_ACTIVE_CALL, CALLS_CHANNEL_ID, content + "|" + speakerOn, ACTIVE_CALL_MIN_INTERVAL_MS, b -> {
+            b.setContentTitle("Call in progress")
+                    .setContentText(content)
+                    .setOngoing(true)
+                    .setOnlyAlertOnce(true)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setContentIntent(activityIntent(RC_ACTIVE_CALL, ActiveCallActivity.class, ActiveCallActivity.EXTRA_CALL_NUMBER, number,
+                            Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP))
+                    .clearActions()
+                    .addAction(new NotificationCompat.Action(
+                            android.R.drawable.ic_lock_silent_mode_off,
+                            speakerOn ? "Earpiece" : "Speaker",
+                            speakerIntent(!speakerOn)))
+                    .addAction(new NotificationCompat.Action(
+                            android.R.drawable.ic_menu_close_clear_cancel,
+                            "End",
+                            broadcastIntent(RC_END_CALL, CallTrackingInCallService.ACTION_END_CALL, null)));
+        });
+    }
+
+    /**
+     * Full-screen incoming call notification, used when the call screen can't be started directly.
+     */
+    public void showIncomingFullScreen(Context ctx, String number) {
+        update(ctx, ID_INCOMING, CALLS_CHANNEL_ID, String.valueOf(number), 0, b -> {
+            PendingIntent pi = activityIntent(RC_INCOMING, IncomingCallActivity.class, IncomingCallActivity.EXTRA_CALL_NUMBER, number,
+                    Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            b.setContentTitle("Incoming call")
+                    .setContentText(number != null ? number : "Unknown")
+                    .setPriority(NotificationCompat.PRIORITY_MAX)
+                    .setOngoing(true)
+                    .setFullScreenIntent(pi, true);
+        });
+    }
+
+    /**
+     * Tap-to-open notification for when the app can't be brought to the front; the user can
+     * dismiss it, so it is posted every time.
+     */
+    public void showNavigate(Context ctx, String title, String number) {
+        update(ctx, ID_NAVIGATE, CALLS_CHANNEL_ID, null, 0, b -> {
+            PendingIntent pi = activityIntent(RC_NAVIGATE, IncomingCallActivity.class, IncomingCallActivity.EXTRA_CALL_NUMBER, number,
+                    Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            b.setContentTitle(title)
+                    .setContentText("Opening app...")
+                    .setContentIntent(pi)
+                    .setAutoCancel(true)
+                    .setPriority(NotificationCompat.PRIORITY_MAX)
+                    .setFullScreenIntent(pi, true);
+        });
+    }
+
+    public void showMissedCall(Context ctx, String displayName) {
+        update(ctx, ID_MISSED_CALL, MISSED_CALL_CHANNEL_ID, null, 0, b ->
+                b.setContentTitle("Missed Call")
+                        .setContentText("Missed call from " + displayName)
+                        .setPriority(NotificationCompat.PRIORITY_HIGH)
+                        .setAutoCancel(true)
+                        .setDefaults(NotificationCompat.DEFAULT_SOUND | NotificationCompat.DEFAULT_VIBRATE));
+    }
+
+    public synchronized void cancel(Context ctx, int id) {
+        if (!attach(ctx)) return;
+        Slot slot = slots.get(id);
+        if (slot != null) {
+            // Cancelling something never posted is a wasted binder call
+            if (slot.postedKey == null && slot.postedAt == 0 && slot.pending == null) return;
+            if (slot.pending != null) handler.removeCallbacks(slot.flush);
+            slot.pending = null;
+            slot.pendingKey = null;
+            slot.postedKey = null;
+            slot.postedAt = 0;
+        }
+        try {
+            NotificationManagerCompat.from(context).cancel(id);
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to cancel notification " + id, t);
+        }
+    }
+
+    /**
+     * Posts, skipped duplicates and updates merged by the rate limit.
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("posted", posted);
+        stats.put("skippedUnchanged", skippedUnchanged);
+        stats.put("coalesced", coalesced);
+        return stats;
+    }
+
+    // key null: post every time. minIntervalMs 0: no rate limit
+    private synchronized void update(Context ctx, int id, String channelId, String key, long minIntervalMs, Content content) {
+        if (!attach(ctx)) return;
+        Slot slot = slots.get(id);
+        if (slot == null) {
+            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, channelId)
+                    .setSmallIcon(android.R.drawable.ic_menu_call)
+                    .setCategory(NotificationCompat.CATEGORY_CALL);
+            slot = new Slot(id, builder);
+            slots.put(id, slot);
+        }
+        if (key != null) {
+            if (slot.pending != null ? key.equals(slot.pendingKey) : key.equals(slot.postedKey)) {
+                skippedUnchanged++;
+                return;
+            }
+        }
+        if (slot.pending != null) {
+            // A trailing post is already scheduled; it will carry this content instead
+            slot.pending = content;
+            slot.pendingKey = key;
+            coalesced++;
+            return;
+        }
+        long wait = slot.postedAt + minIntervalMs - SystemClock.uptimeMillis();
+        if (minIntervalMs > 0 && slot.postedAt != 0 && wait > 0) {
+            slot.pending = content;
+            slot.pendingKey = key;
+            handler.postDelayed(slot.flush, wait);
+            coalesced++;
+            return;
+        }
+        post(slot, key, content);
+    }
+
+    private synchronized void flush(Slot slot) {
+        Content content = slot.pending;
+        if (content == null) return;
+        String key = slot.pendingKey;
+        slot.pending = null;
+        slot.pendingKey = null;
+        post(slot, key, content);
+    }
+
+    // Must hold this
+    private void post(Slot slot, String key, Content content) {
+        try {
+            content.apply(slot.builder);
+            NotificationManagerCompat.from(context).notify(slot.id, slot.builder.build());
+            slot.postedKey = key;
+            slot.postedAt = SystemClock.uptimeMillis();
+            posted++;
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to post notification " + slot.id, t);
+        }
+    }
+
+    // Must hold this
+    private boolean attach(Context ctx) {
+        if (context == null) {
+            if (ctx == null) return false;
+            context = ctx.getApplicationContext();
+            HandlerThread thread = new HandlerThread("call-notifications");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        if (!channelsCreated) createChannels();
+        return true;
+    }
+
+    // Must hold this
+    private void createChannels() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            if (nm == null) return;
+            nm.createNotificationChannel(new NotificationChannel(
+                    CALLS_CHANNEL_ID,
+                    "Incoming/Active Calls",
+                    NotificationManager.IMPORTANCE_HIGH));
+            NotificationChannel missed = new NotificationChannel(
+                    MISSED_CALL_CHANNEL_ID,
+                    "Missed Calls",
+                    NotificationManager.IMPORTANCE_HIGH);
+            missed.setDescription("Notifications for missed calls");
+            missed.enableVibration(true);
+            missed.setVibrationPattern(new long[]{0, 1000, 500, 1000});
+            nm.createNotificationChannel(missed);
+        }
+        channelsCreated = true;
+    }
+
+    // Must hold this. Reuses the cached intent while the number it carries is unchanged
+    private PendingIntent activityIntent(int requestCode, Class<?> activity, String extraKey, String number, int flags) {
+        String arg = number != null && !number.equals("Unknown") ? number : "";
+        CachedIntent cached = intents.get(requestCode);
+        if (cached != null && cached.arg.equals(arg)) return cached.intent;
+        Intent i = new Intent(context, activity);
+        i.setFlags(flags);
+        if (!arg.isEmpty()) i.putExtra(extraKey, arg);
+        PendingIntent pi = PendingIntent.getActivity(context, requestCode, i,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        intents.put(requestCode, new CachedIntent(arg, pi));
+        return pi;
+    }
+
+    // Must hold this. One request code per target so both can stay cached
+    private PendingIntent speakerIntent(boolean toSpeaker) {
+        CachedIntent cached = intents.get(toSpeaker ? RC_SPEAKER_ON : RC_SPEAKER_OFF);
+        if (cached != null) return cached.intent;
+        Intent i = new Intent(CallTrackingInCallService.ACTION_TOGGLE_SPEAKER);
+        i.setPackage(context.getPackageName());
+        i.putExtra("toSpeaker", toSpeaker);
+        return broadcastIntent(toSpeaker ? RC_SPEAKER_ON : RC_SPEAKER_OFF, null, i);
+    }
+
+    // Must hold this
+    private PendingIntent broadcastIntent(int requestCode, String action, Intent intent) {
+        CachedIntent cached = intents.get(requestCode);
+        if (cached != null) return cached.intent;
+        if (intent == null) {
+            intent = new Intent(action);
+            intent.setPackage(context.getPackageName());
+        }
+        PendingIntent pi = PendingIntent.getBroadcast(context, requestCode, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        intents.put(requestCode, new CachedIntent("", pi));
+        return pi;
+    }
+}
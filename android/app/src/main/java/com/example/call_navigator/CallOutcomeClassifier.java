@@ -0,0 +1,85 @@
+package com.example.call_navigator;
+
+/**
+ * Decides how a call ended (the CALL_* outcome sent to Flutter) from its disconnect cause and
+ * what was observed while it was alive: direction, whether it ever rang, whether it connected.
+ * Pure Java; fed by the InCallService's Telecom callbacks.
+ */
+public final class CallOutcomeClassifier {
+    public static final String ENDED_BY_CALLER = "CALL_ENDED_BY_CALLER";
+    public static final String ENDED_BY_CALLEE = "CALL_ENDED_BY_CALLEE";
+    public static final String NO_ANSWER = "CALL_NO_ANSWER";
+    public static final String CANCELLED_BY_CALLER = "CALL_CANCELLED_BY_CALLER";
+    public static final String DECLINED_BY_CALLEE = "CALL_DECLINED_BY_CALLEE";
+    public static final String DECLINED_BY_CALLER = "CALL_DECLINED_BY_CALLER";
+    public static final String BUSY = "CALL_BUSY";
+
+    private boolean wasOutgoing;
+    private boolean sawRinging;
+    private boolean hasEverBeenActive;
+
+    /** An outgoing call started; forgets the previous call */
+    public void onOutgoing() {
+        wasOutgoing = true;
+        sawRinging = false;
+        hasEverBeenActive = false;
+    }
+
+    public void onRinging() {
+        sawRinging = true;
+    }
+
+    public void onActive() {
+        hasEverBeenActive = true;
+    }
+
+    public void reset() {
+        wasOutgoing = false;
+        sawRinging = false;
+        hasEverBeenActive = false;
+    }
+
+    public boolean hasEverBeenActive() {
+        return hasEverBeenActive;
+    }
+
+    public boolean wasOutgoing() {
+        return wasOutgoing;
+    }
+
+    /**
+     * Outcome for a call that disconnected with the given {@link TelecomCall} cause code.
+     */
+    public String classify(int disconnectCause) {
+        switch (disconnectCause) {
+            case TelecomCall.CAUSE_LOCAL:
+                // We (this device) hung up
+                if (hasEverBeenActive) return wasOutgoing ? ENDED_BY_CALLER : ENDED_BY_CALLEE;
+                if (wasOutgoing) {
+                    // Gave up while it rang, or cancelled before it did
+                    return sawRinging ? NO_ANSWER : CANCELLED_BY_CALLER;
+                }
+                // Incoming call we rejected
+                return DECLINED_BY_CALLEE;
+            case TelecomCall.CAUSE_REMOTE:
+            case TelecomCall.CAUSE_REJECTED:
+                // Remote party hung up or declined
+                if (hasEverBeenActive) return wasOutgoing ? ENDED_BY_CALLEE : ENDED_BY_CALLER;
+                // Outgoing: they declined. Incoming: they cancelled before we answered
+                return wasOutgoing ? DECLINED_BY_CALLEE : NO_ANSWER;
+            case TelecomCall.CAUSE_BUSY:
+                return BUSY;
+            case TelecomCall.CAUSE_MISSED:
+                return NO_ANSWER;
+            default:
+                // Fall back on whether the call connected and its direction
+                if (hasEverBeenActive) return wasOutgoing ? ENDED_BY_CALLER : ENDED_BY_CALLEE;
+                return wasOutgoing ? CANCELLED_BY_CALLER : DECLINED_BY_CALLER;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{ hasEverBeenActive=" + hasEverBeenActive + ", wasOutgoing=" + wasOutgoing + ", sawRinging=" + sawRinging + " }";
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of finished calls in a memory-mapped file, written natively the moment a
+ * call ends so the record exists whether or not the Flutter engine is alive. Records are fixed
+ * 64-byte slots (number key, direction, timestamps, duration, disconnect cause, outcome); appending
+ * is a handful of stores into the mapping plus a header count update, which publishes the record.
+ * Records are in append order. End times are wall-clock and can go backwards when the clock is
+ * changed, so {@link #range} checks every record instead of searching on them; reading one long
+ * per 64-byte slot of a mapped file keeps that cheap.
+ */
+public final class CallOutcomeJournal {
+    private static final String TAG = "CallOutcomeJournal";
+    private static final String FILE_NAME = "call_outcomes.dat";
+    private static CallOutcomeJournal instance;
+
+    private static final int MAGIC = 0x434f4a31; // "COJ1"
+    private static final int HEADER_SIZE = 16;    // magic, record size, count, reserved
+    private static final int RECORD_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Record layout
+    private static final int OFF_STARTED = 0;     // long, wall ms when the call was added
+    private static final int OFF_ANSWERED = 8;    // long, wall ms when it connected, 0 if never
+    private static final int OFF_ENDED = 16;      // long, wall ms when it disconnected
+    private static final int OFF_DURATION = 24;   // int, connected ms
+    private static final int OFF_CAUSE = 28;      // short, TelecomCall.CAUSE_*
+    private static final int OFF_DIRECTION = 30;  // byte
+    private static final int OFF_OUTCOME = 31;    // byte, index into OUTCOMES
+    private static final int OFF_KEY_LEN = 32;    // byte
+    private static final int OFF_KEY = 33;        // ASCII digits
+    private static final int MAX_KEY = RECORD_SIZE - OFF_KEY;
+
+    public static final int DIRECTION_INCOMING = 0;
+    public static final int DIRECTION_OUTGOING = 1;
+
+    // Append-only: new outcomes go at the end so stored indexes keep their meaning
+    private static final String[] OUTCOMES = {
+            "UNKNOWN",
+            CallOutcomeClassifier.ENDED_BY_CALLER,
+            CallOutcomeClassifier.ENDED_BY_CALLEE,
+            CallOutcomeClassifier.NO_ANSWER,
+            CallOutcomeClassifier.CANCELLED_BY_CALLER,
+            CallOutcomeClassifier.DECLINED_BY_CALLEE,
+            CallOutcomeClassifier.DECLINED_BY_CALLER,
+            CallOutcomeClassifier.BUSY,
+    };
+
+    private File file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    private CallOutcomeJournal() {}
+
+    public static synchronized CallOutcomeJournal getInstance() {
+        if (instance == null) {
+            instance = new CallOutcomeJournal();
+        }
+        return instance;
+    }
+
+    // Must hold this
+    private boolean ensureOpen(Context context) {
+        if (buffer != null) return true;
+        if (context == null) return false;
+        try {
+            file = new File(context.getFilesDir(), FILE_NAME);
+            long length = file.length();
+            int existing = length > HEADER_SIZE ? (int) ((length - HEADER_SIZE) / RECORD_SIZE) : 0;
+            map(Math.max(INITIAL_CAPACITY, existing));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, RECORD_SIZE);
+                buffer.putInt(8, 0);
+            }
+            count = Math.min(buffer.getInt(8), capacity);
+            return true;
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to open journal", t);
+            buffer = null;
+            return false;
+        }
+    }
+
+    // Must hold this. Mapping a larger region grows the file
+    private void map(int newCapacity) throws java.io.IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            capacity = newCapacity;
+        } finally {
+            // The mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Append one finished call. Times are wall-clock milliseconds.
+     */
+    public synchronized void append(Context context, String number, int direction, long startedAtMs,
+                                    long answeredAtMs, long endedAtMs, int disconnectCause, String outcome) {
+        if (!ensureOpen(context)) return;
+        try {
+            if (count == capacity) map(capacity * 2);
+            int base = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.putLong(base + OFF_STARTED, startedAtMs);
+            buffer.putLong(base + OFF_ANSWERED, answeredAtMs);
+            buffer.putLong(base + OFF_ENDED, endedAtMs);
+            buffer.putInt(base + OFF_DURATION, answeredAtMs > 0 ? (int) Math.max(0, endedAtMs - answeredAtMs) : 0);
+            buffer.putShort(base + OFF_CAUSE, (short) disconnectCause);
+            buffer.put(base + OFF_DIRECTION, (byte) direction);
+            buffer.put(base + OFF_OUTCOME, (byte) outcomeIndex(outcome));
+            String key = PhoneNumberUtils.toLookupKey(number);
+            int len = key != null ? Math.min(key.length(), MAX_KEY) : 0;
+            buffer.put(base + OFF_KEY_LEN, (byte) len);
+            for (int i = 0; i < len; i++) {
+                buffer.put(base + OFF_KEY + i, (byte) key.charAt(i));
+            }
+            // Publishing the new count makes the record visible
+            count++;
+            buffer.putInt(8, count);
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to append outcome", t);
+        }
+    }
+
+    public synchronized int size(Context context) {
+        return ensureOpen(context) ? count : 0;
+    }
+
+    /**
+     * Calls that ended in [fromMs, toMs), in the order they were journaled, at most limit of them.
+     */
+    public synchronized List<Map<String, Object>> range(Context context, long fromMs, long toMs, int limit) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        if (!ensureOpen(context) || limit <= 0) return out;
+        for (int i = 0; i < count && out.size() < limit; i++) {
+            int base = HEADER_SIZE + i * RECORD_SIZE;
+            long ended = buffer.getLong(base + OFF_ENDED);
+            if (ended >= fromMs && ended < toMs) out.add(decode(i, base));
+        }
+        return out;
+    }
+
+    private Map<String, Object> decode(int index, int base) {
+        Map<String, Object> r = new HashMap<>();
+        int len = buffer.get(base + OFF_KEY_LEN);
+        char[] key = new char[Math.max(0, Math.min(len, MAX_KEY))];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (char) buffer.get(base + OFF_KEY + i);
+        }
+        int outcome = buffer.get(base + OFF_OUTCOME);
+        r.put("index", index);
+        r.put("numberKey", new String(key));
+        r.put("direction", buffer.get(base + OFF_DIRECTION) == DIRECTION_OUTGOING ? "outgoing" : "incoming");
+        r.put("startedAtMs", buffer.getLong(base + OFF_STARTED));
+        r.put("answeredAtMs", buffer.getLong(base + OFF_ANSWERED));
+        r.put("endedAtMs", buffer.getLong(base + OFF_ENDED));
+        r.put("durationMs", buffer.getInt(base + OFF_DURATION));
+        r.put("disconnectCause", (int) buffer.getShort(base + OFF_CAUSE));
+        r.put("outcome", outcome >= 0 && outcome < OUTCOMES.length ? OUTCOMES[outcome] : OUTCOMES[0]);
+        return r;
+    }
+
+    private static int outcomeIndex(String outcome) {
+        for (int i = 1; i < OUTCOMES.length; i++) {
+            if (OUTCOMES[i].equals(outcome)) return i;
+        }
+        return 0;
+    }
+}
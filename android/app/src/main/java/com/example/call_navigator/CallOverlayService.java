@@ -1,7 +1,9 @@
 package com.example.call_navigator;
 
 import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Color;
 import android.graphics.PixelFormat;
 import android.os.Build;
@@ -28,6 +30,7 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
 import android.graphics.Paint;
+import androidx.core.content.ContextCompat;
 
 /**
  * Enhanced overlay service with Truecaller-style UI and caller information lookup
@@ -58,6 +61,11 @@ public class CallOverlayService extends Service {
     private Button endCallButton;
     private Button muteButton;
     private Button speakerButton;
+    // Mute and speaker labels follow the reported audio state
+    private final AudioRouteController.AudioStateListener audioStateListener = (speakerOn, muted, route) -> {
+        if (muteButton != null) muteButton.setText(muted ? "Unmute" : "Mute");
+        if (speakerButton != null) speakerButton.setText(speakerOn ? "Earpiece" : "Speaker");
+    };
     private Button acceptButton;
     private Button rejectButton;
     private ProgressBar loadingSpinner;
@@ -72,7 +80,15 @@ public class CallOverlayService extends Service {
     private Runnable timeoutRunnable;
     private Runnable autoDismissRunnable;
     private static final long AUTO_DISMISS_TIMEOUT = 30000; // 30 seconds
-    private boolean isCallerInfoFetched = false;
+    private final BroadcastReceiver callerInfoReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String updatedNumber = intent.getStringExtra(CallTrackingInCallService.EXTRA_PHONE_NUMBER);
+            if (isShowing && PhoneNumberUtils.sameNumber(updatedNumber, currentPhoneNumber)) {
+                mainHandler.post(() -> applyCallerIdentity(CallerIdentityResolver.getInstance().peek(updatedNumber)));
+            }
+        }
+    };
 
     @Override
     public void onCreate() {
@@ -80,6 +96,11 @@ public class CallOverlayService extends Service {
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
         mainHandler = new Handler(Looper.getMainLooper());
         createCallOverlay();
+        try {
+            ContextCompat.registerReceiver(this, callerInfoReceiver,
+                    new IntentFilter(CallTrackingInCallService.ACTION_CALLER_INFO_UPDATED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        } catch (Throwable ignored) {}
+        AudioRouteController.getInstance().addListener(audioStateListener);
         Log.d(TAG, "CallOverlayService created");
     }
 
@@ -303,7 +324,7 @@ public class CallOverlayService extends Service {
         muteButton = createCallButton("Mute", Color.parseColor("#2196F3"));
         muteButton.setOnClickListener(v -> {
             try {
-                CallTrackingInCallService.setMutedState(true);
+                AudioRouteController.getInstance().toggleMute();
             } catch (Exception e) {
                 Log.e(TAG, "Mute failed", e);
             }
@@ -315,7 +336,7 @@ public class CallOverlayService extends Service {
         speakerButton = createCallButton("Speaker", Color.parseColor("#FF9800"));
         speakerButton.setOnClickListener(v -> {
             try {
-                CallTrackingInCallService.setSpeaker(true);
+                AudioRouteController.getInstance().toggleSpeaker();
             } catch (Exception e) {
                 Log.e(TAG, "Speaker failed", e);
             }
@@ -423,6 +444,12 @@ public class CallOverlayService extends Service {
             
             windowManager.addView(callOverlay, params);
             isShowing = true;
+            if ("RINGING".equals(callState)) {
+                RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.UI_CREATED);
+                RingLatencyTracker.getInstance().markOnFirstFrame(callOverlay);
+                RingLatencyTracker.afterFirstFrame(callOverlay, () ->
+                        WakeLockManager.getInstance().release(WakeLockManager.Reason.INCOMING_RING));
+            }
             isIncomingCall = isIncoming;
             
             updateCallInfo(phoneNumber, callState, contactName, isIncoming);
@@ -452,39 +479,30 @@ public class CallOverlayService extends Service {
         // Show loading state
         showLoadingState();
         
-        // Note: No need to set up timeout here as CallerInfoApiClient handles its own timeout
-        
-        // Make API call
-        String baseUrl = CallerInfoApiClient.getBaseUrl(this);
-        CallerInfoApiClient.lookupCaller(phoneNumber, baseUrl, new CallerInfoApiClient.CallerInfoCallback() {
-            @Override
-            public void onSuccess(CallerInfoApiClient.CallerInfo callerInfo) {
-                mainHandler.post(() -> {
-                    Log.d(TAG, "Caller info received: " + callerInfo.name + " - " + callerInfo.campus);
-                    updateCallerInfo(callerInfo);
-                    hideLoadingState();
-                    isCallerInfoFetched = true;
-                });
-            }
-            
-            @Override
-            public void onError(String error) {
-                mainHandler.post(() -> {
-                    Log.e(TAG, "Caller info error: " + error);
-                    hideLoadingState();
-                    showErrorState();
-                });
-            }
-            
-            @Override
-            public void onTimeout() {
-                mainHandler.post(() -> {
-                    Log.w(TAG, "Caller info timeout");
-                    hideLoadingState();
-                    showTimeoutState();
-                });
-            }
-        });
+        // Shared per-call resolution; progressive answers arrive through callerInfoReceiver
+        CallerIdentityResolver.CallerIdentity identity = CallerIdentityResolver.getInstance().resolve(this, phoneNumber);
+        if (identity == null) {
+            hideLoadingState();
+            showTimeoutState();
+            return;
+        }
+        applyCallerIdentity(identity);
+    }
+    
+    private void applyCallerIdentity(CallerIdentityResolver.CallerIdentity identity) {
+        if (identity == null) return;
+        if (identity.leadFound || identity.isFinal) {
+            updateCallerInfo(identity.asCallerInfo());
+        }
+        if (identity.hasName()) {
+            contactNameText.setText(identity.name);
+            contactNameText.setVisibility(View.VISIBLE);
+            RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.CALLER_CARD);
+        }
+        if (identity.isFinal) {
+            Log.d(TAG, "Caller info resolved: " + identity.name + " - " + identity.campus + " (" + identity.source + ")");
+            hideLoadingState();
+        }
     }
     
     private void showLoadingState() {
@@ -555,17 +573,6 @@ public class CallOverlayService extends Service {
     
     // Avatar update method removed - no longer using profile circles
     
-    private String getInitials(String name) {
-        if (name == null || name.isEmpty()) return "?";
-        
-        String[] parts = name.trim().split("\\s+");
-        if (parts.length == 1) {
-            return parts[0].substring(0, 1).toUpperCase();
-        } else {
-            return (parts[0].substring(0, 1) + parts[parts.length - 1].substring(0, 1)).toUpperCase();
-        }
-    }
-    
     private void setupTimeout() {
         timeoutRunnable = () -> {
             Log.w(TAG, "Caller info fetch timeout");
@@ -600,10 +607,12 @@ public class CallOverlayService extends Service {
             phoneNumberText.setText(phoneNumber);
         }
         
-        // Only show contact name if it's not from API (to avoid conflicts)
-        if (contactName != null && !contactName.isEmpty() && !isCallerInfoFetched) {
+        // Only show a passed-in name if the shared resolution hasn't produced one
+        CallerIdentityResolver.CallerIdentity known = CallerIdentityResolver.getInstance().peek(currentPhoneNumber);
+        if (contactName != null && !contactName.isEmpty() && (known == null || !known.hasName())) {
             contactNameText.setText(contactName);
             contactNameText.setVisibility(View.VISIBLE);
+            RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.CALLER_CARD);
         }
         
         if (callState != null) {
@@ -677,7 +686,6 @@ public class CallOverlayService extends Service {
                 // Reset state
                 isShowing = false;
                 isIncomingCall = false;
-                isCallerInfoFetched = false;
                 
                 // Hide loading states
                 hideLoadingState();
@@ -694,6 +702,10 @@ public class CallOverlayService extends Service {
     @Override
     public void onDestroy() {
         hideCallOverlay();
+        try {
+            unregisterReceiver(callerInfoReceiver);
+        } catch (Throwable ignored) {}
+        AudioRouteController.getInstance().removeListener(audioStateListener);
         Log.d(TAG, "CallOverlayService destroyed");
         super.onDestroy();
     }
@@ -0,0 +1,219 @@
+package com.example.call_navigator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable set of the calls Telecom currently knows about, one entry per {@link TelecomCall}.
+ * Every change returns a new registry (calls are few, so copying is cheap), which lets it live
+ * inside {@link CallManager.CallSnapshot} and be read without locks. Entries are indexed both
+ * by call and by Telecom state for constant-time queries.
+ */
+public final class CallRegistry {
+    // Telecom states run from STATE_NEW (0) to STATE_SIMULATED_RINGING (13)
+    private static final int STATE_SLOTS = 16;
+    private static final CallEntry[] NO_ENTRIES = new CallEntry[0];
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    public static final CallRegistry EMPTY = new CallRegistry(NO_ENTRIES);
+
+    /**
+     * One Telecom call as seen by the app.
+     */
+    public static final class CallEntry {
+        // Stable per-process id, usable in logs and exported events
+        public final int id;
+        public final TelecomCall call;
+        public final String number;
+        public final int telecomState;
+        public final boolean incoming;
+        public final long addedAt;
+        public final long stateChangedAt;
+        // 0 until the call first becomes ACTIVE
+        public final long activeAt;
+
+        CallEntry(int id, TelecomCall call, String number, int telecomState, boolean incoming,
+                  long addedAt, long stateChangedAt, long activeAt) {
+            this.id = id;
+            this.call = call;
+            this.number = number;
+            this.telecomState = telecomState;
+            this.incoming = incoming;
+            this.addedAt = addedAt;
+            this.stateChangedAt = stateChangedAt;
+            this.activeAt = activeAt;
+        }
+
+        CallEntry withState(int state, long now) {
+            long active = activeAt == 0 && state == TelecomCall.STATE_ACTIVE ? now : activeAt;
+            return new CallEntry(id, call, number, state, incoming, addedAt, now, active);
+        }
+
+        CallEntry withNumber(String newNumber) {
+            return new CallEntry(id, call, newNumber, telecomState, incoming, addedAt, stateChangedAt, activeAt);
+        }
+
+        CallEntry withHistory(boolean wasIncoming, long firstAddedAt, long firstActiveAt) {
+            return new CallEntry(id, call, number, telecomState, wasIncoming, firstAddedAt, stateChangedAt,
+                    firstActiveAt != 0 ? firstActiveAt : activeAt);
+        }
+    }
+
+    // In order of addition
+    private final CallEntry[] entries;
+    private final Map<TelecomCall, CallEntry> byCall;
+    private final CallEntry[][] byState;
+
+    private CallRegistry(CallEntry[] entries) {
+        this.entries = entries;
+        Map<TelecomCall, CallEntry> calls = new HashMap<>(Math.max(2, entries.length));
+        int[] counts = new int[STATE_SLOTS];
+        for (CallEntry e : entries) {
+            calls.put(e.call, e);
+            counts[slot(e.telecomState)]++;
+        }
+        CallEntry[][] states = new CallEntry[STATE_SLOTS][];
+        for (int s = 0; s < STATE_SLOTS; s++) {
+            states[s] = counts[s] == 0 ? NO_ENTRIES : new CallEntry[counts[s]];
+            counts[s] = 0;
+        }
+        for (CallEntry e : entries) {
+            int s = slot(e.telecomState);
+            states[s][counts[s]++] = e;
+        }
+        this.byCall = calls;
+        this.byState = states;
+    }
+
+    private static int slot(int telecomState) {
+        return telecomState >= 0 && telecomState < STATE_SLOTS ? telecomState : TelecomCall.STATE_NEW;
+    }
+
+    // ===== Updates (return a new registry) =====
+
+    CallRegistry withAdded(TelecomCall call, String number, int telecomState, long now) {
+        if (call == null) return this;
+        if (byCall.containsKey(call)) return withState(call, telecomState, now);
+        boolean incoming = telecomState == TelecomCall.STATE_RINGING || telecomState == TelecomCall.STATE_SIMULATED_RINGING;
+        CallEntry entry = new CallEntry(nextId.getAndIncrement(), call, number, telecomState, incoming, now, now,
+                telecomState == TelecomCall.STATE_ACTIVE ? now : 0);
+        CallEntry[] next = new CallEntry[entries.length + 1];
+        System.arraycopy(entries, 0, next, 0, entries.length);
+        next[entries.length] = entry;
+        return new CallRegistry(next);
+    }
+
+    CallRegistry withState(TelecomCall call, int telecomState, long now) {
+        CallEntry current = byCall.get(call);
+        if (current == null || current.telecomState == telecomState) return this;
+        return replace(current, current.withState(telecomState, now));
+    }
+
+    CallRegistry withNumber(TelecomCall call, String number) {
+        CallEntry current = byCall.get(call);
+        if (current == null || number == null || number.equals(current.number)) return this;
+        return replace(current, current.withNumber(number));
+    }
+
+    /** Carry over direction and timestamps recorded by a previous process for the same call */
+    CallRegistry withHistory(TelecomCall call, boolean incoming, long addedAt, long activeAt) {
+        CallEntry current = byCall.get(call);
+        if (current == null) return this;
+        return replace(current, current.withHistory(incoming, addedAt, activeAt));
+    }
+
+    CallRegistry withRemoved(TelecomCall call) {
+        CallEntry current = byCall.get(call);
+        if (current == null) return this;
+        if (entries.length == 1) return EMPTY;
+        CallEntry[] next = new CallEntry[entries.length - 1];
+        int i = 0;
+        for (CallEntry e : entries) {
+            if (e != current) next[i++] = e;
+        }
+        return new CallRegistry(next);
+    }
+
+    private CallRegistry replace(CallEntry current, CallEntry updated) {
+        CallEntry[] next = entries.clone();
+        for (int i = 0; i < next.length; i++) {
+            if (next[i] == current) next[i] = updated;
+        }
+        return new CallRegistry(next);
+    }
+
+    // ===== Queries =====
+
+    public int size() {
+        return entries.length;
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    public CallEntry get(TelecomCall call) {
+        return call != null ? byCall.get(call) : null;
+    }
+
+    public List<CallEntry> all() {
+        List<CallEntry> list = new ArrayList<>(entries.length);
+        Collections.addAll(list, entries);
+        return list;
+    }
+
+    public int countInState(int telecomState) {
+        return byState[slot(telecomState)].length;
+    }
+
+    /** Oldest call in the given Telecom state, or null */
+    public CallEntry firstInState(int telecomState) {
+        CallEntry[] inState = byState[slot(telecomState)];
+        return inState.length > 0 ? inState[0] : null;
+    }
+
+    public List<CallEntry> inState(int telecomState) {
+        CallEntry[] inState = byState[slot(telecomState)];
+        List<CallEntry> list = new ArrayList<>(inState.length);
+        Collections.addAll(list, inState);
+        return list;
+    }
+
+    /** The call the user is talking on or placing: ACTIVE, else DIALING / CONNECTING / PULLING */
+    public CallEntry getForegroundCall() {
+        CallEntry e = firstInState(TelecomCall.STATE_ACTIVE);
+        if (e == null) e = firstInState(TelecomCall.STATE_DIALING);
+        if (e == null) e = firstInState(TelecomCall.STATE_CONNECTING);
+        if (e == null) e = firstInState(TelecomCall.STATE_PULLING_CALL);
+        return e;
+    }
+
+    public CallEntry getRingingCall() {
+        CallEntry e = firstInState(TelecomCall.STATE_RINGING);
+        return e != null ? e : firstInState(TelecomCall.STATE_SIMULATED_RINGING);
+    }
+
+    public List<CallEntry> getHeldCalls() {
+        return inState(TelecomCall.STATE_HOLDING);
+    }
+
+    public boolean hasActiveOrHeldCall() {
+        return countInState(TelecomCall.STATE_ACTIVE) > 0 || countInState(TelecomCall.STATE_HOLDING) > 0;
+    }
+
+    /**
+     * The call controls and number lookups should target: foreground, else ringing, else held,
+     * else the most recently added call (which may be disconnecting but not yet removed).
+     */
+    public CallEntry getPrimaryCall() {
+        CallEntry e = getForegroundCall();
+        if (e == null) e = getRingingCall();
+        if (e == null) e = firstInState(TelecomCall.STATE_HOLDING);
+        if (e == null && entries.length > 0) e = entries[entries.length - 1];
+        return e;
+    }
+}
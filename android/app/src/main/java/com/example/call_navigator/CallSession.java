@@ -0,0 +1,137 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.telecom.Call;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Everything the InCallService tracks about one Telecom call: what was observed (for outcome
+ * classification), when, who the caller resolved to and how the call ended. One session per call, so a waiting call's
+ * events never overwrite the first call's flags. Main thread only.
+ */
+final class CallSession {
+    Call call;
+    String number;
+    final CallOutcomeClassifier classifier = new CallOutcomeClassifier();
+    int lastTelecomState;
+    // elapsedRealtime; 0 until it happens
+    long addedAt;
+    long ringingAt;
+    long activeAt;
+    long disconnectedAt;
+    // Latest answer from CallerIdentityResolver; see resolveIdentity
+    CallerIdentityResolver.CallerIdentity identity;
+    // CALL_* outcome once disconnected
+    String outcome;
+
+    private CallSession() {}
+
+    void onOutgoing() {
+        classifier.onOutgoing();
+    }
+
+    void onRinging() {
+        classifier.onRinging();
+        if (ringingAt == 0) ringingAt = SystemClock.elapsedRealtime();
+    }
+
+    void onActive() {
+        classifier.onActive();
+        if (activeAt == 0) activeAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Classify the call's end once; later calls return the first outcome.
+     */
+    String onDisconnected(int disconnectCause) {
+        if (outcome == null) {
+            disconnectedAt = SystemClock.elapsedRealtime();
+            outcome = classifier.classify(disconnectCause);
+        }
+        return outcome;
+    }
+
+    /**
+     * Who is calling, as far as is known now. The first call starts the resolution; later ones
+     * take the resolver's newer answer until it is final, after which the stored one is returned.
+     */
+    CallerIdentityResolver.CallerIdentity resolveIdentity(Context context) {
+        if (identity == null || !identity.isFinal) {
+            CallerIdentityResolver.CallerIdentity latest = CallerIdentityResolver.getInstance().resolve(context, number);
+            if (latest != null) identity = latest;
+        }
+        return identity;
+    }
+
+    /** Elapsed-realtime timestamp as wall-clock ms, 0 if it never happened */
+    static long toWallMs(long elapsedRealtime) {
+        if (elapsedRealtime == 0) return 0;
+        return System.currentTimeMillis() - (SystemClock.elapsedRealtime() - elapsedRealtime);
+    }
+
+    private void reset() {
+        call = null;
+        number = null;
+        classifier.reset();
+        lastTelecomState = Call.STATE_NEW;
+        addedAt = ringingAt = activeAt = disconnectedAt = 0;
+        identity = null;
+        outcome = null;
+    }
+
+    @Override
+    public String toString() {
+        long rangUntil = activeAt != 0 ? activeAt : disconnectedAt;
+        return "CallSession{" + number + ", state=" + lastTelecomState + ", flags " + classifier
+                + (ringingAt != 0 && rangUntil != 0 ? ", rang " + (rangUntil - ringingAt) + "ms" : "")
+                + (identity != null && identity.hasName() ? ", caller=" + identity.name : "")
+                + (outcome != null ? ", outcome=" + outcome : "") + "}";
+    }
+
+    /**
+     * Live sessions by call, recycling released ones; a handful covers call waiting and
+     * conferences without allocating per call.
+     */
+    static final class Pool {
+        private static final int MAX_IDLE = 4;
+
+        private final CallSession[] idle = new CallSession[MAX_IDLE];
+        private int idleCount;
+        private final Map<Call, CallSession> live = new IdentityHashMap<>();
+
+        /** Session for a call, starting one if the call has none yet */
+        CallSession acquire(Call call, String number) {
+            CallSession session = live.get(call);
+            if (session != null) return session;
+            session = idleCount > 0 ? idle[--idleCount] : new CallSession();
+            idle[idleCount] = null;
+            session.call = call;
+            session.number = number;
+            session.lastTelecomState = call != null ? call.getState() : Call.STATE_NEW;
+            session.addedAt = SystemClock.elapsedRealtime();
+            live.put(call, session);
+            return session;
+        }
+
+        CallSession get(Call call) {
+            return live.get(call);
+        }
+
+        /** Live session for a number, or null */
+        CallSession find(String number) {
+            for (CallSession session : live.values()) {
+                if (PhoneNumberUtils.sameNumber(session.number, number)) return session;
+            }
+            return null;
+        }
+
+        void release(Call call) {
+            CallSession session = live.remove(call);
+            if (session == null) return;
+            session.reset();
+            if (idleCount < MAX_IDLE) idle[idleCount++] = session;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.call_navigator;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers {@link CallManager} changes to listeners on the executor each listener chose.
+ * Each listener has at most one delivery queued: if newer snapshots arrive before it runs,
+ * they replace the queued one, so a burst of transitions costs one callback carrying the latest
+ * state instead of one per intermediate state. The {@link CallDelta} passed to the listener is
+ * computed against the last snapshot that listener saw.
+ */
+final class CallStateDispatcher {
+    private static final String TAG = "CallStateDispatcher";
+
+    // Runs the listener on the publishing thread, like the original synchronous notify
+    static final Executor DIRECT = Runnable::run;
+
+    final class Subscriber implements Runnable, CallManager.Subscription {
+        // What the caller registered, matched by removeListener
+        final Object key;
+        final CallManager.CallDeltaListener listener;
+        // Legacy listeners were called on every transition, even ones that changed nothing they see
+        final boolean deliverEmpty;
+        final Executor executor;
+        private final AtomicReference<CallManager.CallSnapshot> pending = new AtomicReference<>();
+        private volatile boolean active = true;
+        // Activity this subscription belongs to, as bound or declared at registration, for the leak check
+        private volatile WeakReference<Activity> owner;
+        // Set while bound, so a manual cancel can drop the lifecycle callback too
+        private Application boundApp;
+        private Application.ActivityLifecycleCallbacks boundCallbacks;
+        // Base of the next delta; also guards against a late run delivering an older snapshot
+        private volatile CallManager.CallSnapshot lastDelivered;
+
+        Subscriber(Object key, CallManager.CallDeltaListener listener, boolean deliverEmpty,
+                   Executor executor, CallManager.CallSnapshot initial) {
+            this.key = key;
+            this.listener = listener;
+            this.deliverEmpty = deliverEmpty;
+            this.executor = executor;
+            this.lastDelivered = initial;
+        }
+
+        void offer(CallManager.CallSnapshot snapshot) {
+            if (!active) return;
+            while (true) {
+                CallManager.CallSnapshot queued = pending.get();
+                if (queued != null && queued.version >= snapshot.version) {
+                    // Raced with a newer publish that is already queued
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (pending.compareAndSet(queued, snapshot)) {
+                    if (queued != null) {
+                        // A delivery is already scheduled and will pick up this snapshot instead
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    break;
+                }
+            }
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                pending.set(null);
+                log.e(TAG, "Failed to schedule listener delivery", t);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!active) return;
+            active = false;
+            pending.set(null);
+            subscribers.remove(this);
+            unbind();
+        }
+
+        private synchronized void unbind() {
+            if (boundCallbacks == null) return;
+            boundApp.unregisterActivityLifecycleCallbacks(boundCallbacks);
+            boundApp = null;
+            boundCallbacks = null;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public CallManager.Subscription bindTo(Activity activity) {
+            if (activity == null || !active) return this;
+            if (activity.isDestroyed()) {
+                cancel();
+                return this;
+            }
+            owner = new WeakReference<>(activity);
+            Application app = activity.getApplication();
+            Application.ActivityLifecycleCallbacks callbacks = new Application.ActivityLifecycleCallbacks() {
+                @Override
+                public void onActivityDestroyed(Activity a) {
+                    if (a == activity) cancel();
+                }
+
+                @Override public void onActivityCreated(Activity a, Bundle b) {}
+                @Override public void onActivityStarted(Activity a) {}
+                @Override public void onActivityResumed(Activity a) {}
+                @Override public void onActivityPaused(Activity a) {}
+                @Override public void onActivityStopped(Activity a) {}
+                @Override public void onActivitySaveInstanceState(Activity a, Bundle b) {}
+            };
+            synchronized (this) {
+                if (!active) return this;
+                unbind();
+                boundApp = app;
+                boundCallbacks = callbacks;
+                app.registerActivityLifecycleCallbacks(callbacks);
+            }
+            return this;
+        }
+
+        /**
+         * Record the activity this registration belongs to without cancelling it on destroy, so
+         * the leak check reports it if the activity never removes it.
+         */
+        void setOwner(Activity activity) {
+            if (activity != null) owner = new WeakReference<>(activity);
+        }
+
+        boolean isOwnedBy(Activity activity) {
+            WeakReference<Activity> ref = owner;
+            return ref != null && ref.get() == activity;
+        }
+
+        @Override
+        public void run() {
+            CallManager.CallSnapshot snapshot = pending.getAndSet(null);
+            CallManager.CallSnapshot previous = lastDelivered;
+            if (!active || snapshot == null || snapshot.version <= previous.version) return;
+            lastDelivered = snapshot;
+            CallDelta delta = CallDelta.between(previous, snapshot);
+            if (delta.isEmpty() && !deliverEmpty) {
+                skippedEmpty.incrementAndGet();
+                return;
+            }
+            long latencyNanos = clock.elapsedRealtimeNanos() - snapshot.publishedAtNanos;
+            delivered.incrementAndGet();
+            totalLatencyNanos.addAndGet(latencyNanos);
+            long max;
+            while (latencyNanos > (max = maxLatencyNanos.get())) {
+                if (maxLatencyNanos.compareAndSet(max, latencyNanos)) break;
+            }
+            try {
+                listener.onCallDelta(delta);
+            } catch (Exception e) {
+                log.e(TAG, "Error notifying listener", e);
+            }
+        }
+    }
+
+    private final CallManager.Clock clock;
+    private final CallManager.Logger log;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Metrics
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong skippedEmpty = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    CallStateDispatcher(CallManager.Clock clock, CallManager.Logger log) {
+        this.clock = clock;
+        this.log = log;
+    }
+
+    /**
+     * Register a delta listener; deltas that change nothing are not delivered.
+     */
+    Subscriber subscribe(CallManager.CallDeltaListener listener, Executor executor, CallManager.CallSnapshot current) {
+        return subscribe(listener, listener, false, executor, current);
+    }
+
+    /**
+     * Register a full-state listener through an adapter, called on every transition as before.
+     */
+    Subscriber subscribe(CallManager.CallStateListener listener, Executor executor, CallManager.CallSnapshot current) {
+        return subscribe(listener, delta -> listener.onCallStateChanged(delta.current.state,
+                delta.current.currentCallNumber, delta.current.waitingCallNumber), true, executor, current);
+    }
+
+    private synchronized Subscriber subscribe(Object key, CallManager.CallDeltaListener listener, boolean deliverEmpty,
+                                              Executor executor, CallManager.CallSnapshot current) {
+        for (Subscriber s : subscribers) {
+            if (s.key == key) return s;
+        }
+        Subscriber s = new Subscriber(key, listener, deliverEmpty, executor, current);
+        // An activity registering itself owns the registration
+        if (key instanceof Activity) s.owner = new WeakReference<>((Activity) key);
+        subscribers.add(s);
+        return s;
+    }
+
+    void unsubscribe(Object key) {
+        for (Subscriber s : subscribers) {
+            if (s.key == key) s.cancel();
+        }
+    }
+
+    void dispatch(CallManager.CallSnapshot snapshot) {
+        for (Subscriber s : subscribers) {
+            s.offer(snapshot);
+        }
+    }
+
+    int size() {
+        return subscribers.size();
+    }
+
+    int countOwnedBy(Activity activity) {
+        int count = 0;
+        for (Subscriber s : subscribers) {
+            if (s.isOwnedBy(activity)) count++;
+        }
+        return count;
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long count = delivered.get();
+        stats.put("listeners", subscribers.size());
+        stats.put("delivered", count);
+        stats.put("droppedIntermediateStates", dropped.get());
+        stats.put("skippedEmptyDeltas", skippedEmpty.get());
+        stats.put("avgLatencyMicros", count > 0 ? totalLatencyNanos.get() / count / 1000 : 0);
+        stats.put("maxLatencyMicros", maxLatencyNanos.get() / 1000);
+        return stats;
+    }
+}
@@ -1,22 +1,12 @@
 package com.example.call_navigator;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
-import android.os.PowerManager;
 import android.telecom.Call;
 import android.telecom.InCallService;
 import android.telecom.CallAudioState;
 import android.util.Log;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
 import com.example.call_navigator.PhoneNumberUtils;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * Tracks call state using Telecom API for accurate ACTIVE (answered) state.
@@ -24,57 +14,57 @@ import java.util.List;
  */
 public class CallTrackingInCallService extends InCallService {
     private static final String TAG = "CallTrackingInCallService";
-    private static final String CHANNEL_ID = "call_tracking_channel";
-    private boolean hasEverBeenActive = false;
-    private int lastTelecomState = Call.STATE_DISCONNECTED;
-    private boolean wasOutgoing = false;
-    private boolean sawRinging = false;
-    private static Call currentCall;
+    // Per-call flags, timestamps and outcome, one per Telecom call
+    private final CallSession.Pool sessions = new CallSession.Pool();
     private static CallTrackingInCallService instance;
     public static final String ACTION_CALL_DISCONNECTED = "com.example.call_navigator.ACTION_CALL_DISCONNECTED";
     public static final String ACTION_TOGGLE_SPEAKER = "com.example.call_navigator.ACTION_TOGGLE_SPEAKER";
     public static final String ACTION_END_CALL = "com.example.call_navigator.ACTION_END_CALL";
-    private static final int NOTIF_ACTIVE_CALL_ID = 4001;
-    private static boolean currentSpeakerOn = false;
+    public static final String ACTION_CALLER_INFO_UPDATED = "com.example.call_navigator.ACTION_CALLER_INFO_UPDATED";
+    public static final String EXTRA_PHONE_NUMBER = "phoneNumber";
+    public static final String EXTRA_CONTACT_NAME = "contactName";
+    // Keeps the speaker label on the ongoing-call notification in step with the real route
+    private final AudioRouteController.AudioStateListener audioStateListener =
+            (speakerOn, muted, route) -> refreshActiveCallNotification();
 
     @Override
     public void onCallAdded(Call call) {
         super.onCallAdded(call);
         logDebug("onCallAdded: " + call);
         // Use CallManager to handle call state properly
-        String number = getCallNumber(call);
+        TelecomCall telecomCall = AndroidTelecomCall.of(call);
+        String number = getCallNumber(telecomCall);
         logDebug("New call added - Number: " + number + ", State: " + call.getState());
+        CallManager.getInstance().onTelecomCallAdded(telecomCall, number, call.getState());
+        CallSession session = sessions.acquire(call, number);
         // Register callback for this call
         call.registerCallback(callCallback);
         // Let CallManager decide how to handle this call
         if (call.getState() == Call.STATE_RINGING) {
             // Incoming call - if an active call exists, treat this as call waiting and
-            // do NOT overwrite currentCall pointer (keep it on the controllable active call)
+            // keep controls on the active call (the registry prefers it over a ringing call)
             CallManager.CallState managerState = CallManager.getInstance().getCurrentState();
             boolean activeExists = hasActiveCall();
             if (managerState == CallManager.CallState.ACTIVE ||
                 managerState == CallManager.CallState.CALL_WAITING ||
                 managerState == CallManager.CallState.HOLD ||
                 activeExists) {
-                // Call waiting scenario - preserve currentCall; just notify CallManager
-                CallManager.getInstance().onIncomingCall(call, number);
+                // Call waiting scenario - the active call stays the primary call; just notify CallManager
+                CallManager.getInstance().onIncomingCall(telecomCall, number);
             } else {
-                // Regular incoming - make it the current controllable call
-                currentCall = call;
-                CallManager.getInstance().onIncomingCall(call, number);
+                // Regular incoming - the registry makes it the primary call while it rings
+                RingLatencyTracker.getInstance().start(RingLatencyTracker.Hop.CALL_ADDED);
+                CallManager.getInstance().onIncomingCall(telecomCall, number);
             }
         } else if (call.getState() == Call.STATE_DIALING || call.getState() == Call.STATE_CONNECTING) {
             // Outgoing call
-            currentCall = call;
-            hasEverBeenActive = false;
-            wasOutgoing = true;
-            sawRinging = false;
-            logDebug("Flags reset for outgoing call: wasOutgoing=true, sawRinging=false");
+            session.onOutgoing();
+            PowerDialer.getInstance().onOutgoingCallAdded(number);
+            logDebug("Outgoing call session: " + session);
             notifyFlutter("CALL_DIALING", number);
         } else if (call.getState() == Call.STATE_ACTIVE) {
             // Active call
-            currentCall = call;
-            hasEverBeenActive = true;
+            session.onActive();
             CallManager.getInstance().onCallAnswered();
             notifyFlutter("CALL_ACTIVE", number);
         }
@@ -85,194 +75,168 @@ public class CallTrackingInCallService extends InCallService {
         super.onCallRemoved(call);
         logDebug("onCallRemoved: " + call);
         try { call.unregisterCallback(callCallback); } catch (Throwable ignored) {}
+        // Release the resolution under the number the call was tracked by; the receiver fallback
+        // in getCallNumber may have moved on to another call by now
+        CallSession session = sessions.get(call);
+        if (session != null) {
+            try { CallerIdentityResolver.getInstance().release(session.number); } catch (Throwable ignored) {}
+        }
+        sessions.release(call);
+        TelecomCall removed = AndroidTelecomCall.of(call);
+        CallManager.getInstance().onTelecomCallRemoved(removed);
         
         // Check if this is the waiting call being removed (not the active call)
-        CallManager manager = CallManager.getInstance();
-        Call waitingCall = manager.getWaitingCall();
+        CallManager.CallSnapshot snapshot = CallManager.getInstance().getSnapshot();
         
-        if (waitingCall == call) {
+        if (removed.equals(snapshot.waitingCall)) {
             // Waiting call was removed - don't call onCallEnded() or reset flags
             // The active call is still ongoing
             logDebug("Waiting call removed, preserving active call context");
             return;
         }
+        if (snapshot.currentCall != null && !snapshot.currentCall.equals(removed) && !snapshot.calls.isEmpty()) {
+            // A call the manager no longer tracks (dropped waiting call, held call after a swap)
+            logDebug("Non-current call removed, preserving current call context");
+            return;
+        }
         
         // This is the active call being removed
-        hasEverBeenActive = false;
-        if (currentCall == call) { 
-            currentCall = null; 
-            logDebug("Cleared currentCall reference");
-        }
         // Only notify CallManager if active call is removed
         CallManager.getInstance().onCallEnded();
     }
 
     private final Call.Callback callCallback = new Call.Callback() {
+        @Override
+        public void onDetailsChanged(Call call, Call.Details details) {
+            super.onDetailsChanged(call, details);
+            // Picks up a handle that wasn't known yet when the call was added. Only the call's own
+            // handle counts here; the receiver fallback may belong to another call
+            TelecomCall telecomCall = AndroidTelecomCall.of(call);
+            String number = telecomCall.getNumber();
+            if (number != null && !number.isEmpty()) {
+                CallManager.getInstance().onTelecomNumberChanged(telecomCall, number);
+            }
+        }
+
         @Override
         public void onStateChanged(Call call, int state) {
             super.onStateChanged(call, state);
+            CallEventPipeline pipeline = CallEventPipeline.getInstance();
+            // Classify: update state holders and decide what this event means
+            long t = pipeline.begin();
+            TelecomCall telecomCall = AndroidTelecomCall.of(call);
+            CallManager.getInstance().onTelecomStateChanged(telecomCall, state);
             logDebug("Telecom onStateChanged: state=" + state);
             String number = getCurrentCallNumber();
             logDebug("Current call number: " + number);
-            lastTelecomState = state;
+            CallSession session = sessions.acquire(call, getCallNumber(telecomCall));
+            session.lastTelecomState = state;
             switch (state) {
                 case Call.STATE_DIALING:
                 case Call.STATE_CONNECTING:
-                    notifyFlutter("CALL_DIALING", number);
-                    handleCallStateUI("DIALING", number);
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
+                    dispatchUi("DIALING", number);
+                    postFlutter("CALL_DIALING", number);
                     break;
-                case Call.STATE_RINGING:
-                    notifyFlutter("CALL_RINGING", number);
-                    sawRinging = true;
-                    logDebug("CALL_RINGING observed: sawRinging=true");
+                case Call.STATE_RINGING: {
+                    session.onRinging();
+                    logDebug("CALL_RINGING observed: " + session);
                     // Check if we should show incoming call UI or handle as call waiting
                     CallManager.CallState managerState = CallManager.getInstance().getCurrentState();
                     // Also check if there's an active call using robust detection
                     boolean hasActive = hasActiveCall();
-                    
-                    if (managerState == CallManager.CallState.CALL_WAITING || 
+                    boolean waiting = managerState == CallManager.CallState.CALL_WAITING ||
                         managerState == CallManager.CallState.ACTIVE || 
                         managerState == CallManager.CallState.HOLD ||
-                        hasActive) {
+                        hasActive;
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
+                    postFlutter("CALL_RINGING", number);
+                    
+                    if (waiting) {
                         // Call waiting or active call exists - don't launch new activity, let ActiveCallActivity handle it
                         logDebug("Active call detected (state: " + managerState + ", hasActive: " + hasActive + "), not launching IncomingCallActivity");
-                        notifyFlutter("CALL_WAITING_INCOMING", number);
+                        postFlutter("CALL_WAITING_INCOMING", number);
                     } else {
                         // Regular incoming call - show incoming call UI
+                        RingLatencyTracker.getInstance().onRinging();
                         try { 
-                            ensureScreenOn();
-                            // Immediately show incoming UI with contact info
+                            // Enrich: only use a name that is already in memory so a slow contacts
+                            // provider can't delay the screen; start the photo decode so it overlaps
+                            // with activity launch
+                            t = pipeline.begin();
                             Context context = getApplicationContext();
-                            String contactName = null;
-                            if (!number.equals("Unknown")) {
-                                contactName = ContactUtils.getContactName(context, number);
-                            }
+                            String contactName = contactNameFor(number);
+                            ContactPhotoCache.getInstance().prefetch(context, number, ContactPhotoCache.avatarSizePx(context));
+                            pipeline.end(CallEventPipeline.Stage.ENRICH, t);
+
+                            t = pipeline.begin();
+                            WakeLockManager.getInstance().acquire(context, WakeLockManager.Reason.INCOMING_RING);
                             Intent incomingIntent = new Intent(context, IncomingCallActivity.class);
                             incomingIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
                             incomingIntent.putExtra(IncomingCallActivity.EXTRA_CALL_NUMBER, number);
                             if (contactName != null) {
                                 incomingIntent.putExtra(IncomingCallActivity.EXTRA_CONTACT_NAME, contactName);
                             }
+                            RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.UI_LAUNCH);
                             startActivity(incomingIntent);
+                            pipeline.end(CallEventPipeline.Stage.DISPATCH_UI, t);
                             logDebug("Started IncomingCallActivity for number: " + number + ", contact: " + contactName);
                         } catch (Throwable e) {
                             logDebug("Failed to start incoming activity: " + e.getMessage());
                         }
                     }
-                    handleCallStateUI("RINGING", number);
+                    dispatchUi("RINGING", number);
                     break;
+                }
                 case Call.STATE_ACTIVE:
-                    notifyFlutter("CALL_CONNECTED", number);
-                    hasEverBeenActive = true;
+                    session.onActive();
+                    // Answered before its screen was drawn (e.g. from a headset)
+                    RingLatencyTracker.getInstance().abandon();
+                    WakeLockManager.getInstance().release(WakeLockManager.Reason.INCOMING_RING);
                     CallManager.getInstance().onCallAnswered();
-                    handleCallStateUI("CONNECTED", number);
-                    try { showActiveCallNotification(number); } catch (Throwable ignored) {}
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
+                    dispatchUi("CONNECTED", number);
+                    postFlutter("CALL_CONNECTED", number);
+                    pipeline.postBackground(CallEventPipeline.Stage.NOTIFY_SYSTEM, () -> showActiveCallNotification(number));
+                    break;
+                case Call.STATE_HOLDING:
+                    DtmfSequencer.getInstance().onCallLeftActive(telecomCall);
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
                     break;
-                case Call.STATE_DISCONNECTED:
+                case Call.STATE_DISCONNECTED: {
+                    DtmfSequencer.getInstance().onCallLeftActive(telecomCall);
                     // Check if this is the waiting call being disconnected (not the active call)
-                    CallManager manager = CallManager.getInstance();
-                    Call waitingCall = manager.getWaitingCall();
-                    
-                    if (waitingCall == call) {
+                    if (telecomCall.equals(CallManager.getInstance().getWaitingCall())) {
                         // Waiting call disconnected - don't send disconnect broadcast or close activity
                         // The active call is still ongoing
                         logDebug("Waiting call disconnected, preserving active call. Not sending disconnect broadcast.");
-                        // Promote state back to ACTIVE for listeners/UI
-                        try { CallManager.getInstance().onCallAnswered(); } catch (Throwable ignored) {}
-                        // Just notify Flutter about the declined call, but don't end call tracking
-                        notifyFlutter("CALL_DECLINED_BY_CALLEE", number);
+                        // Drop the waiting call; the current call carries on
+                        try { CallManager.getInstance().onWaitingCallEnded(telecomCall); } catch (Throwable ignored) {}
+                        // Just notify Flutter how the waiting call ended, classified on its own session,
+                        // but don't end call tracking
+                        int waitingCause = telecomCall.getDisconnectCause();
+                        String waitingOutcome = session.onDisconnected(waitingCause);
+                        pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
+                        persistOutcome(session, waitingCause);
+                        logDebug("Waiting call outcome: " + session);
+                        postFlutter(waitingOutcome, session.number);
                         return; // Exit early, don't process as active call disconnect
                     }
                     
                     // This is the active call being disconnected
                     // Determine precise disconnect cause to distinguish caller-cancel vs callee-decline vs busy/timeout
-                    int causeCode = android.telecom.DisconnectCause.UNKNOWN;
-                    try {
-                        if (call != null && call.getDetails() != null && call.getDetails().getDisconnectCause() != null) {
-                            causeCode = call.getDetails().getDisconnectCause().getCode();
-                        }
-                    } catch (Throwable ignored) {}
-                    String outcome;
-                    switch (causeCode) {
-                        case android.telecom.DisconnectCause.LOCAL:
-                            // We (this device) hung up
-                            if (hasEverBeenActive) {
-                                // Call was connected, we ended it
-                                outcome = wasOutgoing ? "CALL_ENDED_BY_CALLER" : "CALL_ENDED_BY_CALLEE";
-                                logDebug("LOCAL + active => " + outcome + " (wasOutgoing=" + wasOutgoing + ")");
-                            } else {
-                                // Call never connected, we cancelled/declined
-                                if (wasOutgoing) {
-                                    // Outgoing call - we cancelled
-                                    if (sawRinging) {
-                                        outcome = "CALL_NO_ANSWER"; // User gave up while ringing
-                                        logDebug("LOCAL + outgoing + sawRinging + never active => CALL_NO_ANSWER");
-                                    } else {
-                                        outcome = "CALL_CANCELLED_BY_CALLER"; // Cancelled before ringing
-                                        logDebug("LOCAL + outgoing + no ringing + never active => CALL_CANCELLED_BY_CALLER");
-                                    }
-                                } else {
-                                    // Incoming call - we rejected it
-                                    outcome = "CALL_DECLINED_BY_CALLEE";
-                                    logDebug("LOCAL + incoming + never active => CALL_DECLINED_BY_CALLEE");
-                                }
-                            }
-                            break;
-                        case android.telecom.DisconnectCause.REMOTE:
-                        case android.telecom.DisconnectCause.REJECTED:
-                            // Remote party hung up or declined
-                            if (hasEverBeenActive) {
-                                // Call was connected, remote ended it
-                                outcome = wasOutgoing ? "CALL_ENDED_BY_CALLEE" : "CALL_ENDED_BY_CALLER";
-                                logDebug("REMOTE/REJECTED + active => " + outcome + " (wasOutgoing=" + wasOutgoing + ")");
-                            } else {
-                                // Call never connected, remote declined/cancelled
-                                if (wasOutgoing) {
-                                    // Outgoing call - they declined
-                                    outcome = "CALL_DECLINED_BY_CALLEE";
-                                    logDebug("REMOTE/REJECTED + outgoing + never active => CALL_DECLINED_BY_CALLEE");
-                                } else {
-                                    // Incoming call - they cancelled before we answered
-                                    outcome = "CALL_NO_ANSWER";
-                                    logDebug("REMOTE/REJECTED + incoming + never active => CALL_NO_ANSWER");
-                                }
-                            }
-                            break;
-                        case android.telecom.DisconnectCause.BUSY:
-                            outcome = "CALL_BUSY";
-                            logDebug("BUSY => CALL_BUSY");
-                            break;
-                        case android.telecom.DisconnectCause.MISSED:
-                            outcome = "CALL_NO_ANSWER";
-                            logDebug("MISSED => CALL_NO_ANSWER");
-                            break;
-                        default:
-                            // Fallback: use hasEverBeenActive to determine if call was connected
-                            if (hasEverBeenActive) {
-                                // Call was connected, determine who ended it based on wasOutgoing
-                                outcome = wasOutgoing ? "CALL_ENDED_BY_CALLER" : "CALL_ENDED_BY_CALLEE";
-                                logDebug("DEFAULT + active => " + outcome + " (wasOutgoing=" + wasOutgoing + ")");
-                            } else {
-                                // Call never connected, determine who cancelled
-                                outcome = wasOutgoing ? "CALL_CANCELLED_BY_CALLER" : "CALL_DECLINED_BY_CALLER";
-                                logDebug("DEFAULT + never active => " + outcome + " (wasOutgoing=" + wasOutgoing + ")");
-                            }
-                            break;
-                    }
+                    int causeCode = telecomCall.getDisconnectCause();
+                    String outcome = session.onDisconnected(causeCode);
                     logDebug("Disconnect decision: causeCode=" + causeCode +
                              ", outcome=" + outcome +
-                             ", flags { hasEverBeenActive=" + hasEverBeenActive +
-                             ", wasOutgoing=" + wasOutgoing +
-                             ", sawRinging=" + sawRinging +
-                             " }");
-                    notifyFlutter(outcome, number);
+                             ", session " + session);
                     CallManager.getInstance().onCallEnded();
-                    sendDisconnectBroadcast(number);
-                    hasEverBeenActive = false;
-                    wasOutgoing = false;
-                    sawRinging = false;
-                    try { hideActiveCallNotification(); } catch (Throwable ignored) {}
+                    RingLatencyTracker.getInstance().abandon();
+                    WakeLockManager.getInstance().release(WakeLockManager.Reason.INCOMING_RING);
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
+
                     // Force close ActiveCallActivity if it's running
+                    t = pipeline.begin();
                     try {
                         Intent closeActivity = new Intent(getApplicationContext(), ActiveCallActivity.class);
                         closeActivity.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -282,28 +246,54 @@ public class CallTrackingInCallService extends InCallService {
                     } catch (Throwable e) {
                         Log.e(TAG, "Failed to close ActiveCallActivity", e);
                     }
+                    pipeline.end(CallEventPipeline.Stage.DISPATCH_UI, t);
+                    postFlutter(outcome, number);
+                    persistOutcome(session, causeCode);
+                    // A campaign moves on to its next lead after wrap-up
+                    PowerDialer.getInstance().onCallEnded(session.number, outcome, session.classifier.hasEverBeenActive());
+                    pipeline.postBackground(CallEventPipeline.Stage.NOTIFY_SYSTEM, () -> {
+                        sendDisconnectBroadcast(number);
+                        try { hideCallNotifications(); } catch (Throwable ignored) {}
+                    });
                     // Don't navigate here, let Flutter handle it
                     break;
+                }
                 default:
+                    pipeline.end(CallEventPipeline.Stage.CLASSIFY, t);
                     break;
             }
         }
     };
 
+    // Journal the finished call off the main thread; values are copied because sessions are recycled
+    private void persistOutcome(CallSession session, int cause) {
+        final Context context = getApplicationContext();
+        final String number = session.number;
+        final int direction = session.classifier.wasOutgoing()
+                ? CallOutcomeJournal.DIRECTION_OUTGOING : CallOutcomeJournal.DIRECTION_INCOMING;
+        final long startedAt = CallSession.toWallMs(session.addedAt);
+        final long answeredAt = CallSession.toWallMs(session.activeAt);
+        final long endedAt = CallSession.toWallMs(session.disconnectedAt);
+        final String outcome = session.outcome;
+        CallEventPipeline.getInstance().postBackground(CallEventPipeline.Stage.PERSIST, () ->
+                CallOutcomeJournal.getInstance().append(context, number, direction, startedAt, answeredAt, endedAt, cause, outcome));
+    }
+
+    private void dispatchUi(String callState, String number) {
+        CallEventPipeline pipeline = CallEventPipeline.getInstance();
+        long t = pipeline.begin();
+        handleCallStateUI(callState, number);
+        pipeline.end(CallEventPipeline.Stage.DISPATCH_UI, t);
+    }
+
+    // Runs after the current event's UI work, so screens don't wait on the platform channel
+    private void postFlutter(String state, String number) {
+        CallEventPipeline.getInstance().postMain(CallEventPipeline.Stage.NOTIFY_FLUTTER, () -> notifyFlutter(state, number));
+    }
+
     // Helper method to get current call number with fallbacks
     public static String getCurrentCallNumber() {
-        String telecomNumber = null;
-        try {
-            if (currentCall != null && currentCall.getDetails() != null) {
-                android.net.Uri handle = currentCall.getDetails().getHandle();
-                if (handle != null) {
-                    telecomNumber = handle.getSchemeSpecificPart();
-                }
-            }
-        } catch (Throwable ignored) {}
-        // Use PhoneNumberUtils to get the best available number
-        String receiverNumber = PhoneStateReceiver.getLastKnownNumber();
-        return PhoneNumberUtils.getBestAvailableNumber(telecomNumber, null, receiverNumber);
+        return getCallNumber(primaryCall());
     }
 
     private void sendDisconnectBroadcast(String number) {
@@ -354,14 +344,7 @@ public class CallTrackingInCallService extends InCallService {
                 case "RINGING":
                     intent = new Intent(context, IncomingCallActivity.class);
                     intent.putExtra(IncomingCallActivity.EXTRA_CALL_NUMBER, phoneNumber);
-                    if (!phoneNumber.equals("Unknown")) {
-                        try {
-                            String contactName = ContactUtils.getContactName(context, phoneNumber);
-                            if (contactName != null) {
-                                intent.putExtra(IncomingCallActivity.EXTRA_CONTACT_NAME, contactName);
-                            }
-                        } catch (Throwable ignored) {}
-                    }
+                    attachContactName(intent, IncomingCallActivity.EXTRA_CONTACT_NAME, phoneNumber);
                     break;
                 case "DIALING":
                 case "CONNECTING":
@@ -374,20 +357,14 @@ public class CallTrackingInCallService extends InCallService {
                     intent = new Intent(context, ActiveCallActivity.class);
                     intent.putExtra(ActiveCallActivity.EXTRA_CALL_NUMBER, phoneNumber);
                     intent.putExtra(ActiveCallActivity.EXTRA_CALL_DURATION, "00:00");
-                    if (!phoneNumber.equals("Unknown")) {
-                        try {
-                            String contactName = ContactUtils.getContactName(context, phoneNumber);
-                            if (contactName != null) {
-                                intent.putExtra(ActiveCallActivity.EXTRA_CONTACT_NAME, contactName);
-                            }
-                        } catch (Throwable ignored) {}
-                    }
+                    attachContactName(intent, ActiveCallActivity.EXTRA_CONTACT_NAME, phoneNumber);
                     break;
             }
             if (intent != null) {
                 intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
                                Intent.FLAG_ACTIVITY_CLEAR_TOP | 
                                Intent.FLAG_ACTIVITY_SINGLE_TOP);
+                if ("RINGING".equals(callState)) RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.UI_LAUNCH);
                 startActivity(intent);
                 logDebug("Launched native UI for state: " + callState + " with number: " + phoneNumber);
             }
@@ -410,14 +387,8 @@ public class CallTrackingInCallService extends InCallService {
             intent.setAction(CallOverlayService.ACTION_SHOW_CALL);
             intent.putExtra(CallOverlayService.EXTRA_PHONE_NUMBER, phoneNumber);
             intent.putExtra(CallOverlayService.EXTRA_CALL_STATE, callState);
-            if (!phoneNumber.equals("Unknown")) {
-                try {
-                    String contactName = ContactUtils.getContactName(context, phoneNumber);
-                    if (contactName != null) {
-                        intent.putExtra(CallOverlayService.EXTRA_CONTACT_NAME, contactName);
-                    }
-                } catch (Throwable ignored) {}
-            }
+            attachContactName(intent, CallOverlayService.EXTRA_CONTACT_NAME, phoneNumber);
+            if ("RINGING".equals(callState)) RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.UI_LAUNCH);
             startService(intent);
             logDebug("Showed call overlay for state: " + callState + " with number: " + phoneNumber);
         } catch (Exception e) {
@@ -425,6 +396,28 @@ public class CallTrackingInCallService extends InCallService {
         }
     }
 
+    /**
+     * Put the best name known so far on a call UI intent; better answers reach the screen
+     * later through ACTION_CALLER_INFO_UPDATED.
+     */
+    private void attachContactName(Intent intent, String extraKey, String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.equals("Unknown")) return;
+        String contactName = contactNameFor(phoneNumber);
+        if (contactName != null) {
+            intent.putExtra(extraKey, contactName);
+        }
+    }
+
+    // From the call's session, which keeps the resolved identity across events
+    private String contactNameFor(String phoneNumber) {
+        CallSession session = sessions.find(phoneNumber);
+        if (session == null) {
+            return CallerIdentityResolver.getInstance().resolveName(getApplicationContext(), phoneNumber);
+        }
+        CallerIdentityResolver.CallerIdentity identity = session.resolveIdentity(getApplicationContext());
+        return identity != null && identity.hasName() ? identity.name : null;
+    }
+
     private void launchIncomingUI(String number) {
         try {
             Context context = getApplicationContext();
@@ -443,20 +436,23 @@ public class CallTrackingInCallService extends InCallService {
         try {
             CallManager manager = CallManager.getInstance();
             
+            CallManager.CallSnapshot snapshot = manager.getSnapshot();
+            
             // Handle call waiting scenario
-            if (manager.isCallWaiting()) {
+            if (snapshot.state == CallManager.CallState.CALL_WAITING) {
                 manager.answerWaitingCall();
                 return;
             }
             
-            // Handle regular incoming call - try CallManager first, then fallback to static currentCall
-            Call call = manager.getCurrentCall();
-            if (call != null && call.getState() == Call.STATE_RINGING) {
-                call.answer(android.telecom.VideoProfile.STATE_AUDIO_ONLY);
+            // Handle regular incoming call - try CallManager first, then fallback to the registry's ringing call
+            TelecomCall call = snapshot.currentCall;
+            CallRegistry.CallEntry ringing = snapshot.calls.getRingingCall();
+            if (call != null && call.getState() == TelecomCall.STATE_RINGING) {
+                call.answer();
                 logDebug("Answered call via CallManager: " + call);
-            } else if (currentCall != null && currentCall.getState() == Call.STATE_RINGING) {
-                currentCall.answer(android.telecom.VideoProfile.STATE_AUDIO_ONLY);
-                logDebug("Answered call via static currentCall: " + currentCall);
+            } else if (ringing != null) {
+                ringing.call.answer();
+                logDebug("Answered call via registry: " + ringing.call);
             } else {
                 logDebug("No ringing call found to answer");
             }
@@ -469,20 +465,23 @@ public class CallTrackingInCallService extends InCallService {
         try {
             CallManager manager = CallManager.getInstance();
             
+            CallManager.CallSnapshot snapshot = manager.getSnapshot();
+            
             // Handle call waiting scenario
-            if (manager.isCallWaiting()) {
+            if (snapshot.state == CallManager.CallState.CALL_WAITING) {
                 manager.declineWaitingCall();
                 return;
             }
             
-            // Handle regular incoming call - try CallManager first, then fallback to static currentCall
-            Call call = manager.getCurrentCall();
-            if (call != null && call.getState() == Call.STATE_RINGING) {
+            // Handle regular incoming call - try CallManager first, then fallback to the registry's ringing call
+            TelecomCall call = snapshot.currentCall;
+            CallRegistry.CallEntry ringing = snapshot.calls.getRingingCall();
+            if (call != null && call.getState() == TelecomCall.STATE_RINGING) {
                 call.disconnect();
                 logDebug("Rejected call via CallManager: " + call);
-            } else if (currentCall != null && currentCall.getState() == Call.STATE_RINGING) {
-                currentCall.disconnect();
-                logDebug("Rejected call via static currentCall: " + currentCall);
+            } else if (ringing != null) {
+                ringing.call.disconnect();
+                logDebug("Rejected call via registry: " + ringing.call);
             } else {
                 logDebug("No ringing call found to reject");
             }
@@ -492,21 +491,8 @@ public class CallTrackingInCallService extends InCallService {
     }
 
     private void notifyFlutter(String state, String number) {
-        if (CallTrackingPlugin.channel != null) {
-            CallTrackingPlugin.channel.invokeMethod("onCallStateChanged", Arrays.asList(state, number));
-        }
-    }
-
-    private void ensureChannel(Context context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    CHANNEL_ID,
-                    "Incoming/Active Calls",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-            nm.createNotificationChannel(channel);
-        }
+        // Queued on disk so events survive the Flutter engine being detached
+        CallEventQueue.getInstance().enqueue(state, number);
     }
 
     private void bringAppToFront(String route, String titleForFallbackNotification) {
@@ -524,167 +510,87 @@ public class CallTrackingInCallService extends InCallService {
     }
 
     private void showNavigateNotification(String title, String route) {
-        Context context = getApplicationContext();
-        ensureChannel(context);
-        // Prefer launching the dedicated IncomingCallActivity for full-screen behavior
-        Intent intent = new Intent(context, IncomingCallActivity.class);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        // Pass number if we still have an active call
+        // Opens the dedicated IncomingCallActivity for full-screen behavior, with the number if
+        // there is still a call
+        String number = null;
         try {
-            String number = getCurrentCallNumber();
-            if (!number.equals("Unknown")) {
-                intent.putExtra(IncomingCallActivity.EXTRA_CALL_NUMBER, number);
-            }
+            number = getCurrentCallNumber();
         } catch (Throwable ignored) {}
-        PendingIntent pi = PendingIntent.getActivity(
-                context, 201, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.ic_menu_call)
-                .setContentTitle(title)
-                .setContentText("Opening app...")
-                .setContentIntent(pi)
-                .setAutoCancel(true)
-                .setPriority(NotificationCompat.PRIORITY_MAX)
-                .setCategory(NotificationCompat.CATEGORY_CALL)
-                .setFullScreenIntent(pi, true)
-                .build();
-        NotificationManagerCompat.from(context).notify(2003, notification);
+        CallNotifications.getInstance().showNavigate(getApplicationContext(), title, number);
     }
 
     private void showIncomingFullScreenNotification(String number) {
-        Context context = getApplicationContext();
-        ensureChannel(context);
-        Intent i = new Intent(context, IncomingCallActivity.class);
-        i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-        if (number != null) i.putExtra(IncomingCallActivity.EXTRA_CALL_NUMBER, number);
-        PendingIntent pi = PendingIntent.getActivity(
-                context, 301, i,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.ic_menu_call)
-                .setContentTitle("Incoming call")
-                .setContentText(number != null ? number : "Unknown")
-                .setPriority(NotificationCompat.PRIORITY_MAX)
-                .setCategory(NotificationCompat.CATEGORY_CALL)
-                .setOngoing(true)
-                .setFullScreenIntent(pi, true)
-                .build();
-        NotificationManagerCompat.from(context).notify(3001, notification);
-    }
-
-    private PendingIntent pendingActivityIntentForActiveCall(String number) {
-        Context context = getApplicationContext();
-        Intent i = new Intent(context, ActiveCallActivity.class);
-        i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-        i.putExtra(ActiveCallActivity.EXTRA_CALL_NUMBER, number);
-        return PendingIntent.getActivity(context, 7001, i, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        CallNotifications.getInstance().showIncomingFullScreen(getApplicationContext(), number);
     }
 
-    private PendingIntent pendingActionToggleSpeaker(boolean toSpeaker) {
-        Context context = getApplicationContext();
-        Intent i = new Intent(ACTION_TOGGLE_SPEAKER);
-        i.setPackage(getPackageName());
-        i.putExtra("toSpeaker", toSpeaker);
-        return PendingIntent.getBroadcast(context, 7002, i, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    private void showActiveCallNotification(String number) {
+        CallNotifications.getInstance().showActiveCall(getApplicationContext(), number,
+                AudioRouteController.getInstance().isSpeakerOn());
     }
 
-    private PendingIntent pendingActionEndCall() {
+    private void hideCallNotifications() {
         Context context = getApplicationContext();
-        Intent i = new Intent(ACTION_END_CALL);
-        i.setPackage(getPackageName());
-        return PendingIntent.getBroadcast(context, 7003, i, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        CallNotifications.getInstance().cancel(context, CallNotifications.ID_ACTIVE_CALL);
+        CallNotifications.getInstance().cancel(context, CallNotifications.ID_INCOMING);
     }
 
-    private void showActiveCallNotification(String number) {
-        Context context = getApplicationContext();
-        ensureChannel(context);
-        String title = "Call in progress";
-        String content = number != null && !number.isEmpty() ? number : "Unknown";
-        NotificationCompat.Action speakerAction = new NotificationCompat.Action(
-                android.R.drawable.ic_lock_silent_mode_off,
-                currentSpeakerOn ? "Earpiece" : "Speaker",
-                pendingActionToggleSpeaker(!currentSpeakerOn)
-        );
-        NotificationCompat.Action endAction = new NotificationCompat.Action(
-                android.R.drawable.ic_menu_close_clear_cancel,
-                "End",
-                pendingActionEndCall()
-        );
-        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.ic_menu_call)
-                .setContentTitle(title)
-                .setContentText(content)
-                .setOngoing(true)
-                .setOnlyAlertOnce(true)
-                .setCategory(NotificationCompat.CATEGORY_CALL)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setContentIntent(pendingActivityIntentForActiveCall(number))
-                .addAction(speakerAction)
-                .addAction(endAction)
-                .build();
-        NotificationManagerCompat.from(context).notify(NOTIF_ACTIVE_CALL_ID, notification);
-    }
-
-    private void updateActiveCallNotification(String number) {
-        showActiveCallNotification(number);
-    }
-
-    private void hideActiveCallNotification() {
-        NotificationManagerCompat.from(getApplicationContext()).cancel(NOTIF_ACTIVE_CALL_ID);
-    }
-
-    private void ensureScreenOn() {
-        Context context = getApplicationContext();
-        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-        if (pm == null) return;
-        PowerManager.WakeLock wl = pm.newWakeLock(
-                PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP,
-                "call_navigator:incoming_call_wakelock");
-        wl.setReferenceCounted(false);
-        wl.acquire(5000); // wake for 5 seconds
+    /**
+     * Re-post the active-call notification after something on it changed, e.g. the speaker label.
+     */
+    public static void refreshActiveCallNotification() {
+        CallTrackingInCallService service = instance;
+        if (service == null) return;
+        int state = getCurrentState();
+        if (state == Call.STATE_ACTIVE || state == Call.STATE_CONNECTING || state == Call.STATE_DIALING) {
+            service.showActiveCallNotification(getCurrentCallNumber());
+        }
     }
 
     private static void logDebug(String msg) {
-        Log.d("InCallService", msg);
-        // Also forward logs to Flutter so they appear in the Flutter console
-        try {
-            if (CallTrackingPlugin.channel != null) {
-                CallTrackingPlugin.channel.invokeMethod("debugLog", msg);
-            }
-        } catch (Throwable ignored) {}
+        // Also forwarded to the Flutter console, batched
+        DebugLog.d("InCallService", msg);
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
         instance = this;
+        AudioRouteController.getInstance().attach(this);
+        AudioRouteController.getInstance().addListener(audioStateListener);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        AudioRouteController.getInstance().removeListener(audioStateListener);
+        AudioRouteController.getInstance().detach(this);
         if (instance == this) instance = null;
     }
 
+    @Override
+    public void onCallAudioStateChanged(CallAudioState audioState) {
+        super.onCallAudioStateChanged(audioState);
+        logDebug("Audio state: " + audioState);
+        AudioRouteController.getInstance().onCallAudioStateChanged(audioState);
+    }
+
     // ===== Outgoing/active call controls exposed to MainActivity =====
     public static boolean endCurrentCall() {
-        // Prefer ending the actual ACTIVE/HOLDING call from the system list
+        // Prefer ending the actual ACTIVE/HOLDING call
         try {
-            Call active = findActiveOrHeldCall();
+            TelecomCall active = findActiveOrHeldCall();
             if (active != null) {
                 active.disconnect();
                 return true;
             }
         } catch (Throwable t) {
-            Log.d(TAG, "Failed to end active/held call via system list: " + t.getMessage());
+            Log.d(TAG, "Failed to end active/held call: " + t.getMessage());
         }
-        // Fallback to static reference
+        // Fallback to whatever call is primary (dialing, ringing)
         try {
-            if (currentCall != null && currentCall.getState() != Call.STATE_DISCONNECTED) {
-                currentCall.disconnect();
+            TelecomCall call = primaryCall();
+            if (call != null && call.getState() != TelecomCall.STATE_DISCONNECTED) {
+                call.disconnect();
                 return true;
             }
         } catch (Throwable ignored) {}
@@ -693,19 +599,27 @@ public class CallTrackingInCallService extends InCallService {
     }
 
     public static boolean holdCurrentCall() {
-        try { if (currentCall != null) { currentCall.hold(); return true; } } catch (Throwable ignored) {}
+        try {
+            CallRegistry.CallEntry active = CallManager.getInstance().getCalls().firstInState(Call.STATE_ACTIVE);
+            if (active != null) { active.call.hold(); return true; }
+        } catch (Throwable ignored) {}
         return false;
     }
 
     public static boolean unholdCurrentCall() {
-        try { if (currentCall != null) { currentCall.unhold(); return true; } } catch (Throwable ignored) {}
+        try {
+            CallRegistry.CallEntry held = CallManager.getInstance().getCalls().firstInState(Call.STATE_HOLDING);
+            if (held != null) { held.call.unhold(); return true; }
+        } catch (Throwable ignored) {}
         return false;
     }
 
+    // Tones go through DtmfSequencer's thread so they stay ordered with any sequence playing
     public static boolean playDtmf(String tone) {
         try {
-            if (currentCall != null && tone != null && !tone.isEmpty()) {
-                currentCall.playDtmfTone(tone.charAt(0));
+            TelecomCall call = primaryCall();
+            if (call != null && tone != null && !tone.isEmpty()) {
+                DtmfSequencer.getInstance().startTone(call, tone.charAt(0));
                 return true;
             }
         } catch (Throwable ignored) {}
@@ -713,120 +627,79 @@ public class CallTrackingInCallService extends InCallService {
     }
 
     public static boolean stopDtmf() {
-        try { if (currentCall != null) { currentCall.stopDtmfTone(); return true; } } catch (Throwable ignored) {}
+        try {
+            TelecomCall call = primaryCall();
+            if (call != null) { DtmfSequencer.getInstance().stopTone(call); return true; }
+        } catch (Throwable ignored) {}
         return false;
     }
 
+    /**
+     * Play a digit string on the active call; see {@link DtmfSequencer}.
+     *
+     * @return the sequence id, or -1 if there is no active call
+     * @throws IllegalArgumentException if the digits are invalid
+     */
+    public static int playDtmfSequence(String digits, int toneMs, int gapMs, int pauseMs,
+                                       DtmfSequencer.ProgressListener listener) {
+        CallRegistry.CallEntry active = CallManager.getInstance().getCalls().firstInState(Call.STATE_ACTIVE);
+        if (active == null) return -1;
+        return DtmfSequencer.getInstance().play(active.call, digits, toneMs, gapMs, pauseMs, listener);
+    }
+
+    // Audio changes go through AudioRouteController, which drops redundant ones and debounces
     public static boolean setMutedState(boolean muted) {
-        try {
-            if (instance != null) {
-                instance.setMuted(muted);
-                return true;
-            }
-        } catch (Throwable ignored) {}
-        return false;
+        return AudioRouteController.getInstance().requestMute(muted);
     }
 
     public static boolean setSpeaker(boolean on) {
-        try {
-            if (instance != null) {
-                int route = on ? CallAudioState.ROUTE_SPEAKER : CallAudioState.ROUTE_EARPIECE;
-                instance.setAudioRoute(route);
-                return true;
-            }
-        } catch (Throwable ignored) {}
-        return false;
+        return AudioRouteController.getInstance().requestSpeaker(on);
     }
 
     public static int getCurrentState() {
-        // Robust: derive from system calls first
-        try {
-            if (instance != null) {
-                List<Call> calls = instance.getCalls();
-                if (calls != null) {
-                    // Priority order: ACTIVE, HOLDING, DIALING/CONNECTING, RINGING
-                    for (Call c : calls) {
-                        if (c.getState() == Call.STATE_ACTIVE) return Call.STATE_ACTIVE;
-                    }
-                    for (Call c : calls) {
-                        if (c.getState() == Call.STATE_HOLDING) return Call.STATE_HOLDING;
-                    }
-                    for (Call c : calls) {
-                        if (c.getState() == Call.STATE_DIALING || c.getState() == Call.STATE_CONNECTING) return Call.STATE_CONNECTING;
-                    }
-                    for (Call c : calls) {
-                        if (c.getState() == Call.STATE_RINGING) return Call.STATE_RINGING;
-                    }
-                }
-            }
-        } catch (Throwable ignored) {}
-        // Fallback to static pointer
-        try { return currentCall != null ? currentCall.getState() : Call.STATE_DISCONNECTED; } catch (Throwable ignored) {}
-        return Call.STATE_DISCONNECTED;
+        // Priority order: ACTIVE, HOLDING, DIALING/CONNECTING, RINGING
+        CallRegistry calls = CallManager.getInstance().getCalls();
+        if (calls.countInState(Call.STATE_ACTIVE) > 0) return Call.STATE_ACTIVE;
+        if (calls.countInState(Call.STATE_HOLDING) > 0) return Call.STATE_HOLDING;
+        if (calls.countInState(Call.STATE_DIALING) > 0 || calls.countInState(Call.STATE_CONNECTING) > 0) return Call.STATE_CONNECTING;
+        if (calls.countInState(Call.STATE_RINGING) > 0) return Call.STATE_RINGING;
+        CallRegistry.CallEntry primary = calls.getPrimaryCall();
+        return primary != null ? primary.telecomState : Call.STATE_DISCONNECTED;
     }
 
     /**
-     * Check if there's an active call in the system
-     * Uses getCalls() to get all calls and check for ACTIVE/HOLDING states
-     * This is the robust way to detect active calls, like system dialer
+     * Check if there's an active or held call, from the call registry kept in step with
+     * Telecom callbacks, so no scan of getCalls() is needed
      */
     public static boolean hasActiveCall() {
-        try {
-            if (instance != null) {
-                List<Call> calls = instance.getCalls();
-                if (calls != null && !calls.isEmpty()) {
-                    for (Call call : calls) {
-                        int state = call.getState();
-                        if (state == Call.STATE_ACTIVE || state == Call.STATE_HOLDING) {
-                            return true; // Found an active or held call
-                        }
-                    }
-                }
-            }
-        } catch (Throwable e) {
-            Log.e(TAG, "Error checking for active calls", e);
-        }
-        return false;
+        return CallManager.getInstance().getCalls().hasActiveOrHeldCall();
     }
 
-    private static Call findActiveOrHeldCall() {
-        try {
-            if (instance != null) {
-                List<Call> calls = instance.getCalls();
-                if (calls == null) return null;
-                for (Call c : calls) {
-                    if (c.getState() == Call.STATE_ACTIVE) return c;
-                }
-                for (Call c : calls) {
-                    if (c.getState() == Call.STATE_HOLDING) return c;
-                }
-            }
-        } catch (Throwable ignored) {}
-        return null;
+    private static TelecomCall findActiveOrHeldCall() {
+        CallRegistry calls = CallManager.getInstance().getCalls();
+        CallRegistry.CallEntry e = calls.firstInState(Call.STATE_ACTIVE);
+        if (e == null) e = calls.firstInState(Call.STATE_HOLDING);
+        return e != null ? e.call : null;
+    }
+
+    // The call controls and number lookups target, from the shared call registry
+    private static TelecomCall primaryCall() {
+        CallRegistry.CallEntry e = CallManager.getInstance().getCalls().getPrimaryCall();
+        return e != null ? e.call : null;
     }
 
     public static String getActiveCallNumber() {
         // Prefer the system-active call number
-        try {
-            Call active = findActiveOrHeldCall();
-            if (active != null && active.getDetails() != null && active.getDetails().getHandle() != null) {
-                return active.getDetails().getHandle().getSchemeSpecificPart();
-            }
-        } catch (Throwable ignored) {}
+        TelecomCall active = findActiveOrHeldCall();
+        String number = active != null ? active.getNumber() : null;
+        if (number != null) return number;
         // Fallback
         return getCurrentCallNumber();
     }
 
-    private String getCallNumber(Call call) {
-        String telecomNumber = null;
-        try {
-            if (call != null && call.getDetails() != null) {
-                android.net.Uri handle = call.getDetails().getHandle();
-                if (handle != null) {
-                    telecomNumber = handle.getSchemeSpecificPart();
-                }
-            }
-        } catch (Throwable ignored) {}
+    // The call's own number, else the last one PhoneStateReceiver saw
+    static String getCallNumber(TelecomCall call) {
+        String telecomNumber = call != null ? call.getNumber() : null;
         // Use PhoneNumberUtils to get the best available number
         String receiverNumber = PhoneStateReceiver.getLastKnownNumber();
         return PhoneNumberUtils.getBestAvailableNumber(telecomNumber, null, receiverNumber);
@@ -19,6 +19,8 @@ public class CallTrackingPlugin implements FlutterPlugin {
 
     @Override
     public void onDetachedFromEngine(FlutterPluginBinding binding) {
+        // Hold events until Dart attaches again and asks for a replay
+        CallEventQueue.getInstance().onDetached();
         if (channel != null) {
             channel.setMethodCallHandler(null);
             channel = null;
@@ -0,0 +1,139 @@
+package com.example.call_navigator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transition table for {@link CallManager}: for every (state, event, has waiting call) it holds
+ * the next state and how the current/waiting calls move, precomputed once. Looking up a
+ * transition is one array read; cells that aren't in the table are counted as illegal, and
+ * events that would leave the state unchanged are counted as redundant instead of re-published.
+ */
+final class CallTransitions {
+    enum Event {
+        INCOMING,
+        ANSWERED,
+        ENDED,
+        HOLD,
+        UNHOLD,
+        ANSWER_WAITING,
+        DECLINE_WAITING,
+        // The waiting call went away on its own (caller hung up, declined elsewhere)
+        WAITING_GONE
+    }
+
+    // How the calls move
+    static final byte ILLEGAL = 0;
+    static final byte REDUNDANT = 1;        // Allowed but changes nothing
+    static final byte KEEP_CALLS = 2;       // Only the state changes
+    static final byte NEW_CURRENT = 3;      // Event's call becomes current
+    static final byte NEW_WAITING = 4;      // Event's call becomes waiting
+    static final byte PROMOTE_WAITING = 5;  // Waiting call becomes current, no waiting call
+    static final byte DROP_WAITING = 6;     // Waiting call cleared, current kept
+    static final byte CLEAR = 7;            // No calls
+
+    private static final CallManager.CallState[] STATES = CallManager.CallState.values();
+    private static final Event[] EVENTS = Event.values();
+
+    private static final byte[] ACTIONS = new byte[STATES.length * EVENTS.length * 2];
+    private static final CallManager.CallState[] NEXT = new CallManager.CallState[ACTIONS.length];
+
+    static {
+        for (CallManager.CallState s : STATES) {
+            for (int w = 0; w < 2; w++) {
+                boolean waiting = w == 1;
+                // Only an active call can take a second call as waiting
+                put(s, Event.INCOMING, waiting, s == CallManager.CallState.ACTIVE ? NEW_WAITING : NEW_CURRENT,
+                        s == CallManager.CallState.ACTIVE ? CallManager.CallState.CALL_WAITING : CallManager.CallState.INCOMING);
+                put(s, Event.ANSWERED, waiting, s == CallManager.CallState.ACTIVE ? REDUNDANT : KEEP_CALLS,
+                        CallManager.CallState.ACTIVE);
+                if (waiting) {
+                    put(s, Event.ENDED, true, PROMOTE_WAITING, CallManager.CallState.ACTIVE);
+                } else {
+                    put(s, Event.ENDED, false, s == CallManager.CallState.IDLE ? REDUNDANT : CLEAR,
+                            CallManager.CallState.IDLE);
+                }
+            }
+        }
+        put(CallManager.CallState.ACTIVE, Event.HOLD, false, KEEP_CALLS, CallManager.CallState.HOLD);
+        put(CallManager.CallState.ACTIVE, Event.HOLD, true, KEEP_CALLS, CallManager.CallState.HOLD);
+        put(CallManager.CallState.HOLD, Event.HOLD, false, REDUNDANT, CallManager.CallState.HOLD);
+        put(CallManager.CallState.HOLD, Event.HOLD, true, REDUNDANT, CallManager.CallState.HOLD);
+        put(CallManager.CallState.HOLD, Event.UNHOLD, false, KEEP_CALLS, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.HOLD, Event.UNHOLD, true, KEEP_CALLS, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.ACTIVE, Event.UNHOLD, false, REDUNDANT, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.ACTIVE, Event.UNHOLD, true, REDUNDANT, CallManager.CallState.ACTIVE);
+        // Waiting-call events need a waiting call; without one the cell stays illegal
+        put(CallManager.CallState.CALL_WAITING, Event.ANSWER_WAITING, true, PROMOTE_WAITING, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.CALL_WAITING, Event.DECLINE_WAITING, true, DROP_WAITING, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.CALL_WAITING, Event.WAITING_GONE, true, DROP_WAITING, CallManager.CallState.ACTIVE);
+        put(CallManager.CallState.HOLD, Event.WAITING_GONE, true, DROP_WAITING, CallManager.CallState.HOLD);
+        put(CallManager.CallState.ACTIVE, Event.WAITING_GONE, true, DROP_WAITING, CallManager.CallState.ACTIVE);
+    }
+
+    private static void put(CallManager.CallState state, Event event, boolean hasWaiting,
+                            byte action, CallManager.CallState next) {
+        int i = index(state, event, hasWaiting);
+        ACTIONS[i] = action;
+        NEXT[i] = next;
+    }
+
+    static int index(CallManager.CallState state, Event event, boolean hasWaiting) {
+        return ((state.ordinal() * EVENTS.length) + event.ordinal()) * 2 + (hasWaiting ? 1 : 0);
+    }
+
+    static byte action(int index) {
+        return ACTIONS[index];
+    }
+
+    static CallManager.CallState next(int index) {
+        return NEXT[index];
+    }
+
+    // Counters, guarded by the caller's lock (CallManager's writeLock)
+    private final long[] applied = new long[ACTIONS.length];
+    private final long[] redundant = new long[ACTIONS.length];
+    private final long[] illegal = new long[ACTIONS.length];
+    private long rejected;
+
+    void countApplied(int index) {
+        applied[index]++;
+    }
+
+    void countRedundant(int index) {
+        redundant[index]++;
+    }
+
+    void countIllegal(int index) {
+        illegal[index]++;
+    }
+
+    /** A guard on the event's own arguments failed (e.g. the call isn't the one it names) */
+    void countRejected() {
+        rejected++;
+    }
+
+    /**
+     * Counts keyed "STATE+EVENT", with "+waiting" when a waiting call was present. Only
+     * non-zero cells are included. Call under the same lock as the counters.
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("applied", cells(applied));
+        stats.put("redundant", cells(redundant));
+        stats.put("illegal", cells(illegal));
+        stats.put("rejected", rejected);
+        return stats;
+    }
+
+    private static Map<String, Long> cells(long[] counts) {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            int cell = i / 2;
+            String key = STATES[cell / EVENTS.length] + "+" + EVENTS[cell % EVENTS.length] + ((i & 1) == 1 ? "+waiting" : "");
+            map.put(key, counts[i]);
+        }
+        return map;
+    }
+}
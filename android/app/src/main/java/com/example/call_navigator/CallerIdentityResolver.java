@@ -0,0 +1,288 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One caller identity resolution per call, shared by every call surface.
+ * Contacts, the local lead directory and the server lookup run concurrently under a single
+ * deadline; results are merged with precedence server > lead > contact > number and pushed
+ * progressively via {@link CallTrackingInCallService#ACTION_CALLER_INFO_UPDATED}, so screens show
+ * the first answer quickly and then the best one. Main thread only.
+ */
+public final class CallerIdentityResolver {
+    private static final String TAG = "CallerIdentityResolver";
+    private static CallerIdentityResolver instance;
+
+    // The server lookup can answer until it times out; anything later is too late to matter
+    public static final long RESOLVE_DEADLINE_MS = CallerInfoApiClient.MAX_LOOKUP_MS;
+
+    /** Where the identity's name came from, in increasing precedence */
+    public enum Source { NUMBER, CONTACT, LEAD, SERVER }
+
+    /**
+     * Immutable merged view of who is calling.
+     */
+    public static final class CallerIdentity {
+        public final String phoneNumber;
+        public final String name;
+        public final String campus;
+        public final String status;
+        public final String remark;
+        public final boolean leadFound;
+        public final Source source;
+        // True once every source has answered or the deadline has passed
+        public final boolean isFinal;
+
+        CallerIdentity(String phoneNumber, String name, String campus, String status, String remark,
+                       boolean leadFound, Source source, boolean isFinal) {
+            this.phoneNumber = phoneNumber;
+            this.name = name;
+            this.campus = campus;
+            this.status = status;
+            this.remark = remark;
+            this.leadFound = leadFound;
+            this.source = source;
+            this.isFinal = isFinal;
+        }
+
+        public boolean hasName() {
+            return name != null && !name.isEmpty();
+        }
+
+        /** Adapter for views that already render the server response */
+        public CallerInfoApiClient.CallerInfo asCallerInfo() {
+            return new CallerInfoApiClient.CallerInfo(name, campus, status, remark, phoneNumber, leadFound);
+        }
+
+        boolean sameAs(CallerIdentity other) {
+            return other != null && leadFound == other.leadFound && source == other.source && isFinal == other.isFinal
+                    && eq(name, other.name) && eq(campus, other.campus)
+                    && eq(status, other.status) && eq(remark, other.remark);
+        }
+
+        private static boolean eq(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final class Resolution {
+        final String phoneNumber;
+        final long startedAt = SystemClock.elapsedRealtime();
+        String contactName;
+        boolean contactDone;
+        LeadDirectory.Lead lead;
+        boolean leadDone;
+        CallerInfoApiClient.CallerInfo serverInfo;
+        boolean serverDone;
+        boolean expired;
+        CallerIdentity current;
+        boolean published;
+        Runnable deadline;
+
+        Resolution(String phoneNumber) {
+            this.phoneNumber = phoneNumber;
+        }
+
+        boolean complete() {
+            return expired || (contactDone && leadDone && serverDone);
+        }
+    }
+
+    // Main thread only: resolutions of calls still in progress, by lookup key
+    private final Map<String, Resolution> resolutions = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private CallerIdentityResolver() {}
+
+    public static synchronized CallerIdentityResolver getInstance() {
+        if (instance == null) {
+            instance = new CallerIdentityResolver();
+        }
+        return instance;
+    }
+
+    /**
+     * Start resolving a caller if this call isn't being resolved already, and return the best
+     * identity known right now (memory sources only, never null for a valid number).
+     * Later improvements arrive as ACTION_CALLER_INFO_UPDATED broadcasts.
+     */
+    public CallerIdentity resolve(Context context, String phoneNumber) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        if (key == null || context == null || "Unknown".equals(phoneNumber)) return null;
+        Resolution existing = resolutions.get(key);
+        if (existing != null) return existing.current;
+
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        final Resolution r = new Resolution(phoneNumber);
+        resolutions.put(key, r);
+
+        // Seed with whatever is already in memory so the first frame has the best cheap answer
+        r.contactName = ContactUtils.peekContactName(phoneNumber);
+        r.lead = LeadDirectory.getInstance().peek(phoneNumber);
+        r.current = merge(r);
+
+        r.deadline = () -> {
+            if (r.complete()) return;
+            r.expired = true;
+            Log.d(TAG, "Resolution deadline reached for " + phoneNumber);
+            publish(appContext, r);
+        };
+        mainHandler.postDelayed(r.deadline, RESOLVE_DEADLINE_MS);
+
+        // Contacts
+        if (r.contactName != null) {
+            r.contactDone = true;
+        } else {
+            ContactUtils.getContactNameAsync(appContext, phoneNumber, RESOLVE_DEADLINE_MS, (number, contactName) -> {
+                if (r.expired) return;
+                r.contactName = contactName;
+                r.contactDone = true;
+                publish(appContext, r);
+            });
+        }
+
+        // Local lead directory
+        if (r.lead != null || LeadDirectory.getInstance().isLoaded()) {
+            r.leadDone = true;
+        } else {
+            LeadDirectory.getInstance().lookup(appContext, phoneNumber, (number, lead) -> {
+                if (r.expired) return;
+                r.lead = lead;
+                r.leadDone = true;
+                publish(appContext, r);
+            });
+        }
+
+        // Server
+        try {
+            CallerInfoApiClient.lookupCaller(phoneNumber, CallerInfoApiClient.getBaseUrl(appContext),
+                    new CallerInfoApiClient.CallerInfoCallback() {
+                        @Override
+                        public void onSuccess(CallerInfoApiClient.CallerInfo callerInfo) {
+                            if (r.expired) return;
+                            r.serverInfo = callerInfo;
+                            r.serverDone = true;
+                            publish(appContext, r);
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            Log.d(TAG, "Server lookup failed for " + phoneNumber + ": " + error);
+                            if (r.expired) return;
+                            r.serverDone = true;
+                            publish(appContext, r);
+                        }
+
+                        @Override
+                        public void onTimeout() {
+                            Log.d(TAG, "Server lookup timed out for " + phoneNumber);
+                            if (r.expired) return;
+                            r.serverDone = true;
+                            publish(appContext, r);
+                        }
+                    });
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to start server lookup", t);
+            r.serverDone = true;
+        }
+
+        // Publish the seeded answer too, in case a surface opened before this call started
+        publish(appContext, r);
+        return r.current;
+    }
+
+    /**
+     * Start resolving and return the best name known right now, or null.
+     */
+    public String resolveName(Context context, String phoneNumber) {
+        CallerIdentity identity = resolve(context, phoneNumber);
+        return identity != null && identity.hasName() ? identity.name : null;
+    }
+
+    /**
+     * Best identity known right now for a number, or null if it isn't being resolved.
+     */
+    public CallerIdentity peek(String phoneNumber) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        Resolution r = key != null ? resolutions.get(key) : null;
+        return r != null ? r.current : null;
+    }
+
+    /**
+     * Forget a call's resolution once the call is gone, so the next call re-resolves.
+     */
+    public void release(String phoneNumber) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        if (key == null) return;
+        Resolution r = resolutions.remove(key);
+        if (r != null) {
+            r.expired = true;
+            if (r.deadline != null) mainHandler.removeCallbacks(r.deadline);
+        }
+    }
+
+    private void publish(Context context, Resolution r) {
+        CallerIdentity merged = merge(r);
+        if (merged.isFinal && r.deadline != null) mainHandler.removeCallbacks(r.deadline);
+        if (r.published && merged.sameAs(r.current)) return;
+        r.current = merged;
+        r.published = true;
+        if (merged.isFinal) {
+            Log.d(TAG, "Caller resolved for " + r.phoneNumber + " in " + (SystemClock.elapsedRealtime() - r.startedAt)
+                    + "ms: " + merged.name + " (" + merged.source + ", lead=" + merged.leadFound + ")");
+        }
+        try {
+            Intent i = new Intent(CallTrackingInCallService.ACTION_CALLER_INFO_UPDATED);
+            i.putExtra(CallTrackingInCallService.EXTRA_PHONE_NUMBER, r.phoneNumber);
+            if (merged.hasName()) i.putExtra(CallTrackingInCallService.EXTRA_CONTACT_NAME, merged.name);
+            i.setPackage(context.getPackageName());
+            context.sendBroadcast(i);
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to broadcast caller identity", t);
+        }
+    }
+
+    private static CallerIdentity merge(Resolution r) {
+        CallerInfoApiClient.CallerInfo server = r.serverInfo;
+        boolean serverFound = server != null && server.found;
+        // A server "not found" overrides a stale local lead; until it answers, trust the local copy
+        LeadDirectory.Lead lead = server == null || server.found ? r.lead : null;
+
+        String name = null;
+        Source source = Source.NUMBER;
+        if (serverFound && notEmpty(server.name)) {
+            name = server.name;
+            source = Source.SERVER;
+        } else if (lead != null && notEmpty(lead.name)) {
+            name = lead.name;
+            source = Source.LEAD;
+        } else if (notEmpty(r.contactName)) {
+            name = r.contactName;
+            source = Source.CONTACT;
+        }
+
+        String campus = null, status = null, remark = null;
+        if (serverFound) {
+            campus = server.campus;
+            status = server.status;
+            remark = server.remark;
+        } else if (lead != null) {
+            campus = lead.campus;
+            status = lead.status;
+            remark = lead.remark;
+        }
+        boolean leadFound = serverFound || lead != null;
+        return new CallerIdentity(r.phoneNumber, name, campus, status, remark, leadFound, source, r.complete());
+    }
+
+    private static boolean notEmpty(String s) {
+        return s != null && !s.isEmpty();
+    }
+}
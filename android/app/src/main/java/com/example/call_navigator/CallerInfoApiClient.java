@@ -24,6 +24,8 @@ public class CallerInfoApiClient {
     private static final int TIMEOUT_SECONDS = 7;
     private static final int CONNECT_TIMEOUT_MS = 5000;
     private static final int READ_TIMEOUT_MS = 7000;
+    // Longest a lookup waits on the network before it reports a timeout
+    public static final long MAX_LOOKUP_MS = CONNECT_TIMEOUT_MS + READ_TIMEOUT_MS;
     
     public interface CallerInfoCallback {
         void onSuccess(CallerInfo callerInfo);
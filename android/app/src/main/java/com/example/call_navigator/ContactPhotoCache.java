@@ -0,0 +1,245 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.ContactsContract;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caller photo pipeline for call screens.
+ * Photos are decoded on a background thread straight to the avatar size and kept in a
+ * byte-bounded LRU cache, so showing a photo never adds decode time to the main thread.
+ * The service prefetches at ring time; screens then usually hit the cache synchronously.
+ */
+public final class ContactPhotoCache {
+    private static final String TAG = "ContactPhotoCache";
+    private static ContactPhotoCache instance;
+
+    // Avatar diameter used by the incoming call screen; prefetch must decode at the same size
+    public static final int AVATAR_SIZE_DP = 96;
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    public interface PhotoCallback {
+        void onPhoto(String phoneNumber, Bitmap photo);
+    }
+
+    private final LruCache<String, Bitmap> bitmaps;
+    // Numbers known to have no photo, so repeat rings don't query the provider again
+    private final LruCache<String, Boolean> misses = new LruCache<>(64);
+    // Main thread only: callbacks waiting on an in-flight decode, by cache key
+    private final Map<String, List<PhotoCallback>> inFlight = new HashMap<>();
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ContactPhotoCache() {
+        int budget = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        bitmaps = new LruCache<String, Bitmap>(budget) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    public static synchronized ContactPhotoCache getInstance() {
+        if (instance == null) {
+            instance = new ContactPhotoCache();
+        }
+        return instance;
+    }
+
+    public static int avatarSizePx(Context context) {
+        return (int) (AVATAR_SIZE_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    /**
+     * Memory-only lookup, safe to call on the main thread while building a screen.
+     */
+    public Bitmap getCached(String phoneNumber, int sizePx) {
+        String key = cacheKey(phoneNumber, sizePx);
+        return key != null ? bitmaps.get(key) : null;
+    }
+
+    /**
+     * Warm the cache at ring time so the incoming screen can show the photo on its first frame.
+     */
+    public void prefetch(Context context, String phoneNumber, int sizePx) {
+        load(context, phoneNumber, sizePx, null);
+    }
+
+    /**
+     * Load a photo, decoding off the main thread if needed. The callback runs on the main thread
+     * and only when a photo exists. Must be called on the main thread.
+     */
+    public void load(Context context, String phoneNumber, int sizePx, PhotoCallback callback) {
+        final String key = cacheKey(phoneNumber, sizePx);
+        if (key == null || context == null) return;
+        Bitmap cached = bitmaps.get(key);
+        if (cached != null) {
+            if (callback != null) callback.onPhoto(phoneNumber, cached);
+            return;
+        }
+        if (misses.get(key) != null) return;
+
+        List<PhotoCallback> waiting = inFlight.get(key);
+        if (waiting != null) {
+            if (callback != null) waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>(1);
+        if (callback != null) waiting.add(callback);
+        inFlight.put(key, waiting);
+
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        decodeExecutor.execute(() -> {
+            Bitmap photo = null;
+            try {
+                photo = decodeContactPhoto(appContext, phoneNumber, sizePx);
+            } catch (Throwable t) {
+                Log.e(TAG, "Photo decode failed for " + phoneNumber, t);
+            }
+            final Bitmap result = photo;
+            mainHandler.post(() -> {
+                List<PhotoCallback> callbacks = inFlight.remove(key);
+                if (result == null) {
+                    misses.put(key, Boolean.TRUE);
+                    return;
+                }
+                bitmaps.put(key, result);
+                if (callbacks != null) {
+                    for (PhotoCallback cb : callbacks) {
+                        try { cb.onPhoto(phoneNumber, result); } catch (Throwable ignored) {}
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Forget cached misses, e.g. after contacts change and a photo may have been added.
+     */
+    public void clearMisses() {
+        misses.evictAll();
+    }
+
+    private static String cacheKey(String phoneNumber, int sizePx) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        return key != null ? key + "@" + sizePx : null;
+    }
+
+    // ===== Decode thread =====
+
+    private static Bitmap decodeContactPhoto(Context context, String phoneNumber, int sizePx) {
+        if (context.checkSelfPermission(android.Manifest.permission.READ_CONTACTS) != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+        Uri[] photoUris = findPhotoUris(context, phoneNumber);
+        if (photoUris == null) return null;
+
+        // Pass 1: bounds only, to pick a power-of-two subsample at or above the target size.
+        // The thumbnail is cheapest, but is often smaller than the avatar (about 96px), so
+        // switch to the full photo rather than upscale it.
+        Uri photoUri = photoUris[0];
+        BitmapFactory.Options bounds = photoUri != null ? decodeBounds(context, photoUri) : null;
+        if (photoUris[1] != null && (bounds == null
+                || Math.min(bounds.outWidth, bounds.outHeight) < sizePx)) {
+            BitmapFactory.Options full = decodeBounds(context, photoUris[1]);
+            if (full != null) {
+                photoUri = photoUris[1];
+                bounds = full;
+            }
+        }
+        if (bounds == null) return null;
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, sizePx);
+        // Avatars are clipped to a circle by the view outline, so no alpha channel is needed
+        opts.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap sampled;
+        try (InputStream in = context.getContentResolver().openInputStream(photoUri)) {
+            if (in == null) return null;
+            sampled = BitmapFactory.decodeStream(in, null, opts);
+        } catch (Throwable t) {
+            return null;
+        }
+        if (sampled == null) return null;
+
+        // Pass 2: centre-crop and scale to exactly the avatar size so the view never rescales
+        Bitmap exact = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.RGB_565);
+        int side = Math.min(sampled.getWidth(), sampled.getHeight());
+        int left = (sampled.getWidth() - side) / 2;
+        int top = (sampled.getHeight() - side) / 2;
+        Canvas canvas = new Canvas(exact);
+        canvas.drawBitmap(sampled, new Rect(left, top, left + side, top + side),
+                new Rect(0, 0, sizePx, sizePx), new Paint(Paint.FILTER_BITMAP_FLAG));
+        sampled.recycle();
+        return exact;
+    }
+
+    /** Image dimensions without decoding pixels, or null if unreadable */
+    private static BitmapFactory.Options decodeBounds(Context context, Uri photoUri) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = context.getContentResolver().openInputStream(photoUri)) {
+            if (in == null) return null;
+            BitmapFactory.decodeStream(in, null, bounds);
+        } catch (Throwable t) {
+            return null;
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        return bounds;
+    }
+
+    private static int sampleSizeFor(int width, int height, int target) {
+        int sample = 1;
+        int shortest = Math.min(width, height);
+        while (shortest / (sample * 2) >= target) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /** {thumbnail, full photo} for the number's contact, either may be null; null if neither exists */
+    private static Uri[] findPhotoUris(Context context, String phoneNumber) {
+        Cursor cursor = null;
+        try {
+            Uri uri = Uri.withAppendedPath(ContactsContract.PhoneLookup.CONTENT_FILTER_URI, Uri.encode(phoneNumber));
+            String[] projection = new String[] {
+                    ContactsContract.PhoneLookup.PHOTO_THUMBNAIL_URI,
+                    ContactsContract.PhoneLookup.PHOTO_URI
+            };
+            cursor = context.getContentResolver().query(uri, projection, null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                String thumb = cursor.getString(0);
+                String full = cursor.getString(1);
+                if (thumb != null || full != null) {
+                    return new Uri[] {
+                            thumb != null ? Uri.parse(thumb) : null,
+                            full != null ? Uri.parse(full) : null
+                    };
+                }
+            }
+        } catch (Throwable ignored) {
+        } finally {
+            if (cursor != null) try { cursor.close(); } catch (Throwable ignored) {}
+        }
+        return null;
+    }
+}
@@ -4,9 +4,27 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.ContactsContract;
+import android.util.Log;
+import android.util.LruCache;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class ContactUtils {
+    private static final String TAG = "ContactUtils";
+
+    private static final ExecutorService lookupExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Recently resolved names, so a screen created after the broadcast still finds the result
+    private static final LruCache<String, String> recentNames = new LruCache<>(16);
+
+    public interface ContactNameCallback {
+        void onContactName(String phoneNumber, String contactName);
+    }
+
     private ContactUtils() {}
 
     public static String getContactName(Context context, String phoneNumber) {
@@ -17,6 +35,13 @@ public final class ContactUtils {
             }
         } catch (Throwable ignored) {}
 
+        // Answer from the preloaded in-memory index when it's available
+        ContactsIndex index = ContactsIndex.getInstance();
+        if (index.isReady() && PhoneNumberUtils.toLookupKey(phoneNumber) != null) {
+            return index.lookupName(phoneNumber);
+        }
+        index.start(context);
+
         Cursor cursor = null;
         try {
             Uri uri = Uri.withAppendedPath(ContactsContract.PhoneLookup.CONTENT_FILTER_URI, Uri.encode(phoneNumber));
@@ -35,6 +60,68 @@ public final class ContactUtils {
         }
         return null;
     }
-}
 
+    /**
+     * Initials shown in the avatar circle while no photo is available
+     */
+    public static String getInitials(String name) {
+        if (name == null || name.trim().isEmpty()) return "?";
+
+        String[] parts = name.trim().split("\\s+");
+        if (parts.length == 1) {
+            return parts[0].substring(0, 1).toUpperCase();
+        } else {
+            return (parts[0].substring(0, 1) + parts[parts.length - 1].substring(0, 1)).toUpperCase();
+        }
+    }
 
+    /**
+     * Non-blocking lookup: returns a name only if it is already in memory
+     * (contacts index or a recent async resolution), never touches the provider.
+     */
+    public static String peekContactName(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isEmpty() || "Unknown".equals(phoneNumber)) return null;
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        if (key != null) {
+            String recent = recentNames.get(key);
+            if (recent != null) return recent;
+        }
+        ContactsIndex index = ContactsIndex.getInstance();
+        return index.isReady() ? index.lookupName(phoneNumber) : null;
+    }
+
+    /**
+     * Resolve a contact name off the calling thread. The callback runs on the main thread,
+     * at most once, and only if the lookup finishes before the deadline.
+     */
+    public static void getContactNameAsync(Context context, String phoneNumber, long deadlineMs, ContactNameCallback callback) {
+        if (context == null || phoneNumber == null || phoneNumber.isEmpty() || "Unknown".equals(phoneNumber)) return;
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final Runnable expire = () -> {
+            if (done.compareAndSet(false, true)) {
+                Log.d(TAG, "Contact lookup missed deadline for " + phoneNumber);
+            }
+        };
+        mainHandler.postDelayed(expire, deadlineMs);
+        lookupExecutor.execute(() -> {
+            String name = null;
+            try {
+                name = getContactName(appContext, phoneNumber);
+            } catch (Throwable t) {
+                Log.e(TAG, "Async contact lookup failed for " + phoneNumber, t);
+            }
+            final String resolved = name;
+            if (resolved != null) {
+                String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+                if (key != null) recentNames.put(key, resolved);
+            }
+            mainHandler.post(() -> {
+                mainHandler.removeCallbacks(expire);
+                if (done.compareAndSet(false, true)) {
+                    callback.onContactName(phoneNumber, resolved);
+                }
+            });
+        });
+    }
+}
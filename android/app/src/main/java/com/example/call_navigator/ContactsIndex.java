@@ -0,0 +1,388 @@
+package com.example.call_navigator;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory index of contact phone numbers to display names.
+ * Loaded once in bulk on a background thread, then kept up to date by applying only
+ * the changes since the last CONTACT_LAST_UPDATED_TIMESTAMP / CONTACT_DELETED_TIMESTAMP
+ * watermarks, so call screens can resolve names without querying the provider.
+ */
+public final class ContactsIndex {
+    private static final String TAG = "ContactsIndex";
+    private static ContactsIndex instance;
+
+    // Contacts provider tends to fire several change notifications per edit
+    private static final long REFRESH_DEBOUNCE_MS = 2000;
+    // Retry schedule for a failed full load, doubling up to the cap
+    private static final long BUILD_RETRY_MS = 30_000;
+    private static final long MAX_BUILD_RETRY_MS = 10 * 60_000;
+    // Rough per-entry overhead (map node, entry object, string headers) for memory estimates
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    public static final class Entry {
+        public final long contactId;
+        public final String name;
+        public final String number;
+
+        Entry(long contactId, String name, String number) {
+            this.contactId = contactId;
+            this.name = name;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Change notifications, delivered on the index thread.
+     */
+    public interface Listener {
+        // Full load finished; read everything from entries()
+        void onContactsLoaded();
+        // Incremental refresh: numbers owned by removed contact ids are gone, added entries are new
+        void onContactsChanged(Collection<Long> removedContactIds, List<Entry> added);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Readers may be on any thread; all writes happen on the index thread
+    private final Map<String, Entry> entriesByKey = new ConcurrentHashMap<>();
+    // Index thread only: which lookup keys each contact owns, so edits/deletes can be applied
+    private final Map<Long, List<String>> keysByContact = new HashMap<>();
+
+    private Context appContext;
+    private Handler handler;
+    private ContentObserver observer;
+    private volatile boolean ready = false;
+    private boolean started = false;
+
+    private long updatedWatermark = 0;
+    private long deletedWatermark = 0;
+    private long buildRetryMs = BUILD_RETRY_MS;
+
+    // Metrics
+    private volatile long buildTimeMs = -1;
+    private volatile long lastRefreshTimeMs = -1;
+    private volatile long estimatedBytes = 0;
+    private volatile int refreshCount = 0;
+    private volatile int contactCount = 0;
+
+    private ContactsIndex() {}
+
+    public static synchronized ContactsIndex getInstance() {
+        if (instance == null) {
+            instance = new ContactsIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the background build if it hasn't been started yet.
+     * Safe to call repeatedly; does nothing until READ_CONTACTS is granted.
+     */
+    public synchronized void start(Context context) {
+        if (started || context == null) return;
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        if (!hasContactsPermission(app)) {
+            Log.d(TAG, "READ_CONTACTS not granted, index build deferred");
+            return;
+        }
+        started = true;
+        appContext = app;
+        HandlerThread thread = new HandlerThread("contacts-index");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(this::buildFull);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Resolve a display name from memory. Only meaningful once {@link #isReady()} is true.
+     */
+    public String lookupName(String phoneNumber) {
+        Entry entry = lookup(phoneNumber);
+        return entry != null ? entry.name : null;
+    }
+
+    public Entry lookup(String phoneNumber) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        if (key == null) return null;
+        return entriesByKey.get(key);
+    }
+
+    public int size() {
+        return entriesByKey.size();
+    }
+
+    /**
+     * Live view of all indexed numbers; safe to iterate from any thread.
+     */
+    public Collection<Entry> entries() {
+        return entriesByKey.values();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (ready) listener.onContactsLoaded();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("entries", entriesByKey.size());
+        stats.put("contacts", contactCount);
+        stats.put("buildTimeMs", buildTimeMs);
+        stats.put("lastRefreshTimeMs", lastRefreshTimeMs);
+        stats.put("refreshCount", refreshCount);
+        stats.put("estimatedBytes", estimatedBytes);
+        return stats;
+    }
+
+    // ===== Index thread =====
+
+    private void buildFull() {
+        long start = SystemClock.elapsedRealtime();
+        ContentResolver resolver = appContext.getContentResolver();
+        String[] projection = new String[] {
+                ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+                ContactsContract.CommonDataKinds.Phone.NUMBER,
+                ContactsContract.CommonDataKinds.Phone.CONTACT_LAST_UPDATED_TIMESTAMP
+        };
+        Cursor cursor = null;
+        boolean loaded = false;
+        try {
+            cursor = resolver.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, projection, null, null, null);
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    long contactId = cursor.getLong(0);
+                    String name = cursor.getString(1);
+                    String number = cursor.getString(2);
+                    long updated = cursor.getLong(3);
+                    addEntry(contactId, name, number);
+                    if (updated > updatedWatermark) updatedWatermark = updated;
+                }
+                loaded = true;
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "Full contacts load failed", t);
+        } finally {
+            if (cursor != null) try { cursor.close(); } catch (Throwable ignored) {}
+        }
+        if (!loaded) {
+            // Stay not ready, so ContactUtils keeps querying the provider directly, and try again
+            entriesByKey.clear();
+            keysByContact.clear();
+            contactCount = 0;
+            updatedWatermark = 0;
+            long delay = buildRetryMs;
+            buildRetryMs = Math.min(buildRetryMs * 2, MAX_BUILD_RETRY_MS);
+            Log.w(TAG, "Contacts index not built, retrying in " + delay + "ms");
+            handler.postDelayed(this::buildFull, delay);
+            return;
+        }
+        buildRetryMs = BUILD_RETRY_MS;
+        // Anything deleted before now is already absent from the full load
+        deletedWatermark = System.currentTimeMillis();
+        buildTimeMs = SystemClock.elapsedRealtime() - start;
+        recomputeEstimatedBytes();
+        ready = true;
+        registerObserver();
+        for (Listener l : listeners) {
+            try { l.onContactsLoaded(); } catch (Throwable ignored) {}
+        }
+        Log.d(TAG, "Contacts index built: " + entriesByKey.size() + " numbers in " + buildTimeMs
+                + "ms (~" + (estimatedBytes / 1024) + " KB)");
+    }
+
+    private void refreshIncremental() {
+        if (!ready) return;
+        long start = SystemClock.elapsedRealtime();
+        ContentResolver resolver = appContext.getContentResolver();
+
+        // 1. Contacts touched since the watermark: drop their old numbers, re-add current ones
+        Set<Long> changedIds = new HashSet<>();
+        Set<Long> removedIds = new HashSet<>();
+        List<Entry> added = new ArrayList<>();
+        long newUpdatedWatermark = updatedWatermark;
+        Cursor cursor = null;
+        try {
+            cursor = resolver.query(
+                    ContactsContract.Contacts.CONTENT_URI,
+                    new String[] { ContactsContract.Contacts._ID, ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP },
+                    ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                    new String[] { String.valueOf(updatedWatermark) },
+                    null);
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    changedIds.add(cursor.getLong(0));
+                    long updated = cursor.getLong(1);
+                    if (updated > newUpdatedWatermark) newUpdatedWatermark = updated;
+                }
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "Changed contacts query failed", t);
+        } finally {
+            if (cursor != null) try { cursor.close(); } catch (Throwable ignored) {}
+            cursor = null;
+        }
+
+        if (!changedIds.isEmpty()) {
+            for (Long id : changedIds) {
+                if (removeContact(id)) removedIds.add(id);
+            }
+            try {
+                cursor = resolver.query(
+                        ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+                        new String[] {
+                                ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+                                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+                                ContactsContract.CommonDataKinds.Phone.NUMBER
+                        },
+                        ContactsContract.CommonDataKinds.Phone.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                        new String[] { String.valueOf(updatedWatermark) },
+                        null);
+                if (cursor != null) {
+                    while (cursor.moveToNext()) {
+                        Entry entry = addEntry(cursor.getLong(0), cursor.getString(1), cursor.getString(2));
+                        if (entry != null) added.add(entry);
+                    }
+                }
+            } catch (Throwable t) {
+                Log.e(TAG, "Changed numbers query failed", t);
+            } finally {
+                if (cursor != null) try { cursor.close(); } catch (Throwable ignored) {}
+                cursor = null;
+            }
+        }
+        updatedWatermark = newUpdatedWatermark;
+
+        // 2. Contacts deleted since the watermark
+        int deleted = 0;
+        long newDeletedWatermark = deletedWatermark;
+        try {
+            cursor = resolver.query(
+                    ContactsContract.DeletedContacts.CONTENT_URI,
+                    new String[] { ContactsContract.DeletedContacts.CONTACT_ID, ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP },
+                    ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?",
+                    new String[] { String.valueOf(deletedWatermark) },
+                    null);
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    long contactId = cursor.getLong(0);
+                    if (removeContact(contactId)) {
+                        removedIds.add(contactId);
+                        deleted++;
+                    }
+                    long ts = cursor.getLong(1);
+                    if (ts > newDeletedWatermark) newDeletedWatermark = ts;
+                }
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "Deleted contacts query failed", t);
+        } finally {
+            if (cursor != null) try { cursor.close(); } catch (Throwable ignored) {}
+        }
+        deletedWatermark = newDeletedWatermark;
+
+        // A changed contact may have gained a photo
+        if (!changedIds.isEmpty()) ContactPhotoCache.getInstance().clearMisses();
+        refreshCount++;
+        lastRefreshTimeMs = SystemClock.elapsedRealtime() - start;
+        recomputeEstimatedBytes();
+        Log.d(TAG, "Contacts index refreshed: " + changedIds.size() + " changed, " + deleted
+                + " deleted in " + lastRefreshTimeMs + "ms");
+        if (!removedIds.isEmpty() || !added.isEmpty()) {
+            for (Listener l : listeners) {
+                try { l.onContactsChanged(removedIds, added); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    private Entry addEntry(long contactId, String name, String number) {
+        if (name == null || name.trim().isEmpty()) return null;
+        String key = PhoneNumberUtils.toLookupKey(number);
+        if (key == null) return null;
+        // First contact to claim a number wins, matching PhoneLookup's first-row behaviour
+        if (entriesByKey.containsKey(key)) return null;
+        Entry entry = new Entry(contactId, name, number);
+        entriesByKey.put(key, entry);
+        List<String> keys = keysByContact.get(contactId);
+        if (keys == null) {
+            keys = new ArrayList<>(2);
+            keysByContact.put(contactId, keys);
+        }
+        keys.add(key);
+        return entry;
+    }
+
+    private boolean removeContact(long contactId) {
+        List<String> keys = keysByContact.remove(contactId);
+        if (keys == null) return false;
+        for (String key : keys) {
+            Entry e = entriesByKey.get(key);
+            if (e != null && e.contactId == contactId) {
+                entriesByKey.remove(key);
+            }
+        }
+        return true;
+    }
+
+    private void recomputeEstimatedBytes() {
+        contactCount = keysByContact.size();
+        long bytes = 0;
+        for (Map.Entry<String, Entry> e : entriesByKey.entrySet()) {
+            Entry entry = e.getValue();
+            bytes += ENTRY_OVERHEAD_BYTES + 2L * e.getKey().length();
+            if (entry.name != null) bytes += 2L * entry.name.length();
+            if (entry.number != null) bytes += 2L * entry.number.length();
+        }
+        estimatedBytes = bytes;
+    }
+
+    private final Runnable refreshRunnable = this::refreshIncremental;
+
+    private void registerObserver() {
+        if (observer != null) return;
+        observer = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                handler.removeCallbacks(refreshRunnable);
+                handler.postDelayed(refreshRunnable, REFRESH_DEBOUNCE_MS);
+            }
+        };
+        try {
+            appContext.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, observer);
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to register contacts observer", t);
+        }
+    }
+
+    private static boolean hasContactsPermission(Context context) {
+        try {
+            return context.checkSelfPermission(android.Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED;
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+}
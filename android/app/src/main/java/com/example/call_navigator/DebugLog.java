@@ -0,0 +1,150 @@
+package com.example.call_navigator;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Debug logging that also reaches the Flutter console. Entries go to logcat immediately and into
+ * a ring buffer that is flushed to Dart as one "debugLogBatch" call on a short timer (or via
+ * {@link #flush()}), instead of one platform-channel message per line. Messages are formatted only
+ * when their level passes the gate. {@link #ENABLED} is a constant false in release builds, so
+ * the gate in each method compiles the logging away there.
+ */
+public final class DebugLog {
+    public static final boolean ENABLED = BuildConfig.DEBUG;
+
+    private static final int CAPACITY = 256;
+    private static final long FLUSH_INTERVAL_MS = 500;
+
+    // Levels are android.util.Log priorities
+    private static volatile int minLevel = Log.DEBUG;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] levels = new int[CAPACITY];
+    private static final String[] tags = new String[CAPACITY];
+    private static final String[] messages = new String[CAPACITY];
+    // Guarded by DebugLog.class
+    private static int head;
+    private static int count;
+    private static long dropped;
+    private static boolean flushScheduled;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Runnable flushTask = DebugLog::flushNow;
+
+    private DebugLog() {}
+
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return ENABLED && level >= minLevel;
+    }
+
+    public static void d(String tag, String msg) {
+        if (isLoggable(Log.DEBUG)) append(Log.DEBUG, tag, msg);
+    }
+
+    /** Formats with {@link String#format} only if DEBUG is loggable */
+    public static void d(String tag, String format, Object... args) {
+        if (isLoggable(Log.DEBUG)) append(Log.DEBUG, tag, String.format(Locale.US, format, args));
+    }
+
+    public static void w(String tag, String msg) {
+        if (isLoggable(Log.WARN)) append(Log.WARN, tag, msg);
+    }
+
+    public static void e(String tag, String msg) {
+        if (isLoggable(Log.ERROR)) append(Log.ERROR, tag, msg);
+    }
+
+    private static void append(int level, String tag, String msg) {
+        Log.println(level, tag, msg);
+        boolean schedule;
+        synchronized (DebugLog.class) {
+            int i = (head + count) % CAPACITY;
+            if (count == CAPACITY) {
+                // Full: overwrite the oldest
+                head = (head + 1) % CAPACITY;
+                dropped++;
+            } else {
+                count++;
+            }
+            times[i] = System.currentTimeMillis();
+            levels[i] = level;
+            tags[i] = tag;
+            messages[i] = msg;
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (schedule) mainHandler.postDelayed(flushTask, FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Send buffered entries to Dart now. Safe from any thread.
+     */
+    public static void flush() {
+        if (!ENABLED) return;
+        mainHandler.removeCallbacks(flushTask);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            flushNow();
+        } else {
+            mainHandler.post(flushTask);
+        }
+    }
+
+    // Main thread (platform channel calls must be)
+    private static void flushNow() {
+        if (CallTrackingPlugin.channel == null) {
+            // Engine not attached yet: keep the entries and try again later
+            synchronized (DebugLog.class) {
+                if (count == 0) {
+                    flushScheduled = false;
+                    return;
+                }
+            }
+            mainHandler.postDelayed(flushTask, FLUSH_INTERVAL_MS);
+            return;
+        }
+        List<Map<String, Object>> batch;
+        long lost;
+        synchronized (DebugLog.class) {
+            flushScheduled = false;
+            if (count == 0) return;
+            batch = new ArrayList<>(count);
+            for (int n = 0; n < count; n++) {
+                int i = (head + n) % CAPACITY;
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("t", times[i]);
+                entry.put("level", levels[i]);
+                entry.put("tag", tags[i]);
+                entry.put("msg", messages[i]);
+                batch.add(entry);
+                tags[i] = null;
+                messages[i] = null;
+            }
+            head = 0;
+            count = 0;
+            lost = dropped;
+            dropped = 0;
+        }
+        if (lost > 0) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("t", System.currentTimeMillis());
+            entry.put("level", Log.WARN);
+            entry.put("tag", "DebugLog");
+            entry.put("msg", lost + " entries dropped (buffer full)");
+            batch.add(0, entry);
+        }
+        try {
+            CallTrackingPlugin.channel.invokeMethod("debugLogBatch", batch);
+        } catch (Throwable ignored) {}
+    }
+}
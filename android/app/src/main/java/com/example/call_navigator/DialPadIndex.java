@@ -0,0 +1,467 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dial-pad predictive search over contacts and locally known leads.
+ * A digit trie holds every record under its normalized number and under the keypad (T9)
+ * encoding of its name. Each node along a key's path lists the record, so any prefix of a key
+ * finds it, and each keystroke is a walk of at most a few nodes followed by reading the first k
+ * live entries of pre-sorted, capped lists. Built once from {@link ContactsIndex} and
+ * {@link LeadDirectory}, then updated incrementally from their change notifications.
+ */
+public final class DialPadIndex {
+    private static final String TAG = "DialPadIndex";
+    private static DialPadIndex instance;
+
+    public static final int DEFAULT_LIMIT = 10;
+    // Longer keys add nodes without making matches more useful
+    private static final int MAX_KEY_DIGITS = 16;
+    // Best-ranked records kept per node and match kind; short prefixes match thousands
+    private static final int MAX_IDS_PER_NODE = 32;
+    // Rebuild once this share of records is dead, so lists don't fill up with tombstones
+    private static final int COMPACT_MIN_REMOVED = 256;
+
+    // Match kinds, in result order
+    private static final int KIND_NUMBER = 0;
+    private static final int KIND_NAME_START = 1;
+    private static final int KIND_NAME_WORD = 2;
+    private static final int KIND_COUNT = 3;
+
+    // Keypad digit for 'a'..'z'
+    private static final char[] T9 = "22233344455566677778889999".toCharArray();
+
+    public static final String SOURCE_LEAD = "lead";
+    public static final String SOURCE_CONTACT = "contact";
+
+    private static final class Record {
+        final String name;
+        final String number;
+        final String numberKey;
+        final boolean isLead;
+        final long contactId;
+        boolean removed;
+
+        Record(String name, String number, String numberKey, boolean isLead, long contactId) {
+            this.name = name;
+            this.number = number;
+            this.numberKey = numberKey;
+            this.isLead = isLead;
+            this.contactId = contactId;
+        }
+    }
+
+    // Leads first, then by name
+    private static final Comparator<Record> RECORD_ORDER = (a, b) -> {
+        if (a.isLead != b.isLead) return a.isLead ? -1 : 1;
+        return a.name.compareToIgnoreCase(b.name);
+    };
+
+    private static final class Node {
+        Node[] children;
+        // Record ids per match kind, each kept in RECORD_ORDER
+        final int[][] ids = new int[KIND_COUNT][];
+        final int[] sizes = new int[KIND_COUNT];
+
+        Node child(int digit, boolean create) {
+            if (children == null) {
+                if (!create) return null;
+                children = new Node[10];
+            }
+            Node c = children[digit];
+            if (c == null && create) {
+                c = new Node();
+                children[digit] = c;
+            }
+            return c;
+        }
+    }
+
+    /** Whole trie state, swapped atomically on full rebuild */
+    private static final class Trie {
+        final Node root = new Node();
+        final List<Record> records = new ArrayList<>();
+        // Index-thread bookkeeping for incremental updates
+        final Map<Long, List<Integer>> contactRecords = new HashMap<>();
+        final Map<String, Integer> leadRecords = new HashMap<>();
+        int nodeCount = 1;
+        int removedCount = 0;
+    }
+
+    private Handler handler;
+    private boolean started = false;
+    // Guarded by this: searches and mutations are short, full builds happen outside the lock
+    private Trie trie = new Trie();
+    private volatile boolean ready = false;
+
+    // Metrics
+    private volatile long buildTimeMs = -1;
+    private volatile long lastSearchMicros = -1;
+    private volatile long maxSearchMicros = 0;
+    private volatile int incrementalUpdates = 0;
+
+    private DialPadIndex() {}
+
+    public static synchronized DialPadIndex getInstance() {
+        if (instance == null) {
+            instance = new DialPadIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to contacts and leads and build in the background. Safe to call repeatedly.
+     */
+    public synchronized void start(Context context) {
+        if (started || context == null) return;
+        started = true;
+        HandlerThread thread = new HandlerThread("dialpad-index");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+
+        ContactsIndex.getInstance().addListener(new ContactsIndex.Listener() {
+            @Override
+            public void onContactsLoaded() {
+                handler.post(DialPadIndex.this::rebuild);
+            }
+
+            @Override
+            public void onContactsChanged(Collection<Long> removedContactIds, List<ContactsIndex.Entry> added) {
+                final List<Long> removed = new ArrayList<>(removedContactIds);
+                final List<ContactsIndex.Entry> entries = new ArrayList<>(added);
+                handler.post(() -> applyContactChanges(removed, entries));
+            }
+        });
+        LeadDirectory.getInstance().addListener(() -> handler.post(this::applyLeadChanges));
+        LeadDirectory.getInstance().preload(context);
+        handler.post(this::rebuild);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Top matches for a dial-pad query (digits only; other characters are ignored).
+     * Each result has name, number, source ("lead" or "contact") and matchType ("number" or "name").
+     */
+    public List<Map<String, Object>> search(String query, int limit) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        List<Map<String, Object>> results = new ArrayList<>();
+        String digits = digitsOf(query, MAX_KEY_DIGITS);
+        if (digits.isEmpty() || limit <= 0) return results;
+
+        synchronized (this) {
+            Node node = trie.root;
+            for (int i = 0; i < digits.length() && node != null; i++) {
+                node = node.child(digits.charAt(i) - '0', false);
+            }
+            if (node != null) {
+                // The same number can be reachable through several keys, or as both a lead and a contact
+                Set<String> seen = new HashSet<>();
+                for (int kind = 0; kind < KIND_COUNT && results.size() < limit; kind++) {
+                    int[] ids = node.ids[kind];
+                    int size = node.sizes[kind];
+                    for (int i = 0; i < size && results.size() < limit; i++) {
+                        Record r = trie.records.get(ids[i]);
+                        if (r.removed || !seen.add(r.numberKey)) continue;
+                        Map<String, Object> match = new HashMap<>();
+                        match.put("name", r.name);
+                        match.put("number", r.number);
+                        match.put("source", r.isLead ? SOURCE_LEAD : SOURCE_CONTACT);
+                        match.put("matchType", kind == KIND_NUMBER ? "number" : "name");
+                        results.add(match);
+                    }
+                }
+            }
+        }
+
+        long micros = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+        lastSearchMicros = micros;
+        if (micros > maxSearchMicros) maxSearchMicros = micros;
+        return results;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("records", trie.records.size() - trie.removedCount);
+            stats.put("removedRecords", trie.removedCount);
+            stats.put("nodes", trie.nodeCount);
+        }
+        stats.put("ready", ready);
+        stats.put("buildTimeMs", buildTimeMs);
+        stats.put("incrementalUpdates", incrementalUpdates);
+        stats.put("lastSearchMicros", lastSearchMicros);
+        stats.put("maxSearchMicros", maxSearchMicros);
+        return stats;
+    }
+
+    // ===== Index thread =====
+
+    private void rebuild() {
+        build(LeadDirectory.getInstance().leads(), ContactsIndex.getInstance().isReady()
+                ? ContactsIndex.getInstance().entries()
+                : Collections.<ContactsIndex.Entry>emptyList());
+    }
+
+    /** Replace the whole index with the given leads and contacts */
+    void build(Collection<LeadDirectory.Lead> leads, Collection<ContactsIndex.Entry> contacts) {
+        long start = SystemClock.elapsedRealtime();
+        Trie next = new Trie();
+        List<Record> pending = new ArrayList<>();
+        Set<String> leadKeys = new HashSet<>();
+        for (LeadDirectory.Lead lead : leads) {
+            Record r = leadRecord(lead);
+            if (r != null && leadKeys.add(r.numberKey)) pending.add(r);
+        }
+        for (ContactsIndex.Entry entry : contacts) {
+            Record r = contactRecord(entry);
+            if (r != null) pending.add(r);
+        }
+        // Inserting in record order leaves every node list sorted without per-node sorting
+        Record[] sorted = pending.toArray(new Record[0]);
+        Arrays.sort(sorted, RECORD_ORDER);
+        for (Record r : sorted) {
+            append(next, r);
+        }
+
+        synchronized (this) {
+            trie = next;
+        }
+        ready = true;
+        buildTimeMs = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "Dial pad index built: " + sorted.length + " records, " + next.nodeCount + " nodes in " + buildTimeMs + "ms");
+    }
+
+    private void applyContactChanges(List<Long> removedContactIds, List<ContactsIndex.Entry> added) {
+        if (!ready) return;
+        synchronized (this) {
+            for (Long contactId : removedContactIds) {
+                List<Integer> ids = trie.contactRecords.remove(contactId);
+                if (ids == null) continue;
+                for (int id : ids) markRemoved(trie, id);
+            }
+            for (ContactsIndex.Entry entry : added) {
+                Record r = contactRecord(entry);
+                if (r != null) insertSorted(trie, r);
+            }
+        }
+        afterIncremental();
+    }
+
+    private void applyLeadChanges() {
+        if (!ready) return;
+        Map<String, LeadDirectory.Lead> latest = new HashMap<>();
+        for (LeadDirectory.Lead lead : LeadDirectory.getInstance().leads()) {
+            String key = PhoneNumberUtils.toLookupKey(lead.phoneNumber);
+            if (key != null && displayName(lead.name) != null) latest.put(key, lead);
+        }
+        synchronized (this) {
+            // Drop leads that disappeared or whose name/number changed, then add what's new
+            List<String> stale = new ArrayList<>();
+            for (Map.Entry<String, Integer> e : trie.leadRecords.entrySet()) {
+                Record existing = trie.records.get(e.getValue());
+                LeadDirectory.Lead lead = latest.get(e.getKey());
+                if (lead == null || !existing.name.equals(displayName(lead.name)) || !existing.number.equals(lead.phoneNumber)) {
+                    stale.add(e.getKey());
+                } else {
+                    latest.remove(e.getKey());
+                }
+            }
+            for (String key : stale) {
+                markRemoved(trie, trie.leadRecords.remove(key));
+            }
+            for (LeadDirectory.Lead lead : latest.values()) {
+                Record r = leadRecord(lead);
+                if (r != null) insertSorted(trie, r);
+            }
+        }
+        afterIncremental();
+    }
+
+    private void afterIncremental() {
+        incrementalUpdates++;
+        boolean compact;
+        synchronized (this) {
+            compact = trie.removedCount >= COMPACT_MIN_REMOVED && trie.removedCount * 4 > trie.records.size();
+        }
+        if (compact) {
+            Log.d(TAG, "Compacting dial pad index");
+            rebuild();
+        }
+    }
+
+    private static Record leadRecord(LeadDirectory.Lead lead) {
+        String name = displayName(lead.name);
+        String key = PhoneNumberUtils.toLookupKey(lead.phoneNumber);
+        if (name == null || key == null) return null;
+        return new Record(name, lead.phoneNumber, key, true, -1);
+    }
+
+    private static Record contactRecord(ContactsIndex.Entry entry) {
+        String name = displayName(entry.name);
+        String key = PhoneNumberUtils.toLookupKey(entry.number);
+        if (name == null || key == null) return null;
+        return new Record(name, entry.number, key, false, entry.contactId);
+    }
+
+    private static String displayName(String name) {
+        if (name == null) return null;
+        String trimmed = name.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /** Add a record during a full build, where records arrive already in order */
+    private static void append(Trie t, Record r) {
+        int id = register(t, r);
+        forEachKey(r, (key, kind) -> {
+            Node node = t.root;
+            for (int i = 0; i < key.length(); i++) {
+                node = child(t, node, key.charAt(i) - '0');
+                int size = node.sizes[kind];
+                // A full list already holds better-ranked records; a repeat is a second key sharing this prefix
+                if (size >= MAX_IDS_PER_NODE || (size > 0 && node.ids[kind][size - 1] == id)) continue;
+                node.ids[kind] = grow(node.ids[kind], size + 1);
+                node.ids[kind][size] = id;
+                node.sizes[kind] = size + 1;
+            }
+        });
+    }
+
+    /**
+     * Add a record to a live trie, keeping each node list in order. A record pushed off the end
+     * of a full list stays off until the next rebuild, even if records above it are removed.
+     */
+    private static void insertSorted(Trie t, Record r) {
+        int id = register(t, r);
+        forEachKey(r, (key, kind) -> {
+            Node node = t.root;
+            for (int i = 0; i < key.length(); i++) {
+                node = child(t, node, key.charAt(i) - '0');
+                int size = node.sizes[kind];
+                int[] ids = node.ids[kind];
+                int lo = 0, hi = size;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (RECORD_ORDER.compare(t.records.get(ids[mid]), r) <= 0) lo = mid + 1; else hi = mid;
+                }
+                if (lo >= MAX_IDS_PER_NODE || (lo > 0 && ids[lo - 1] == id)) continue;
+                int keep = Math.min(size, MAX_IDS_PER_NODE - 1);
+                ids = grow(ids, keep + 1);
+                System.arraycopy(ids, lo, ids, lo + 1, keep - lo);
+                ids[lo] = id;
+                node.ids[kind] = ids;
+                node.sizes[kind] = keep + 1;
+            }
+        });
+    }
+
+    private static int register(Trie t, Record r) {
+        int id = t.records.size();
+        t.records.add(r);
+        if (r.isLead) {
+            t.leadRecords.put(r.numberKey, id);
+        } else {
+            List<Integer> ids = t.contactRecords.get(r.contactId);
+            if (ids == null) {
+                ids = new ArrayList<>(1);
+                t.contactRecords.put(r.contactId, ids);
+            }
+            ids.add(id);
+        }
+        return id;
+    }
+
+    private static void markRemoved(Trie t, Integer id) {
+        if (id == null) return;
+        Record r = t.records.get(id);
+        if (!r.removed) {
+            r.removed = true;
+            t.removedCount++;
+        }
+    }
+
+    private static Node child(Trie t, Node node, int digit) {
+        Node next = node.child(digit, false);
+        if (next == null) {
+            next = node.child(digit, true);
+            t.nodeCount++;
+        }
+        return next;
+    }
+
+    private static int[] grow(int[] ids, int needed) {
+        if (ids == null) return new int[Math.max(2, needed)];
+        if (ids.length >= needed) return ids;
+        return Arrays.copyOf(ids, Math.min(MAX_IDS_PER_NODE, Math.max(needed, ids.length * 2)));
+    }
+
+    private interface KeyVisitor {
+        void visit(String key, int kind);
+    }
+
+    /**
+     * Every key a record is reachable under: the full number and its 10-digit lookup key, the
+     * keypad encoding of the whole name, and of the name from each later word onwards.
+     */
+    private static void forEachKey(Record r, KeyVisitor visitor) {
+        Set<String> keys = new HashSet<>();
+        String fullDigits = digitsOf(r.number, MAX_KEY_DIGITS);
+        if (!fullDigits.isEmpty() && keys.add(fullDigits)) visitor.visit(fullDigits, KIND_NUMBER);
+        if (keys.add(r.numberKey)) visitor.visit(r.numberKey, KIND_NUMBER);
+
+        String[] words = normalizeName(r.name).split("[^a-z0-9]+");
+        StringBuilder tail = new StringBuilder();
+        List<String> suffixes = new ArrayList<>(words.length);
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (words[i].isEmpty()) continue;
+            tail.insert(0, toKeypad(words[i]));
+            suffixes.add(0, tail.length() > MAX_KEY_DIGITS ? tail.substring(0, MAX_KEY_DIGITS) : tail.toString());
+        }
+        for (int i = 0; i < suffixes.size(); i++) {
+            String key = suffixes.get(i);
+            if (keys.add(key)) visitor.visit(key, i == 0 ? KIND_NAME_START : KIND_NAME_WORD);
+        }
+    }
+
+    private static String normalizeName(String name) {
+        // Strip accents so "José" is reachable as 5673
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}+", "").toLowerCase();
+    }
+
+    private static String toKeypad(String word) {
+        char[] out = new char[word.length()];
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            out[i] = (c >= 'a' && c <= 'z') ? T9[c - 'a'] : c;
+        }
+        return new String(out);
+    }
+
+    private static String digitsOf(String s, int max) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(Math.min(s.length(), max));
+        for (int i = 0; i < s.length() && sb.length() < max; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.call_navigator;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plays a whole DTMF string (IVR menu paths, extensions) natively, so the spacing of tones is
+ * set by a dedicated scheduler instead of platform channel round trips. Digits 0-9, *, # and
+ * A-D are tones; ',' or 'p' is a pause; ';' or 'w' waits until {@link #resume} (the caller heard
+ * the next prompt). Separators (space, '-', '.', parentheses) are ignored. One sequence plays at
+ * a time; starting another, a manual tone, or the call leaving ACTIVE cancels it. Progress is
+ * reported on the main thread.
+ */
+public final class DtmfSequencer {
+    private static final String TAG = "DtmfSequencer";
+    private static DtmfSequencer instance;
+
+    public static final int DEFAULT_TONE_MS = 150;
+    public static final int DEFAULT_GAP_MS = 70;
+    public static final int DEFAULT_PAUSE_MS = 2000;
+    // Shortest tone and gap exchanges reliably detect
+    private static final int MIN_TONE_MS = 40;
+    private static final int MIN_GAP_MS = 40;
+
+    public static final String PROGRESS_TONE = "tone";
+    public static final String PROGRESS_PAUSE = "pause";
+    public static final String PROGRESS_WAITING = "waiting";
+    public static final String PROGRESS_DONE = "done";
+    public static final String PROGRESS_CANCELLED = "cancelled";
+    public static final String PROGRESS_CALL_ENDED = "callEnded";
+
+    public interface ProgressListener {
+        /**
+         * @param index position in the normalized sequence the event is about
+         * @param status one of the PROGRESS_* values; done, cancelled and callEnded are final
+         */
+        void onDtmfProgress(int sequenceId, int index, int length, char symbol, String status);
+    }
+
+    private final class Sequence {
+        final int id;
+        final TelecomCall call;
+        final String symbols;
+        final int toneMs;
+        final int gapMs;
+        final int pauseMs;
+        final ProgressListener listener;
+        int index;
+        boolean toneOn;
+        boolean waiting;
+        final Runnable step = () -> step(this);
+
+        Sequence(int id, TelecomCall call, String symbols, int toneMs, int gapMs, int pauseMs, ProgressListener listener) {
+            this.id = id;
+            this.call = call;
+            this.symbols = symbols;
+            this.toneMs = toneMs;
+            this.gapMs = gapMs;
+            this.pauseMs = pauseMs;
+            this.listener = listener;
+        }
+    }
+
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Scheduler thread only
+    private Sequence current;
+    // Guarded by this
+    private int nextId = 1;
+
+    private DtmfSequencer() {
+        HandlerThread thread = new HandlerThread("dtmf");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized DtmfSequencer getInstance() {
+        if (instance == null) {
+            instance = new DtmfSequencer();
+        }
+        return instance;
+    }
+
+    /**
+     * Validate and strip separators; pause and wait characters become ',' and ';'.
+     *
+     * @throws IllegalArgumentException on a character that is none of the above
+     */
+    public static String normalize(String digits) {
+        if (digits == null) throw new IllegalArgumentException("No DTMF digits");
+        StringBuilder sb = new StringBuilder(digits.length());
+        for (int i = 0; i < digits.length(); i++) {
+            char c = Character.toUpperCase(digits.charAt(i));
+            if ((c >= '0' && c <= '9') || c == '*' || c == '#' || (c >= 'A' && c <= 'D')) {
+                sb.append(c);
+            } else if (c == ',' || c == 'P') {
+                sb.append(',');
+            } else if (c == ';' || c == 'W') {
+                sb.append(';');
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                throw new IllegalArgumentException("Not a DTMF character: '" + digits.charAt(i) + "'");
+            }
+        }
+        if (sb.length() == 0) throw new IllegalArgumentException("No DTMF digits");
+        return sb.toString();
+    }
+
+    /**
+     * Start playing on the given call, cancelling any sequence already playing.
+     *
+     * @return the sequence id reported with progress
+     * @throws IllegalArgumentException if the digits are invalid
+     */
+    public int play(TelecomCall call, String digits, int toneMs, int gapMs, int pauseMs, ProgressListener listener) {
+        String symbols = normalize(digits);
+        int id;
+        synchronized (this) {
+            id = nextId++;
+        }
+        Sequence seq = new Sequence(id, call, symbols, Math.max(MIN_TONE_MS, toneMs),
+                Math.max(MIN_GAP_MS, gapMs), Math.max(0, pauseMs), listener);
+        handler.post(() -> {
+            stopCurrent(PROGRESS_CANCELLED);
+            current = seq;
+            step(seq);
+        });
+        return id;
+    }
+
+    /**
+     * Start a single tone (manual keypad), cancelling any sequence first so the two never
+     * interleave.
+     */
+    public void startTone(TelecomCall call, char digit) {
+        handler.post(() -> {
+            stopCurrent(PROGRESS_CANCELLED);
+            try { call.playDtmfTone(digit); } catch (Throwable t) { Log.e(TAG, "DTMF tone failed", t); }
+        });
+    }
+
+    public void stopTone(TelecomCall call) {
+        handler.post(() -> {
+            try { call.stopDtmfTone(); } catch (Throwable t) { Log.e(TAG, "DTMF stop failed", t); }
+        });
+    }
+
+    /** Continue a sequence stopped at a wait character */
+    public void resume() {
+        handler.post(() -> {
+            Sequence seq = current;
+            if (seq == null || !seq.waiting) return;
+            seq.waiting = false;
+            seq.index++;
+            step(seq);
+        });
+    }
+
+    /** Stop whatever is playing; the tone in progress is cut off */
+    public void cancel() {
+        handler.post(() -> stopCurrent(PROGRESS_CANCELLED));
+    }
+
+    /**
+     * The call left ACTIVE (held or disconnected): end its sequence as callEnded, including one
+     * stopped at a wait character, which would otherwise never step again.
+     */
+    public void onCallLeftActive(TelecomCall call) {
+        handler.post(() -> {
+            Sequence seq = current;
+            if (seq != null && seq.call.equals(call)) stopCurrent(PROGRESS_CALL_ENDED);
+        });
+    }
+
+    // Scheduler thread
+    private void step(Sequence seq) {
+        if (seq != current) return;
+        try {
+            if (seq.toneOn) {
+                seq.call.stopDtmfTone();
+                seq.toneOn = false;
+                seq.index++;
+                handler.postDelayed(seq.step, seq.gapMs);
+                return;
+            }
+            if (seq.index >= seq.symbols.length()) {
+                finish(seq, PROGRESS_DONE);
+                return;
+            }
+            if (seq.call.getState() != TelecomCall.STATE_ACTIVE) {
+                finish(seq, PROGRESS_CALL_ENDED);
+                return;
+            }
+            char c = seq.symbols.charAt(seq.index);
+            if (c == ',') {
+                report(seq, PROGRESS_PAUSE);
+                seq.index++;
+                handler.postDelayed(seq.step, seq.pauseMs);
+            } else if (c == ';') {
+                seq.waiting = true;
+                report(seq, PROGRESS_WAITING);
+            } else {
+                seq.call.playDtmfTone(c);
+                seq.toneOn = true;
+                report(seq, PROGRESS_TONE);
+                handler.postDelayed(seq.step, seq.toneMs);
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "DTMF sequence " + seq.id + " failed", t);
+            finish(seq, PROGRESS_CALL_ENDED);
+        }
+    }
+
+    // Scheduler thread
+    private void stopCurrent(String status) {
+        Sequence seq = current;
+        if (seq == null) return;
+        handler.removeCallbacks(seq.step);
+        if (seq.toneOn) {
+            try { seq.call.stopDtmfTone(); } catch (Throwable ignored) {}
+            seq.toneOn = false;
+        }
+        finish(seq, status);
+    }
+
+    // Scheduler thread
+    private void finish(Sequence seq, String status) {
+        if (current == seq) current = null;
+        report(seq, status);
+    }
+
+    private void report(Sequence seq, String status) {
+        if (seq.listener == null) return;
+        int index = Math.min(seq.index, seq.symbols.length() - 1);
+        char symbol = seq.symbols.charAt(index);
+        mainHandler.post(() -> {
+            try {
+                seq.listener.onDtmfProgress(seq.id, index, seq.symbols.length(), symbol, status);
+            } catch (Throwable t) {
+                Log.e(TAG, "DTMF progress listener failed", t);
+            }
+        });
+    }
+
+    /**
+     * Progress as sent to Flutter with "onDtmfProgress".
+     */
+    public static Map<String, Object> toMap(int sequenceId, int index, int length, char symbol, String status) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", sequenceId);
+        m.put("index", index);
+        m.put("length", length);
+        m.put("symbol", String.valueOf(symbol));
+        m.put("status", status);
+        return m;
+    }
+}
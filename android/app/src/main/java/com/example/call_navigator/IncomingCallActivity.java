@@ -1,9 +1,11 @@
 package com.example.call_navigator;
 
 import android.app.Activity;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
@@ -15,10 +17,11 @@ import android.view.Gravity;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
 import com.example.call_navigator.PhoneNumberUtils;
 
 /**
@@ -36,12 +39,32 @@ public class IncomingCallActivity extends Activity {
     private Handler timeoutHandler;
     private Runnable timeoutRunnable;
     private static final long INCOMING_CALL_TIMEOUT = 30000; // 30 seconds
-    private static final String MISSED_CALL_CHANNEL_ID = "missed_call_channel";
-    private static final int MISSED_CALL_NOTIFICATION_ID = 5001;
+
+    private TextView nameView;
+    private TextView initialsView;
+    private ImageView photoView;
+    private TextView subView;
+    private String number = "Unknown";
+    private String contactName;
+    private final BroadcastReceiver callerInfoReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            try {
+                String updatedNumber = intent.getStringExtra(CallTrackingInCallService.EXTRA_PHONE_NUMBER);
+                String updatedName = intent.getStringExtra(CallTrackingInCallService.EXTRA_CONTACT_NAME);
+                if (PhoneNumberUtils.sameNumber(updatedNumber, number)) {
+                    runOnUiThread(() -> applyContactName(updatedName));
+                }
+            } catch (Throwable e) {
+                Log.e(TAG, "Error in caller info receiver", e);
+            }
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.UI_CREATED);
 
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
@@ -66,7 +89,6 @@ public class IncomingCallActivity extends Activity {
         // Get call information with improved fallback logic
         Intent intent = getIntent();
         String intentNumber = null;
-        String contactName = null;
         
         // Step 1: Try to get from intent extras
         if (intent != null) {
@@ -84,38 +106,60 @@ public class IncomingCallActivity extends Activity {
         String receiverNumber = PhoneStateReceiver.getLastKnownNumber();
         
         // Step 4: Use utility to get best available number
-        String number = PhoneNumberUtils.getBestAvailableNumber(intentNumber, callServiceNumber, receiverNumber);
+        number = PhoneNumberUtils.getBestAvailableNumber(intentNumber, callServiceNumber, receiverNumber);
         
         Log.d(TAG, "Final number for incoming call: " + number + 
                    " (from intent: " + intentNumber + 
                    ", callService: " + callServiceNumber + 
                    ", receiver: " + receiverNumber + ")");
         
-        // Get contact name if we don't have it and number is not Unknown
-        if ((contactName == null || contactName.isEmpty()) && !number.equals("Unknown")) {
-            try {
-                contactName = ContactUtils.getContactName(this, number);
-                Log.d(TAG, "Contact lookup for " + number + " returned: " + contactName);
-            } catch (Throwable e) {
-                Log.e(TAG, "Contact lookup failed for " + number, e);
-            }
+        // Use the best name already known; anything slower is pushed in through
+        // callerInfoReceiver once the screen is visible
+        if (!number.equals("Unknown")) {
+            String resolvedName = CallerIdentityResolver.getInstance().resolveName(this, number);
+            if (resolvedName != null) contactName = resolvedName;
         }
         
-        // Top avatar circle
-        View avatar = new View(this);
+        // Top avatar circle: initials until a photo is available, clipped to a circle by its outline
+        int avatarSize = ContactPhotoCache.avatarSizePx(this);
+        FrameLayout avatar = new FrameLayout(this);
         GradientDrawable avatarBg = new GradientDrawable();
         avatarBg.setColor(Color.parseColor("#2A2F3A"));
         avatarBg.setCornerRadius(2000);
         avatar.setBackground(avatarBg);
-        LinearLayout.LayoutParams avatarParams = new LinearLayout.LayoutParams(
-            (int)(96 * getResources().getDisplayMetrics().density),
-            (int)(96 * getResources().getDisplayMetrics().density)
-        );
+        avatar.setClipToOutline(true);
+        initialsView = new TextView(this);
+        initialsView.setText(contactName != null && !contactName.isEmpty() ? ContactUtils.getInitials(contactName) : "");
+        initialsView.setTextColor(Color.WHITE);
+        initialsView.setTextSize(32);
+        initialsView.setGravity(Gravity.CENTER);
+        avatar.addView(initialsView, new FrameLayout.LayoutParams(
+            FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        photoView = new ImageView(this);
+        photoView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        photoView.setVisibility(View.GONE);
+        avatar.addView(photoView, new FrameLayout.LayoutParams(
+            FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        LinearLayout.LayoutParams avatarParams = new LinearLayout.LayoutParams(avatarSize, avatarSize);
         avatarParams.setMargins(0, 0, 0, (int)(24 * getResources().getDisplayMetrics().density));
         root.addView(avatar, avatarParams);
 
+        // Usually prefetched at ring time; otherwise decoded off the main thread and shown when ready
+        if (!number.equals("Unknown")) {
+            Bitmap photo = ContactPhotoCache.getInstance().getCached(number, avatarSize);
+            if (photo != null) {
+                showPhoto(photo);
+            } else {
+                ContactPhotoCache.getInstance().load(this, number, avatarSize, (photoNumber, bitmap) -> {
+                    if (!isFinishing() && !isDestroyed() && PhoneNumberUtils.sameNumber(photoNumber, number)) {
+                        showPhoto(bitmap);
+                    }
+                });
+            }
+        }
+
         // Primary display text (contact name or number)
-        TextView nameView = new TextView(this);
+        nameView = new TextView(this);
         String primaryText = (contactName != null && !contactName.isEmpty()) ? contactName : number;
         nameView.setText(primaryText);
         nameView.setTextColor(Color.WHITE);
@@ -129,7 +173,7 @@ public class IncomingCallActivity extends Activity {
         root.addView(nameView, nameParams);
 
         // Secondary display text (show number if we have contact name, or "Incoming Call" if only number)
-        TextView subView = new TextView(this);
+        subView = new TextView(this);
         if (contactName != null && !contactName.isEmpty() && !number.equals("Unknown")) {
             // Show number below contact name
             subView.setText(number);
@@ -165,7 +209,6 @@ public class IncomingCallActivity extends Activity {
         // Accept button (large circular)
         Button accept = createIncomingButton("Accept", Color.parseColor("#4CAF50"));
         final String finalNumber = number; // Make number final for lambda
-        final String finalContactName = contactName; // Make contactName final for lambda
         accept.setOnClickListener(v -> {
             try {
                 cancelTimeout();
@@ -175,8 +218,8 @@ public class IncomingCallActivity extends Activity {
                 // Launch ActiveCallActivity
                 Intent activeCallIntent = new Intent(this, ActiveCallActivity.class);
                 activeCallIntent.putExtra(ActiveCallActivity.EXTRA_CALL_NUMBER, finalNumber);
-                if (finalContactName != null && !finalContactName.isEmpty()) {
-                    activeCallIntent.putExtra(ActiveCallActivity.EXTRA_CONTACT_NAME, finalContactName);
+                if (contactName != null && !contactName.isEmpty()) {
+                    activeCallIntent.putExtra(ActiveCallActivity.EXTRA_CONTACT_NAME, contactName);
                 }
                 activeCallIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
                 startActivity(activeCallIntent);
@@ -216,6 +259,18 @@ public class IncomingCallActivity extends Activity {
         root.addView(buttons, buttonContainerParams);
 
         setContentView(root);
+        RingLatencyTracker.getInstance().markOnFirstFrame(root);
+        // The screen is on and the call screen is up; the normal screen timeout applies from here
+        RingLatencyTracker.afterFirstFrame(root, () ->
+                WakeLockManager.getInstance().release(WakeLockManager.Reason.INCOMING_RING));
+        if (contactName != null && !contactName.isEmpty()) {
+            RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.CALLER_CARD);
+        }
+
+        try {
+            ContextCompat.registerReceiver(this, callerInfoReceiver,
+                    new IntentFilter(CallTrackingInCallService.ACTION_CALLER_INFO_UPDATED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        } catch (Throwable ignored) {}
         
         // Set up auto-dismiss timeout
         setupTimeout();
@@ -223,6 +278,29 @@ public class IncomingCallActivity extends Activity {
         Log.d(TAG, "IncomingCallActivity created - Number: " + number + ", Contact: " + contactName + ", Primary: " + primaryText);
     }
     
+    /**
+     * Late-bind a contact name into the already visible caller card.
+     */
+    private void applyContactName(String name) {
+        if (name == null || name.isEmpty() || name.equals(contactName)) return;
+        contactName = name;
+        nameView.setText(name);
+        initialsView.setText(ContactUtils.getInitials(name));
+        RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.CALLER_CARD);
+        if (!number.equals("Unknown")) {
+            subView.setText(number);
+            subView.setTextSize(18);
+        }
+        Log.d(TAG, "Contact name bound late for " + number + ": " + name);
+    }
+
+    private void showPhoto(Bitmap photo) {
+        photoView.setImageBitmap(photo);
+        photoView.setVisibility(View.VISIBLE);
+        initialsView.setVisibility(View.GONE);
+        RingLatencyTracker.getInstance().mark(RingLatencyTracker.Hop.CALLER_CARD);
+    }
+
     private Button createIncomingButton(String text, int color) {
         Button button = new Button(this);
         button.setText(text);
@@ -258,24 +336,12 @@ public class IncomingCallActivity extends Activity {
     
     private void showMissedCallNotification() {
         try {
-            createNotificationChannel();
-            
             Intent intent = getIntent();
             String phoneNumber = intent != null ? intent.getStringExtra(EXTRA_CALL_NUMBER) : "Unknown";
-            String contactName = intent != null ? intent.getStringExtra(EXTRA_CONTACT_NAME) : null;
+            String contactName = this.contactName;
             
             String displayName = (contactName != null && !contactName.isEmpty()) ? contactName : phoneNumber;
-            
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, MISSED_CALL_CHANNEL_ID)
-                    .setSmallIcon(android.R.drawable.ic_menu_call)
-                    .setContentTitle("Missed Call")
-                    .setContentText("Missed call from " + displayName)
-                    .setPriority(NotificationCompat.PRIORITY_HIGH)
-                    .setAutoCancel(true)
-                    .setDefaults(NotificationCompat.DEFAULT_SOUND | NotificationCompat.DEFAULT_VIBRATE);
-            
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
-            notificationManager.notify(MISSED_CALL_NOTIFICATION_ID, builder.build());
+            CallNotifications.getInstance().showMissedCall(this, displayName);
             
             Log.d(TAG, "Missed call notification shown for: " + displayName);
         } catch (Exception e) {
@@ -283,27 +349,12 @@ public class IncomingCallActivity extends Activity {
         }
     }
     
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    MISSED_CALL_CHANNEL_ID,
-                    "Missed Calls",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            channel.setDescription("Notifications for missed calls");
-            channel.enableVibration(true);
-            channel.setVibrationPattern(new long[]{0, 1000, 500, 1000});
-            
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            if (notificationManager != null) {
-                notificationManager.createNotificationChannel(channel);
-            }
-        }
-    }
-    
     @Override
     protected void onDestroy() {
         super.onDestroy();
         cancelTimeout();
+        try {
+            unregisterReceiver(callerInfoReceiver);
+        } catch (Throwable ignored) {}
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local copy of the lead list, keyed by phone number, so call screens can identify a lead
+ * without waiting on the network. Flutter pushes the list after each lead sync (syncLeads);
+ * the last copy is persisted so it is available before the Flutter engine runs.
+ */
+public final class LeadDirectory {
+    private static final String TAG = "LeadDirectory";
+    private static final String PREFS_NAME = "lead_directory";
+    private static final String KEY_LEADS = "leads";
+    private static LeadDirectory instance;
+
+    public static final class Lead {
+        public final String name;
+        public final String campus;
+        public final String status;
+        public final String remark;
+        public final String phoneNumber;
+
+        Lead(String name, String campus, String status, String remark, String phoneNumber) {
+            this.name = name;
+            this.campus = campus;
+            this.status = status;
+            this.remark = remark;
+            this.phoneNumber = phoneNumber;
+        }
+    }
+
+    public interface LeadCallback {
+        void onLead(String phoneNumber, Lead lead);
+    }
+
+    /** Fired on any thread after the directory is loaded or replaced */
+    public interface Listener {
+        void onLeadsChanged();
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Replaced wholesale on each sync; readers may be on any thread
+    private volatile Map<String, Lead> leadsByKey = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private LeadDirectory() {}
+
+    public static synchronized LeadDirectory getInstance() {
+        if (instance == null) {
+            instance = new LeadDirectory();
+        }
+        return instance;
+    }
+
+    /**
+     * Load the persisted copy in the background. Safe to call repeatedly.
+     */
+    public void preload(Context context) {
+        if (loaded || context == null) return;
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        ioExecutor.execute(() -> loadFromDisk(appContext));
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Memory-only lookup. Returns null when the directory isn't loaded or has no such lead.
+     */
+    public Lead peek(String phoneNumber) {
+        String key = PhoneNumberUtils.toLookupKey(phoneNumber);
+        return key != null ? leadsByKey.get(key) : null;
+    }
+
+    /**
+     * Look up a lead, loading the persisted copy first if needed. The callback runs on the main thread.
+     */
+    public void lookup(Context context, String phoneNumber, LeadCallback callback) {
+        if (loaded) {
+            callback.onLead(phoneNumber, peek(phoneNumber));
+            return;
+        }
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        ioExecutor.execute(() -> {
+            loadFromDisk(appContext);
+            Lead lead = peek(phoneNumber);
+            mainHandler.post(() -> callback.onLead(phoneNumber, lead));
+        });
+    }
+
+    /**
+     * Replace the directory with the list pushed from Flutter and persist it.
+     * Each entry carries phoneNumber, name, campus, status and remark.
+     */
+    public void replaceAll(Context context, List<Map<String, Object>> leads) {
+        Map<String, Lead> next = new ConcurrentHashMap<>();
+        JSONArray persisted = new JSONArray();
+        if (leads != null) {
+            for (Map<String, Object> raw : leads) {
+                if (raw == null) continue;
+                String number = stringOf(raw.get("phoneNumber"));
+                String key = PhoneNumberUtils.toLookupKey(number);
+                if (key == null) continue;
+                Lead lead = new Lead(stringOf(raw.get("name")), stringOf(raw.get("campus")),
+                        stringOf(raw.get("status")), stringOf(raw.get("remark")), number);
+                next.put(key, lead);
+                try {
+                    persisted.put(toJson(lead));
+                } catch (Throwable ignored) {}
+            }
+        }
+        synchronized (this) {
+            leadsByKey = next;
+            loaded = true;
+        }
+        Log.d(TAG, "Lead directory replaced: " + next.size() + " leads");
+        notifyListeners();
+
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        final String json = persisted.toString();
+        ioExecutor.execute(() -> {
+            try {
+                prefs(appContext).edit().putString(KEY_LEADS, json).apply();
+            } catch (Throwable t) {
+                Log.e(TAG, "Failed to persist lead directory", t);
+            }
+        });
+    }
+
+    public int size() {
+        return leadsByKey.size();
+    }
+
+    /**
+     * Current leads; the returned view is never modified after publication.
+     */
+    public Collection<Lead> leads() {
+        return leadsByKey.values();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners() {
+        for (Listener l : listeners) {
+            try { l.onLeadsChanged(); } catch (Throwable ignored) {}
+        }
+    }
+
+    // ===== IO thread =====
+
+    private void loadFromDisk(Context context) {
+        if (loaded) return;
+        Map<String, Lead> restored = new ConcurrentHashMap<>();
+        try {
+            String json = prefs(context).getString(KEY_LEADS, null);
+            if (json != null) {
+                JSONArray array = new JSONArray(json);
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject o = array.optJSONObject(i);
+                    if (o == null) continue;
+                    String number = o.optString("phoneNumber", null);
+                    String key = PhoneNumberUtils.toLookupKey(number);
+                    if (key == null) continue;
+                    restored.put(key, new Lead(o.optString("name", null), o.optString("campus", null),
+                            o.optString("status", null), o.optString("remark", null), number));
+                }
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to load lead directory", t);
+        }
+        // A sync from Flutter may have landed while reading; it is newer than the disk copy
+        synchronized (this) {
+            if (loaded) return;
+            leadsByKey = restored;
+            loaded = true;
+        }
+        Log.d(TAG, "Lead directory loaded: " + restored.size() + " leads");
+        notifyListeners();
+    }
+
+    private static JSONObject toJson(Lead lead) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("phoneNumber", lead.phoneNumber);
+        if (lead.name != null) o.put("name", lead.name);
+        if (lead.campus != null) o.put("campus", lead.campus);
+        if (lead.status != null) o.put("status", lead.status);
+        if (lead.remark != null) o.put("remark", lead.remark);
+        return o;
+    }
+
+    private static String stringOf(Object value) {
+        if (value == null) return null;
+        String s = value.toString().trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -20,6 +20,7 @@ import android.telecom.PhoneAccountHandle;
 import android.telecom.PhoneAccount;
 import android.provider.Settings;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class MainActivity extends FlutterActivity {
@@ -134,6 +135,36 @@ public class MainActivity extends FlutterActivity {
                 case "stopDTMF":
                     result.success(CallTrackingInCallService.stopDtmf());
                     break;
+                case "playDtmfSequence": {
+                    // Whole digit string played natively; progress comes back as onDtmfProgress
+                    String digits = call.argument("digits");
+                    Number toneMs = call.argument("toneMs");
+                    Number gapMs = call.argument("gapMs");
+                    Number pauseMs = call.argument("pauseMs");
+                    try {
+                        int id = CallTrackingInCallService.playDtmfSequence(digits,
+                                toneMs != null ? toneMs.intValue() : DtmfSequencer.DEFAULT_TONE_MS,
+                                gapMs != null ? gapMs.intValue() : DtmfSequencer.DEFAULT_GAP_MS,
+                                pauseMs != null ? pauseMs.intValue() : DtmfSequencer.DEFAULT_PAUSE_MS,
+                                MainActivity::sendDtmfProgress);
+                        if (id < 0) {
+                            result.error("NO_ACTIVE_CALL", "No active call to send DTMF to", null);
+                        } else {
+                            result.success(id);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        result.error("INVALID_DTMF", e.getMessage(), null);
+                    }
+                    break;
+                }
+                case "continueDtmfSequence":
+                    DtmfSequencer.getInstance().resume();
+                    result.success(null);
+                    break;
+                case "cancelDtmfSequence":
+                    DtmfSequencer.getInstance().cancel();
+                    result.success(null);
+                    break;
                 case "getCallState":
                     result.success(CallTrackingInCallService.getCurrentState());
                     break;
@@ -178,6 +209,122 @@ public class MainActivity extends FlutterActivity {
                     startActivity(postCallIntent);
                     result.success(true);
                     break;
+                case "getContactsIndexStats":
+                    result.success(ContactsIndex.getInstance().getStats());
+                    break;
+                case "dialPadSearch":
+                    String dialQuery = call.argument("query");
+                    Integer dialLimit = call.argument("limit");
+                    result.success(DialPadIndex.getInstance().search(dialQuery,
+                            dialLimit != null ? dialLimit : DialPadIndex.DEFAULT_LIMIT));
+                    break;
+                case "getDialPadIndexStats":
+                    result.success(DialPadIndex.getInstance().getStats());
+                    break;
+                case "getCallJournal":
+                    result.success(CallJournal.getInstance().export());
+                    break;
+                case "getCallDispatchStats":
+                    result.success(CallManager.getInstance().getDispatchStats());
+                    break;
+                case "getCallTransitionStats":
+                    result.success(CallManager.getInstance().getTransitionStats());
+                    break;
+                case "getCallPipelineStats":
+                    result.success(CallEventPipeline.getInstance().getStats());
+                    break;
+                case "getAudioState":
+                    result.success(AudioRouteController.getInstance().getStats());
+                    break;
+                case "startPowerDialer": {
+                    List<String> numbers = call.argument("numbers");
+                    Number wrapUpMs = call.argument("wrapUpMs");
+                    Number maxAttempts = call.argument("maxAttempts");
+                    Number retryDelayMs = call.argument("retryDelayMs");
+                    Number maxCallsPerHour = call.argument("maxCallsPerHour");
+                    List<String> retryOutcomes = call.argument("retryOutcomes");
+                    PowerDialer.getInstance().start(getApplicationContext(), numbers,
+                            wrapUpMs != null ? wrapUpMs.longValue() : PowerDialer.DEFAULT_WRAP_UP_MS,
+                            maxAttempts != null ? maxAttempts.intValue() : PowerDialer.DEFAULT_MAX_ATTEMPTS,
+                            retryDelayMs != null ? retryDelayMs.longValue() : PowerDialer.DEFAULT_RETRY_DELAY_MS,
+                            maxCallsPerHour != null ? maxCallsPerHour.intValue() : 0,
+                            retryOutcomes);
+                    result.success(true);
+                    break;
+                }
+                case "addPowerDialerLeads": {
+                    List<String> numbers = call.argument("numbers");
+                    PowerDialer.getInstance().add(numbers);
+                    result.success(null);
+                    break;
+                }
+                case "pausePowerDialer":
+                    PowerDialer.getInstance().pause();
+                    result.success(null);
+                    break;
+                case "resumePowerDialer":
+                    PowerDialer.getInstance().resume();
+                    result.success(null);
+                    break;
+                case "stopPowerDialer":
+                    PowerDialer.getInstance().stop("stoppedByUser");
+                    result.success(null);
+                    break;
+                case "getPowerDialerStats":
+                    result.success(PowerDialer.getInstance().getStats());
+                    break;
+                case "getWakeLockStats":
+                    result.success(WakeLockManager.getInstance().getStats());
+                    break;
+                case "getNotificationStats":
+                    result.success(CallNotifications.getInstance().getStats());
+                    break;
+                case "getRingLatencyStats":
+                    result.success(RingLatencyTracker.getInstance().getStats());
+                    break;
+                case "setRingLatencySlo": {
+                    // Ring-to-first-frame budget; rings slower than this count as breaches
+                    Number sloMs = call.argument("sloMs");
+                    if (sloMs != null) RingLatencyTracker.getInstance().setSloMs(sloMs.longValue());
+                    result.success(null);
+                    break;
+                }
+                case "replayCallEvents":
+                    // Dart's handler is ready; send every unacknowledged call event in order
+                    result.success(CallEventQueue.getInstance().replay());
+                    break;
+                case "ackCallEvents":
+                    Number ackSeq = call.argument("seq");
+                    if (ackSeq != null) CallEventQueue.getInstance().ack(ackSeq.longValue());
+                    result.success(null);
+                    break;
+                case "getCallOutcomes": {
+                    // Finished calls from the native outcome journal, by end time
+                    Number from = call.argument("fromMs");
+                    Number to = call.argument("toMs");
+                    Number max = call.argument("limit");
+                    result.success(CallOutcomeJournal.getInstance().range(getApplicationContext(),
+                            from != null ? from.longValue() : 0,
+                            to != null ? to.longValue() : Long.MAX_VALUE,
+                            max != null ? max.intValue() : 100));
+                    break;
+                }
+                case "flushDebugLog":
+                    DebugLog.flush();
+                    result.success(null);
+                    break;
+                case "setDebugLogLevel":
+                    // android.util.Log priority (2 = VERBOSE ... 6 = ERROR)
+                    Integer level = call.argument("level");
+                    if (level != null) DebugLog.setMinLevel(level);
+                    result.success(null);
+                    break;
+                case "syncLeads":
+                    // Local lead list for caller identification, pushed after each lead sync
+                    List<Map<String, Object>> leads = call.argument("leads");
+                    LeadDirectory.getInstance().replaceAll(getApplicationContext(), leads);
+                    result.success(LeadDirectory.getInstance().size());
+                    break;
                 case "hasActiveCall":
                     // Robust check from native side using InCallService.getCalls()
                     result.success(CallTrackingInCallService.hasActiveCall());
@@ -356,6 +503,15 @@ public class MainActivity extends FlutterActivity {
         return info.toString();
     }
 
+    private static void sendDtmfProgress(int sequenceId, int index, int length, char symbol, String status) {
+        try {
+            if (CallTrackingPlugin.channel != null) {
+                CallTrackingPlugin.channel.invokeMethod("onDtmfProgress",
+                        DtmfSequencer.toMap(sequenceId, index, length, symbol, status));
+            }
+        } catch (Throwable ignored) {}
+    }
+
     // Register a phone account to improve dialer app eligibility
     private void registerPhoneAccount() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -614,6 +770,9 @@ public class MainActivity extends FlutterActivity {
             }
             
             Log.d(TAG, "All permissions granted: " + allGranted);
+
+            // Contacts index build is deferred until READ_CONTACTS is granted
+            ContactsIndex.getInstance().start(getApplicationContext());
             
             // If we have a pending dialer request and permissions are now granted
             if (allGranted && pendingDialerResult != null) {
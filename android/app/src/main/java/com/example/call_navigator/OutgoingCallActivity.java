@@ -10,7 +10,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.Gravity;
-import android.view.View;
 import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.LinearLayout;
@@ -32,6 +31,11 @@ public class OutgoingCallActivity extends Activity {
     private Button endCallButton;
     private Button muteButton;
     private Button speakerButton;
+    // Mute and speaker labels follow the reported audio state
+    private final AudioRouteController.AudioStateListener audioStateListener = (speakerOn, muted, route) -> {
+        if (muteButton != null) muteButton.setText(muted ? "Unmute" : "Mute");
+        if (speakerButton != null) speakerButton.setText(speakerOn ? "Earpiece" : "Speaker");
+    };
     private Handler durationHandler;
     private Runnable durationRunnable;
     private long callStartTime = 0;
@@ -120,15 +124,7 @@ public class OutgoingCallActivity extends Activity {
         muteButton = createCallButton("Mute", Color.parseColor("#2196F3"));
         muteButton.setOnClickListener(v -> {
             try {
-                boolean success = CallTrackingInCallService.setMutedState(true);
-                if (success) {
-                    muteButton.setText("Unmute");
-                    muteButton.setOnClickListener(vv -> {
-                        CallTrackingInCallService.setMutedState(false);
-                        muteButton.setText("Mute");
-                        muteButton.setOnClickListener(this::muteButtonClick);
-                    });
-                }
+                AudioRouteController.getInstance().toggleMute();
             } catch (Exception e) {
                 Log.e(TAG, "Mute failed", e);
             }
@@ -139,20 +135,13 @@ public class OutgoingCallActivity extends Activity {
         speakerButton = createCallButton("Speaker", Color.parseColor("#00BCD4"));
         speakerButton.setOnClickListener(v -> {
             try {
-                boolean success = CallTrackingInCallService.setSpeaker(true);
-                if (success) {
-                    speakerButton.setText("Earpiece");
-                    speakerButton.setOnClickListener(vv -> {
-                        CallTrackingInCallService.setSpeaker(false);
-                        speakerButton.setText("Speaker");
-                        speakerButton.setOnClickListener(this::speakerButtonClick);
-                    });
-                }
+                AudioRouteController.getInstance().toggleSpeaker();
             } catch (Exception e) {
                 Log.e(TAG, "Speaker failed", e);
             }
         });
         buttonContainer.addView(speakerButton);
+        AudioRouteController.getInstance().addListener(audioStateListener);
         
         // End call button
         endCallButton = createCallButton("End Call", Color.parseColor("#F44336"));
@@ -171,14 +160,6 @@ public class OutgoingCallActivity extends Activity {
         setContentView(root);
     }
     
-    private void muteButtonClick(View v) {
-        // Original mute action - this method reference is used above
-    }
-    
-    private void speakerButtonClick(View v) {
-        // Original speaker action - this method reference is used above
-    }
-    
     private Button createCallButton(String text, int color) {
         Button button = new Button(this);
         button.setText(text);
@@ -285,6 +266,7 @@ public class OutgoingCallActivity extends Activity {
     @Override
     protected void onDestroy() {
         stopDurationTimer();
+        AudioRouteController.getInstance().removeListener(audioStateListener);
         Log.d(TAG, "OutgoingCallActivity destroyed");
         super.onDestroy();
     }
@@ -10,6 +10,9 @@ public class PhoneNumberUtils {
     
     // Pattern to match valid phone numbers (basic validation)
     private static final Pattern PHONE_PATTERN = Pattern.compile("^[+]?[0-9\\s\\-\\(\\)]{7,}$");
+
+    // Number of trailing digits used as the in-memory lookup key
+    private static final int LOOKUP_KEY_DIGITS = 10;
     
     /**
      * Get the best available phone number from multiple sources
@@ -70,4 +73,35 @@ public class PhoneNumberUtils {
         
         return cleaned;
     }
+
+    /**
+     * Build a lookup key for in-memory matching: digits only, last 10 digits.
+     * Makes "+91 98765-43210" and "09876543210" resolve to the same entry.
+     * Returns null when the number has too few digits to be matched reliably.
+     */
+    public static String toLookupKey(String number) {
+        if (number == null) return null;
+        int len = number.length();
+        char[] digits = new char[len];
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits[count++] = c;
+            }
+        }
+        if (count < 5) return null;
+        int start = Math.max(0, count - LOOKUP_KEY_DIGITS);
+        return new String(digits, start, count - start);
+    }
+
+    /**
+     * Check whether two numbers refer to the same line, ignoring formatting and country prefix
+     */
+    public static boolean sameNumber(String a, String b) {
+        if (a == null || b == null) return false;
+        if (a.equals(b)) return true;
+        String keyA = toLookupKey(a);
+        return keyA != null && keyA.equals(toLookupKey(b));
+    }
 }
@@ -105,12 +105,9 @@ public class PhoneStateReceiver extends BroadcastReceiver {
             
             String contactName = null;
             if (!finalPhoneNumber.equals("Unknown")) {
-                try {
-                    contactName = ContactUtils.getContactName(context, finalPhoneNumber);
-                    Log.d(TAG, "Contact lookup for " + finalPhoneNumber + ": " + contactName);
-                } catch (Throwable e) {
-                    Log.e(TAG, "Contact lookup failed", e);
-                }
+                // Don't block the ringing UI on lookups; better answers are broadcast as they arrive
+                contactName = CallerIdentityResolver.getInstance().resolveName(context, finalPhoneNumber);
+                Log.d(TAG, "Contact lookup for " + finalPhoneNumber + ": " + contactName);
             } else {
                 // Log warning about missing phone number for debugging
                 Log.w(TAG, "WARNING: Incoming call detected but phone number is Unknown. " +
@@ -183,6 +180,7 @@ public class PhoneStateReceiver extends BroadcastReceiver {
                 }
                 
                 String endedNumber = !lastNumber.isEmpty() ? lastNumber : phoneNumber;
+                CallerIdentityResolver.getInstance().release(endedNumber);
                 if (lastState.equals(TelephonyManager.EXTRA_STATE_OFFHOOK)) {
                     notifyFlutter(context, "CALL_ENDED_CONNECTED", endedNumber);
                     sendDisconnectBroadcast(context, endedNumber);
@@ -253,14 +251,7 @@ public class PhoneStateReceiver extends BroadcastReceiver {
                     intent = new Intent(context, IncomingCallActivity.class);
                     intent.putExtra(IncomingCallActivity.EXTRA_CALL_NUMBER, phoneNumber);
                     // Always try to get contact name for incoming calls
-                    if (!phoneNumber.equals("Unknown")) {
-                        try {
-                            String contactName = ContactUtils.getContactName(context, phoneNumber);
-                            if (contactName != null) {
-                                intent.putExtra(IncomingCallActivity.EXTRA_CONTACT_NAME, contactName);
-                            }
-                        } catch (Throwable ignored) {}
-                    }
+                    attachContactName(context, intent, IncomingCallActivity.EXTRA_CONTACT_NAME, phoneNumber);
                     break;
                     
                 case "DIALING":
@@ -274,14 +265,7 @@ public class PhoneStateReceiver extends BroadcastReceiver {
                     intent = new Intent(context, ActiveCallActivity.class);
                     intent.putExtra(ActiveCallActivity.EXTRA_CALL_NUMBER, phoneNumber);
                     intent.putExtra(ActiveCallActivity.EXTRA_CALL_DURATION, "00:00");
-                    if (!phoneNumber.equals("Unknown")) {
-                        try {
-                            String contactName = ContactUtils.getContactName(context, phoneNumber);
-                            if (contactName != null) {
-                                intent.putExtra(ActiveCallActivity.EXTRA_CONTACT_NAME, contactName);
-                            }
-                        } catch (Throwable ignored) {}
-                    }
+                    attachContactName(context, intent, ActiveCallActivity.EXTRA_CONTACT_NAME, phoneNumber);
                     break;
             }
             
@@ -324,14 +308,7 @@ public class PhoneStateReceiver extends BroadcastReceiver {
             intent.setAction(CallOverlayService.ACTION_SHOW_CALL);
             intent.putExtra(CallOverlayService.EXTRA_PHONE_NUMBER, phoneNumber);
             intent.putExtra(CallOverlayService.EXTRA_CALL_STATE, callState);
-            if (!phoneNumber.equals("Unknown")) {
-                try {
-                    String contactName = ContactUtils.getContactName(context, phoneNumber);
-                    if (contactName != null) {
-                        intent.putExtra(CallOverlayService.EXTRA_CONTACT_NAME, contactName);
-                    }
-                } catch (Throwable ignored) {}
-            }
+            attachContactName(context, intent, CallOverlayService.EXTRA_CONTACT_NAME, phoneNumber);
             context.startService(intent);
             Log.d(TAG, "Showed call overlay for state: " + callState + " with number: " + phoneNumber);
         } catch (Exception e) {
@@ -339,6 +316,14 @@ public class PhoneStateReceiver extends BroadcastReceiver {
         }
     }
     
+    private void attachContactName(Context context, Intent intent, String extraKey, String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.equals("Unknown")) return;
+        String contactName = CallerIdentityResolver.getInstance().resolveName(context, phoneNumber);
+        if (contactName != null) {
+            intent.putExtra(extraKey, contactName);
+        }
+    }
+    
     private void hideCallOverlay(Context context) {
         Intent intent = new Intent(context, CallOverlayService.class);
         intent.setAction(CallOverlayService.ACTION_HIDE_CALL);
@@ -347,11 +332,8 @@ public class PhoneStateReceiver extends BroadcastReceiver {
     
     private void notifyFlutter(Context context, String state, String phoneNumber) {
         try {
-            if (CallTrackingPlugin.channel != null) {
-                CallTrackingPlugin.channel.invokeMethod("onCallStateChanged", 
-                    java.util.Arrays.asList(state, phoneNumber));
-                Log.d(TAG, "Notified Flutter: " + state + " " + phoneNumber);
-            }
+            CallEventQueue.getInstance().enqueue(state, phoneNumber);
+            Log.d(TAG, "Queued for Flutter: " + state + " " + phoneNumber);
         } catch (Exception e) {
             Log.e(TAG, "Failed to notify Flutter", e);
         }
@@ -0,0 +1,338 @@
+package com.example.call_navigator;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.telecom.TelecomManager;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campaign engine that works through a queue of lead numbers on its own: when a call it placed
+ * ends, the outcome decides whether the lead is done, skipped or requeued for another attempt,
+ * and the next call is placed after the wrap-up interval. Pacing caps calls per hour. Runs on
+ * the main looper in the app process, independent of the Flutter UI; it never dials over
+ * another call. Progress goes to Flutter as "onPowerDialerEvent". Main thread only.
+ */
+public final class PowerDialer {
+    private static final String TAG = "PowerDialer";
+    private static PowerDialer instance;
+
+    public static final long DEFAULT_WRAP_UP_MS = 5000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+    // Outcome of a placed call that never showed up in the InCallService
+    public static final String PLACE_FAILED = "CALL_PLACE_FAILED";
+    public static final long DEFAULT_RETRY_DELAY_MS = 60_000;
+    // Outcomes where nobody was reached, so another attempt may succeed
+    private static final Set<String> DEFAULT_RETRY_OUTCOMES = new HashSet<>(Arrays.asList(
+            CallOutcomeClassifier.NO_ANSWER,
+            CallOutcomeClassifier.BUSY,
+            CallOutcomeClassifier.CANCELLED_BY_CALLER,
+            PLACE_FAILED));
+    // How long a placed call may take to show up in the InCallService before it counts as failed
+    private static final long PLACE_TIMEOUT_MS = 20_000;
+    // How often to look again while another call is in progress
+    private static final long BUSY_RECHECK_MS = 5000;
+
+    public static final String EVENT_DIALING = "dialing";
+    public static final String EVENT_OUTCOME = "outcome";
+    public static final String EVENT_FINISHED = "finished";
+    public static final String EVENT_STOPPED = "stopped";
+
+    private static final class Lead {
+        final String number;
+        int attempts;
+        long notBefore; // uptimeMillis
+
+        Lead(String number) {
+            this.number = number;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable next = this::dialNext;
+    private final Runnable placeTimeout = this::onPlaceTimeout;
+
+    private Context context;
+    private final LinkedList<Lead> queue = new LinkedList<>();
+    private Lead current;
+    private boolean running;
+    private boolean paused;
+
+    private long wrapUpMs = DEFAULT_WRAP_UP_MS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long retryDelayMs = DEFAULT_RETRY_DELAY_MS;
+    private int maxCallsPerHour;
+    private Set<String> retryOutcomes = DEFAULT_RETRY_OUTCOMES;
+
+    private boolean callAdded;
+    private long lastPlacedAt;
+    // Metrics; times in uptimeMillis
+    private long runningSince;
+    private long runningMs;
+    private long callStartedAt;
+    private long inCallMs;
+    private long placed;
+    private long completed;
+    private long requeued;
+    private long skipped;
+
+    private PowerDialer() {}
+
+    public static synchronized PowerDialer getInstance() {
+        if (instance == null) {
+            instance = new PowerDialer();
+        }
+        return instance;
+    }
+
+    /**
+     * Start a campaign, replacing any queue already loaded.
+     *
+     * @param maxCallsPerHour 0 for no cap
+     * @param retryOutcomes CALL_* outcomes to requeue on, or null for no answer, busy, cancelled and
+     *                      {@link #PLACE_FAILED}
+     */
+    public void start(Context ctx, List<String> numbers, long wrapUpMs, int maxAttempts, long retryDelayMs,
+                      int maxCallsPerHour, List<String> retryOutcomes) {
+        context = ctx.getApplicationContext();
+        stop(null);
+        queue.clear();
+        add(numbers);
+        this.wrapUpMs = Math.max(0, wrapUpMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = Math.max(0, retryDelayMs);
+        this.maxCallsPerHour = Math.max(0, maxCallsPerHour);
+        this.retryOutcomes = retryOutcomes != null ? new HashSet<>(retryOutcomes) : DEFAULT_RETRY_OUTCOMES;
+        placed = completed = requeued = skipped = 0;
+        runningMs = inCallMs = 0;
+        // Pacing starts over with the campaign
+        lastPlacedAt = 0;
+        running = true;
+        paused = false;
+        runningSince = SystemClock.uptimeMillis();
+        Log.d(TAG, "Campaign started with " + queue.size() + " leads");
+        schedule(0);
+    }
+
+    /** Append leads to the running (or next) campaign */
+    public void add(List<String> numbers) {
+        if (numbers == null) return;
+        for (String n : numbers) {
+            if (n != null && !n.trim().isEmpty()) queue.add(new Lead(n.trim()));
+        }
+        if (running && !paused && current == null) schedule(0);
+    }
+
+    /** Stop placing new calls; a call in progress carries on */
+    public void pause() {
+        if (!running || paused) return;
+        paused = true;
+        runningMs += SystemClock.uptimeMillis() - runningSince;
+        handler.removeCallbacks(next);
+    }
+
+    public void resume() {
+        if (!running || !paused) return;
+        paused = false;
+        runningSince = SystemClock.uptimeMillis();
+        if (current == null) schedule(0);
+    }
+
+    /**
+     * End the campaign. The queue is kept for {@link #getStats} until the next start.
+     *
+     * @param reason sent with the stopped event; null to stop silently
+     */
+    public void stop(String reason) {
+        if (!running) return;
+        if (!paused) runningMs += SystemClock.uptimeMillis() - runningSince;
+        running = false;
+        paused = false;
+        handler.removeCallbacks(next);
+        handler.removeCallbacks(placeTimeout);
+        if (current != null) {
+            queue.addFirst(current);
+            current = null;
+        }
+        if (reason != null) {
+            Log.d(TAG, "Campaign stopped: " + reason);
+            sendEvent(EVENT_STOPPED, null, reason);
+        }
+    }
+
+    /** The InCallService saw a new outgoing call */
+    public void onOutgoingCallAdded(String number) {
+        if (current == null || callAdded) return;
+        if (PhoneNumberUtils.sameNumber(number, current.number)) {
+            callAdded = true;
+            handler.removeCallbacks(placeTimeout);
+        }
+    }
+
+    /**
+     * A call ended with a CALL_* outcome. Calls the dialer didn't place just let it move on if
+     * it was waiting for the line.
+     */
+    public void onCallEnded(String number, String outcome, boolean wasConnected) {
+        if (!running) return;
+        Lead lead = current;
+        if (lead == null || !PhoneNumberUtils.sameNumber(number, lead.number)) {
+            if (lead == null && !paused) schedule(wrapUpMs);
+            return;
+        }
+        handler.removeCallbacks(placeTimeout);
+        finishLead(lead, outcome, wasConnected);
+        if (!paused) schedule(wrapUpMs);
+    }
+
+    private void finishLead(Lead lead, String outcome, boolean wasConnected) {
+        current = null;
+        inCallMs += SystemClock.uptimeMillis() - callStartedAt;
+        if (wasConnected) {
+            completed++;
+        } else if (retryOutcomes.contains(outcome) && lead.attempts < maxAttempts) {
+            lead.notBefore = SystemClock.uptimeMillis() + retryDelayMs;
+            queue.addLast(lead);
+            requeued++;
+        } else {
+            skipped++;
+        }
+        sendEvent(EVENT_OUTCOME, lead.number, outcome);
+    }
+
+    private void onPlaceTimeout() {
+        Lead lead = current;
+        if (lead == null || callAdded) return;
+        Log.w(TAG, "Call to " + lead.number + " never started");
+        finishLead(lead, PLACE_FAILED, false);
+        if (running && !paused) schedule(wrapUpMs);
+    }
+
+    private void schedule(long delayMs) {
+        handler.removeCallbacks(next);
+        if (maxCallsPerHour > 0 && lastPlacedAt != 0) {
+            long paceAt = lastPlacedAt + 3_600_000L / maxCallsPerHour;
+            delayMs = Math.max(delayMs, paceAt - SystemClock.uptimeMillis());
+        }
+        handler.postDelayed(next, Math.max(0, delayMs));
+    }
+
+    private void dialNext() {
+        if (!running || paused || current != null) return;
+        if (queue.isEmpty()) {
+            stop(null);
+            Log.d(TAG, "Campaign finished");
+            sendEvent(EVENT_FINISHED, null, null);
+            return;
+        }
+        if (CallManager.getInstance().getCurrentState() != CallManager.CallState.IDLE) {
+            // The agent is on another call; don't dial over it
+            schedule(BUSY_RECHECK_MS);
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        Lead lead = null;
+        long earliest = Long.MAX_VALUE;
+        for (Iterator<Lead> it = queue.iterator(); it.hasNext(); ) {
+            Lead l = it.next();
+            if (l.notBefore <= now) {
+                lead = l;
+                it.remove();
+                break;
+            }
+            earliest = Math.min(earliest, l.notBefore);
+        }
+        if (lead == null) {
+            // Only retries left, none due yet
+            schedule(earliest - now);
+            return;
+        }
+        String error = place(lead.number);
+        if (error != null) {
+            queue.addFirst(lead);
+            stop(error);
+            return;
+        }
+        lead.attempts++;
+        current = lead;
+        callAdded = false;
+        placed++;
+        lastPlacedAt = now;
+        callStartedAt = now;
+        handler.postDelayed(placeTimeout, PLACE_TIMEOUT_MS);
+        sendEvent(EVENT_DIALING, lead.number, null);
+    }
+
+    // Null on success, otherwise why the campaign can't continue
+    private String place(String number) {
+        try {
+            if (context.checkSelfPermission(Manifest.permission.CALL_PHONE) != PackageManager.PERMISSION_GRANTED) {
+                return "noCallPermission";
+            }
+            TelecomManager tm = (TelecomManager) context.getSystemService(Context.TELECOM_SERVICE);
+            // Only the default dialer may place calls without an activity in front
+            if (tm == null || !context.getPackageName().equals(tm.getDefaultDialerPackage())) {
+                return "notDefaultDialer";
+            }
+            tm.placeCall(Uri.fromParts("tel", number, null), new Bundle());
+            return null;
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to place call to " + number, t);
+            return "placeCallFailed";
+        }
+    }
+
+    private void sendEvent(String event, String number, String detail) {
+        try {
+            if (CallTrackingPlugin.channel == null) return;
+            Map<String, Object> m = new HashMap<>();
+            m.put("event", event);
+            m.put("number", number);
+            m.put("detail", detail);
+            m.put("remaining", queue.size());
+            CallTrackingPlugin.channel.invokeMethod("onPowerDialerEvent", m);
+        } catch (Throwable ignored) {}
+    }
+
+    /**
+     * Queue and outcome counts, throughput over running (unpaused) time, and time spent idle
+     * between calls.
+     */
+    public Map<String, Object> getStats() {
+        long now = SystemClock.uptimeMillis();
+        long runMs = runningMs + (running && !paused ? now - runningSince : 0);
+        long callMs = inCallMs + (current != null ? now - callStartedAt : 0);
+        long idleMs = Math.max(0, runMs - callMs);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", !running ? "stopped" : paused ? "paused" : current != null ? "inCall" : "waiting");
+        stats.put("current", current != null ? current.number : null);
+        List<String> remaining = new ArrayList<>();
+        for (Lead l : queue) remaining.add(l.number);
+        stats.put("remaining", remaining);
+        stats.put("placed", placed);
+        stats.put("completed", completed);
+        stats.put("requeued", requeued);
+        stats.put("skipped", skipped);
+        stats.put("runningMs", runMs);
+        stats.put("idleMs", idleMs);
+        stats.put("avgIdleMsPerCall", placed > 0 ? idleMs / placed : 0);
+        stats.put("callsPerHour", runMs > 0 ? placed * 3_600_000.0 / runMs : 0.0);
+        stats.put("wrapUpMs", wrapUpMs);
+        stats.put("maxCallsPerHour", maxCallsPerHour);
+        return stats;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.call_navigator;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time from an incoming call reaching Telecom to the incoming screen (activity or overlay) being
+ * drawn with the caller on it. Each ring is a trace of timestamped hops; as each hop is reached
+ * the interval since the previous one goes into a histogram, and ring-to-first-frame is checked
+ * against a configurable SLO. Waiting calls, which get no screen of their own, are not traced.
+ * Main thread only.
+ */
+public final class RingLatencyTracker {
+    private static final String TAG = "RingLatencyTracker";
+    private static RingLatencyTracker instance;
+
+    public enum Hop {
+        CALL_ADDED,     // InCallService.onCallAdded
+        STATE_RINGING,  // Call.Callback.onStateChanged(RINGING)
+        UI_LAUNCH,      // startActivity / overlay startService
+        UI_CREATED,     // activity onCreate / overlay window added
+        FIRST_FRAME,    // first frame of the incoming screen drawn
+        CALLER_CARD     // caller name or photo on screen
+    }
+
+    private static final Hop[] HOPS = Hop.values();
+    public static final long DEFAULT_SLO_MS = 1000;
+
+    // Bucket upper bounds in ms; one more bucket counts everything above the last
+    private static final long[] BOUNDS_MS = {16, 33, 50, 100, 150, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000};
+
+    private static final class Histogram {
+        final long[] buckets = new long[BOUNDS_MS.length + 1];
+        long count;
+        long totalMicros;
+        long maxMicros;
+
+        void add(long micros) {
+            long ms = micros / 1000;
+            int i = 0;
+            while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) i++;
+            buckets[i]++;
+            count++;
+            totalMicros += micros;
+            if (micros > maxMicros) maxMicros = micros;
+        }
+
+        // Upper bound of the bucket holding the given quantile; -1 past the last bound
+        long quantileMs(double q) {
+            long target = (long) Math.ceil(count * q);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) return i < BOUNDS_MS.length ? BOUNDS_MS[i] : -1;
+            }
+            return -1;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("count", count);
+            m.put("avgMs", count > 0 ? totalMicros / count / 1000.0 : 0.0);
+            m.put("maxMs", maxMicros / 1000.0);
+            m.put("p50Ms", count > 0 ? quantileMs(0.5) : 0);
+            m.put("p95Ms", count > 0 ? quantileMs(0.95) : 0);
+            List<Map<String, Object>> list = new ArrayList<>();
+            for (int i = 0; i < buckets.length; i++) {
+                Map<String, Object> b = new HashMap<>();
+                b.put("leMs", i < BOUNDS_MS.length ? BOUNDS_MS[i] : -1);
+                b.put("count", buckets[i]);
+                list.add(b);
+            }
+            m.put("buckets", list);
+            return m;
+        }
+    }
+
+    // Interval ending at each hop, from the latest earlier hop seen in the same trace
+    private final Histogram[] hopIntervals = new Histogram[HOPS.length];
+    private final Histogram ringToFrame = new Histogram();
+    private final Histogram ringToCard = new Histogram();
+
+    // Current trace: elapsedRealtimeNanos per hop, 0 if not reached
+    private final long[] trace = new long[HOPS.length];
+    private boolean tracing;
+    private final long[] lastTrace = new long[HOPS.length];
+
+    private long sloMs = DEFAULT_SLO_MS;
+    private long traces;
+    private long breaches;
+    private long abandoned;
+
+    private RingLatencyTracker() {
+        for (int i = 0; i < HOPS.length; i++) hopIntervals[i] = new Histogram();
+    }
+
+    public static synchronized RingLatencyTracker getInstance() {
+        if (instance == null) {
+            instance = new RingLatencyTracker();
+        }
+        return instance;
+    }
+
+    /**
+     * An incoming call that will get its own screen. Starts a trace, replacing one that never
+     * reached its screen.
+     */
+    public void start(Hop hop) {
+        if (tracing) {
+            if (trace[Hop.FIRST_FRAME.ordinal()] == 0) abandoned++;
+            finish();
+        }
+        tracing = true;
+        traces++;
+        mark(hop);
+    }
+
+    /**
+     * Start a trace from the ringing state change unless onCallAdded already started one.
+     */
+    public void onRinging() {
+        // A trace whose screen is already drawn is a previous call still waiting on its card
+        if (!tracing || trace[Hop.FIRST_FRAME.ordinal()] != 0) {
+            start(Hop.STATE_RINGING);
+        } else {
+            mark(Hop.STATE_RINGING);
+        }
+    }
+
+    /** Record a hop of the current trace; only the first time each hop is reached counts */
+    public void mark(Hop hop) {
+        if (!tracing) return;
+        int i = hop.ordinal();
+        if (trace[i] != 0) return;
+        long now = SystemClock.elapsedRealtimeNanos();
+        trace[i] = now;
+        long since = previous(i);
+        if (since != 0) hopIntervals[i].add((now - since) / 1000);
+        long origin = origin();
+        if (hop == Hop.FIRST_FRAME && origin != 0) {
+            long micros = (now - origin) / 1000;
+            ringToFrame.add(micros);
+            if (micros / 1000 > sloMs) {
+                breaches++;
+                Log.w(TAG, "Incoming screen drawn " + micros / 1000 + "ms after ring, SLO " + sloMs + "ms");
+            }
+        } else if (hop == Hop.CALLER_CARD && origin != 0) {
+            ringToCard.add((now - origin) / 1000);
+        }
+        // The card can be populated before the first frame (name already known); the trace
+        // is complete once both have happened
+        if (trace[Hop.FIRST_FRAME.ordinal()] != 0 && trace[Hop.CALLER_CARD.ordinal()] != 0) finish();
+    }
+
+    /**
+     * The ring ended without a screen of its own (call waiting, answered elsewhere, missed
+     * before launch). Keeps the trace if its screen is already up and only the card is pending.
+     */
+    public void abandon() {
+        if (!tracing || trace[Hop.FIRST_FRAME.ordinal()] != 0) return;
+        abandoned++;
+        finish();
+    }
+
+    /**
+     * Mark the first frame drawn by this view's window.
+     */
+    public void markOnFirstFrame(View view) {
+        if (!tracing || view == null) return;
+        afterFirstFrame(view, () -> mark(Hop.FIRST_FRAME));
+    }
+
+    /**
+     * Run an action once the view's window has drawn its next frame.
+     */
+    public static void afterFirstFrame(View view, Runnable action) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Runs after the traversal that draws this frame
+                view.post(action);
+                return true;
+            }
+        });
+    }
+
+    public void setSloMs(long ms) {
+        if (ms > 0) sloMs = ms;
+    }
+
+    private long previous(int index) {
+        long latest = 0;
+        for (int i = 0; i < index; i++) {
+            if (trace[i] > latest) latest = trace[i];
+        }
+        return latest;
+    }
+
+    private long origin() {
+        for (long t : trace) {
+            if (t != 0) return t;
+        }
+        return 0;
+    }
+
+    private void finish() {
+        System.arraycopy(trace, 0, lastTrace, 0, trace.length);
+        Arrays.fill(trace, 0);
+        tracing = false;
+    }
+
+    /**
+     * Histograms per hop interval and end to end, the SLO and how many rings breached it, and
+     * the most recent trace as ms since its first hop.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> hops = new HashMap<>();
+        for (Hop hop : HOPS) {
+            if (hop.ordinal() == 0) continue;
+            hops.put(hop.name(), hopIntervals[hop.ordinal()].toMap());
+        }
+        stats.put("hopIntervals", hops);
+        stats.put("ringToFirstFrame", ringToFrame.toMap());
+        stats.put("ringToCallerCard", ringToCard.toMap());
+        stats.put("sloMs", sloMs);
+        stats.put("traces", traces);
+        stats.put("breaches", breaches);
+        stats.put("abandoned", abandoned);
+        long[] last = tracing ? trace : lastTrace;
+        long base = 0;
+        for (long t : last) {
+            if (t != 0) { base = t; break; }
+        }
+        Map<String, Object> lastCall = new HashMap<>();
+        for (Hop hop : HOPS) {
+            long t = last[hop.ordinal()];
+            if (t != 0) lastCall.put(hop.name(), (t - base) / 1_000_000.0);
+        }
+        stats.put("lastTrace", lastCall);
+        return stats;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.call_navigator;
+
+/**
+ * The parts of {@link android.telecom.Call} the call pipeline uses, so its decision logic can
+ * run against fakes on a plain JVM. States and causes are the platform's int values, mirrored
+ * here so implementations and callers need no Android classes. Calls are matched with
+ * {@link Object#equals}, so two handles on the same underlying call must be equal.
+ */
+public interface TelecomCall {
+    // android.telecom.Call.STATE_*
+    int STATE_NEW = 0;
+    int STATE_DIALING = 1;
+    int STATE_RINGING = 2;
+    int STATE_HOLDING = 3;
+    int STATE_ACTIVE = 4;
+    int STATE_DISCONNECTED = 7;
+    int STATE_SELECT_PHONE_ACCOUNT = 8;
+    int STATE_CONNECTING = 9;
+    int STATE_DISCONNECTING = 10;
+    int STATE_PULLING_CALL = 11;
+    int STATE_AUDIO_PROCESSING = 12;
+    int STATE_SIMULATED_RINGING = 13;
+
+    // android.telecom.DisconnectCause codes
+    int CAUSE_UNKNOWN = 0;
+    int CAUSE_ERROR = 1;
+    int CAUSE_LOCAL = 2;
+    int CAUSE_REMOTE = 3;
+    int CAUSE_CANCELED = 4;
+    int CAUSE_MISSED = 5;
+    int CAUSE_REJECTED = 6;
+    int CAUSE_BUSY = 7;
+
+    int getState();
+
+    /** Number from the call's handle, or null if it has none (yet) */
+    String getNumber();
+
+    /** Disconnect cause code, CAUSE_UNKNOWN until the call is disconnected */
+    int getDisconnectCause();
+
+    void answer();
+
+    void hold();
+
+    void unhold();
+
+    void disconnect();
+
+    /** Start a DTMF tone (0-9, *, #, A-D); it plays until {@link #stopDtmfTone} */
+    void playDtmfTone(char digit);
+
+    void stopDtmfTone();
+}
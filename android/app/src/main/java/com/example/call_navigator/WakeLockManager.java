@@ -0,0 +1,158 @@
+package com.example.call_navigator;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Owns the app's wake locks: one lock per reason, created once and re-armed rather than
+ * reallocated. A lock is skipped when its only job is turning the screen on and the screen is
+ * already on, and is released as soon as its purpose is served (call screen drawn, call
+ * answered or ended). The timeout is a backstop; a lock that reaches it was not released by
+ * anything and is counted as a leak. Held time is accounted per reason.
+ */
+public final class WakeLockManager {
+    private static final String TAG = "WakeLockManager";
+    private static WakeLockManager instance;
+
+    public enum Reason {
+        // Wake the screen for an incoming call until its screen is up
+        INCOMING_RING("call_navigator:incoming_call_wakelock",
+                PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP, 5000, true);
+
+        final String tag;
+        final int levelAndFlags;
+        final long timeoutMs;
+        // Nothing to do if the screen is already on
+        final boolean screenOnly;
+
+        Reason(String tag, int levelAndFlags, long timeoutMs, boolean screenOnly) {
+            this.tag = tag;
+            this.levelAndFlags = levelAndFlags;
+            this.timeoutMs = timeoutMs;
+            this.screenOnly = screenOnly;
+        }
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final class Slot {
+        final Reason reason;
+        PowerManager.WakeLock lock;
+        long heldSince; // elapsedRealtime, 0 when not held
+        long acquisitions;
+        long skippedScreenOn;
+        long releasedEarly;
+        long leaked;
+        long totalHeldMs;
+        long maxHeldMs;
+        final Runnable timeout;
+
+        Slot(Reason reason) {
+            this.reason = reason;
+            this.timeout = () -> onTimeout(this);
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Slot[] slots = new Slot[REASONS.length];
+    private PowerManager powerManager;
+
+    private WakeLockManager() {
+        for (Reason reason : REASONS) slots[reason.ordinal()] = new Slot(reason);
+    }
+
+    public static synchronized WakeLockManager getInstance() {
+        if (instance == null) {
+            instance = new WakeLockManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Hold the lock for a reason, or re-arm its timeout if it is already held.
+     */
+    public synchronized void acquire(Context context, Reason reason) {
+        Slot slot = slots[reason.ordinal()];
+        try {
+            if (powerManager == null) {
+                powerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+                if (powerManager == null) return;
+            }
+            if (slot.heldSince == 0 && reason.screenOnly && powerManager.isInteractive()) {
+                slot.skippedScreenOn++;
+                return;
+            }
+            if (slot.lock == null) {
+                slot.lock = powerManager.newWakeLock(reason.levelAndFlags, reason.tag);
+                slot.lock.setReferenceCounted(false);
+            }
+            // The system timeout only backs up ours, which keeps the accounting
+            slot.lock.acquire(reason.timeoutMs + 1000);
+            handler.removeCallbacks(slot.timeout);
+            handler.postDelayed(slot.timeout, reason.timeoutMs);
+            if (slot.heldSince == 0) {
+                slot.heldSince = SystemClock.elapsedRealtime();
+                slot.acquisitions++;
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to acquire " + reason, t);
+        }
+    }
+
+    /**
+     * Release early because the lock's purpose is served; no-op if it isn't held.
+     */
+    public synchronized void release(Reason reason) {
+        Slot slot = slots[reason.ordinal()];
+        if (slot.heldSince == 0) return;
+        slot.releasedEarly++;
+        releaseLocked(slot);
+    }
+
+    private synchronized void onTimeout(Slot slot) {
+        if (slot.heldSince == 0) return;
+        slot.leaked++;
+        Log.w(TAG, slot.reason + " held for its full " + slot.reason.timeoutMs + "ms; nothing released it");
+        releaseLocked(slot);
+    }
+
+    // Must hold this
+    private void releaseLocked(Slot slot) {
+        handler.removeCallbacks(slot.timeout);
+        long held = SystemClock.elapsedRealtime() - slot.heldSince;
+        slot.heldSince = 0;
+        slot.totalHeldMs += held;
+        if (held > slot.maxHeldMs) slot.maxHeldMs = held;
+        try {
+            if (slot.lock != null && slot.lock.isHeld()) slot.lock.release();
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to release " + slot.reason, t);
+        }
+    }
+
+    /**
+     * Per reason: acquisitions, how they ended, and time held in ms.
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long now = SystemClock.elapsedRealtime();
+        for (Slot slot : slots) {
+            Map<String, Object> s = new HashMap<>();
+            s.put("acquisitions", slot.acquisitions);
+            s.put("skippedScreenOn", slot.skippedScreenOn);
+            s.put("releasedEarly", slot.releasedEarly);
+            s.put("leaked", slot.leaked);
+            s.put("held", slot.heldSince != 0);
+            s.put("totalHeldMs", slot.totalHeldMs + (slot.heldSince != 0 ? now - slot.heldSince : 0));
+            s.put("maxHeldMs", slot.maxHeldMs);
+            stats.put(slot.reason.name(), s);
+        }
+        return stats;
+    }
+}
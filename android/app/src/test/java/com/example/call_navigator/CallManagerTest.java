@@ -0,0 +1,223 @@
+package com.example.call_navigator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CallManagerTest {
+    private static final String A = "9876543210";
+    private static final String B = "9123456789";
+
+    private FakePlatform platform;
+    private CallManager manager;
+    private FakeTelecomCall first;
+    private FakeTelecomCall second;
+
+    @Before
+    public void setUp() {
+        platform = new FakePlatform();
+        manager = new CallManager(platform, platform);
+        first = new FakeTelecomCall(TelecomCall.STATE_RINGING);
+        second = new FakeTelecomCall(TelecomCall.STATE_RINGING);
+    }
+
+    // What the InCallService does for a ringing call
+    private void ring(FakeTelecomCall call, String number) {
+        manager.onTelecomCallAdded(call, number, TelecomCall.STATE_RINGING);
+        manager.onIncomingCall(call, number);
+    }
+
+    private void activate(FakeTelecomCall call) {
+        call.state = TelecomCall.STATE_ACTIVE;
+        manager.onTelecomStateChanged(call, TelecomCall.STATE_ACTIVE);
+        manager.onCallAnswered();
+    }
+
+    private void assertSnapshot(CallManager.CallState state, TelecomCall current, String currentNumber,
+                                TelecomCall waiting, String waitingNumber) {
+        CallManager.CallSnapshot s = manager.getSnapshot();
+        assertEquals(state, s.state);
+        assertSame(current, s.currentCall);
+        assertEquals(currentNumber, s.currentCallNumber);
+        assertSame(waiting, s.waitingCall);
+        assertEquals(waitingNumber, s.waitingCallNumber);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> stats(String kind) {
+        return (Map<String, Long>) manager.getTransitionStats().get(kind);
+    }
+
+    @Test
+    public void incomingAnsweredEnded() {
+        ring(first, A);
+        assertSnapshot(CallManager.CallState.INCOMING, first, A, null, null);
+        activate(first);
+        assertSnapshot(CallManager.CallState.ACTIVE, first, A, null, null);
+        manager.onCallEnded();
+        assertSnapshot(CallManager.CallState.IDLE, null, null, null, null);
+        assertEquals(Long.valueOf(1), stats("applied").get("ACTIVE+ENDED"));
+    }
+
+    @Test
+    public void secondCallWhileActiveWaits() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        assertSnapshot(CallManager.CallState.CALL_WAITING, first, A, second, B);
+    }
+
+    @Test
+    public void answerWaitingHoldsCurrentAndPromotesWaiting() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        manager.answerWaitingCall();
+        assertEquals(Collections.singletonList("hold"), first.operations);
+        assertEquals(Collections.singletonList("answer"), second.operations);
+        assertSnapshot(CallManager.CallState.ACTIVE, second, B, null, null);
+    }
+
+    @Test
+    public void declineWaitingDisconnectsOnlyWaiting() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        manager.declineWaitingCall();
+        assertTrue(first.operations.isEmpty());
+        assertEquals(Collections.singletonList("disconnect"), second.operations);
+        assertSnapshot(CallManager.CallState.ACTIVE, first, A, null, null);
+    }
+
+    @Test
+    public void endingCurrentCallPromotesWaiting() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        manager.onCallEnded();
+        assertSnapshot(CallManager.CallState.ACTIVE, second, B, null, null);
+        assertEquals(Long.valueOf(1), stats("applied").get("CALL_WAITING+ENDED+waiting"));
+    }
+
+    @Test
+    public void waitingGoneOnlyForTheWaitingCall() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        manager.onWaitingCallEnded(first);
+        assertSnapshot(CallManager.CallState.CALL_WAITING, first, A, second, B);
+        assertEquals(1L, manager.getTransitionStats().get("rejected"));
+        manager.onWaitingCallEnded(second);
+        assertSnapshot(CallManager.CallState.ACTIVE, first, A, null, null);
+    }
+
+    @Test
+    public void telecomHoldAndResumeDriveHoldState() {
+        ring(first, A);
+        activate(first);
+        manager.onTelecomStateChanged(first, TelecomCall.STATE_HOLDING);
+        assertSnapshot(CallManager.CallState.HOLD, first, A, null, null);
+        manager.onTelecomStateChanged(first, TelecomCall.STATE_HOLDING);
+        assertEquals(Long.valueOf(1), stats("redundant").get("HOLD+HOLD"));
+        manager.onTelecomStateChanged(first, TelecomCall.STATE_ACTIVE);
+        assertSnapshot(CallManager.CallState.ACTIVE, first, A, null, null);
+    }
+
+    @Test
+    public void holdingTheSwappedOutCallKeepsTheAnsweredOneActive() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        manager.answerWaitingCall();
+        // Telecom reports the hold answerWaitingCall asked for after the swap
+        manager.onTelecomStateChanged(first, TelecomCall.STATE_HOLDING);
+        assertSnapshot(CallManager.CallState.ACTIVE, second, B, null, null);
+    }
+
+    @Test
+    public void waitingCallGoneDuringAnswerIsRejected() {
+        ring(first, A);
+        activate(first);
+        ring(second, B);
+        second.onAnswer = () -> manager.onWaitingCallEnded(second);
+        manager.answerWaitingCall();
+        assertSnapshot(CallManager.CallState.ACTIVE, first, A, null, null);
+        assertEquals(1L, manager.getTransitionStats().get("rejected"));
+    }
+
+    @Test
+    public void illegalEventIsIgnoredAndCounted() {
+        manager.declineWaitingCall();
+        manager.answerWaitingCall();
+        assertSnapshot(CallManager.CallState.IDLE, null, null, null, null);
+        assertEquals(Long.valueOf(1), stats("illegal").get("IDLE+DECLINE_WAITING"));
+        assertEquals(Long.valueOf(1), stats("illegal").get("IDLE+ANSWER_WAITING"));
+        assertEquals(2, platform.warnings.size());
+    }
+
+    @Test
+    public void outgoingCallIsAdoptedWhenActive() {
+        FakeTelecomCall outgoing = new FakeTelecomCall(TelecomCall.STATE_DIALING);
+        manager.onTelecomCallAdded(outgoing, A, TelecomCall.STATE_DIALING);
+        activate(outgoing);
+        assertSnapshot(CallManager.CallState.ACTIVE, outgoing, A, null, null);
+    }
+
+    @Test
+    public void lateHandleResolvesNumber() {
+        manager.onTelecomCallAdded(first, null, TelecomCall.STATE_RINGING);
+        manager.onIncomingCall(first, null);
+        List<CallDelta> deltas = new ArrayList<>();
+        manager.subscribe((CallManager.CallDeltaListener) deltas::add, Runnable::run);
+        manager.onTelecomNumberChanged(first, A);
+        assertSnapshot(CallManager.CallState.INCOMING, first, A, null, null);
+        assertEquals(1, deltas.size());
+        assertTrue(deltas.get(0).has(CallDelta.NUMBER_RESOLVED));
+    }
+
+    @Test
+    public void registryTracksTelecomStateAndTimestamps() {
+        ring(first, A);
+        platform.nowMs = 5000;
+        activate(first);
+        CallRegistry.CallEntry entry = manager.getCalls().get(first);
+        assertEquals(TelecomCall.STATE_ACTIVE, entry.telecomState);
+        assertTrue(entry.incoming);
+        assertEquals(1000, entry.addedAt);
+        assertEquals(5000, entry.activeAt);
+        manager.onTelecomCallRemoved(first);
+        assertNull(manager.getCalls().get(first));
+    }
+
+    @Test
+    public void legacyListenerSeesEveryTransition() {
+        List<CallManager.CallState> seen = new ArrayList<>();
+        manager.addListener((state, number, waiting) -> seen.add(state));
+        ring(first, A);
+        activate(first);
+        manager.onCallEnded();
+        assertEquals(Arrays.asList(CallManager.CallState.INCOMING, CallManager.CallState.ACTIVE,
+                CallManager.CallState.IDLE), seen);
+    }
+
+    @Test
+    public void endOfCallJournalEntryNamesTheCall() {
+        ring(first, A);
+        activate(first);
+        int id = manager.getCalls().get(first).id;
+        manager.onCallEnded();
+        List<Map<String, Object>> events = CallJournal.getInstance().export();
+        Map<String, Object> last = events.get(events.size() - 1);
+        assertEquals("IDLE", last.get("newState"));
+        assertEquals(id, last.get("callId"));
+    }
+}
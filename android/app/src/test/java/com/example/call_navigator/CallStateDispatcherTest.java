@@ -0,0 +1,53 @@
+package com.example.call_navigator;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Activity;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CallStateDispatcherTest {
+    private CallManager manager;
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        FakePlatform platform = new FakePlatform();
+        manager = new CallManager(platform, platform);
+        activity = new Activity();
+    }
+
+    private static final class ListeningActivity extends Activity implements CallManager.CallStateListener {
+        @Override
+        public void onCallStateChanged(CallManager.CallState state, String phoneNumber, String waitingNumber) {}
+    }
+
+    @Test
+    public void listenerRegisteredWithOwnerIsCounted() {
+        CallManager.CallStateListener listener = (state, number, waiting) -> {};
+        manager.addListener(listener, activity);
+        assertEquals(1, manager.getListenerCount(activity));
+        assertEquals(0, manager.getListenerCount(new Activity()));
+
+        manager.removeListener(listener);
+        assertEquals(0, manager.getListenerCount(activity));
+    }
+
+    @Test
+    public void activityListeningItselfIsCounted() {
+        ListeningActivity listening = new ListeningActivity();
+        manager.addListener(listening);
+        assertEquals(1, manager.getListenerCount(listening));
+        manager.removeListener(listening);
+        assertEquals(0, manager.getListenerCount(listening));
+    }
+
+    @Test
+    public void listenerWithoutOwnerIsNotCounted() {
+        // Captures the activity, but ownership is only what the caller declares
+        Activity captured = activity;
+        manager.addListener((state, number, waiting) -> captured.toString());
+        assertEquals(1, manager.getListenerCount());
+        assertEquals(0, manager.getListenerCount(activity));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.call_navigator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CallTrackingInCallServiceTest {
+    @Test
+    public void callNumberComesFromTheCallsHandle() {
+        FakeTelecomCall call = new FakeTelecomCall(TelecomCall.STATE_RINGING);
+        call.number = "9876543210";
+        assertEquals("9876543210", CallTrackingInCallService.getCallNumber(call));
+    }
+}
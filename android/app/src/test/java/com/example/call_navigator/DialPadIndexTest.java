@@ -0,0 +1,84 @@
+package com.example.call_navigator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DialPadIndexTest {
+    private DialPadIndex index;
+
+    @Before
+    public void setUp() {
+        index = DialPadIndex.getInstance();
+        index.build(
+                Collections.singletonList(new LeadDirectory.Lead("Jack Smith", null, null, null, "9876543210")),
+                Arrays.asList(
+                        new ContactsIndex.Entry(1, "Alice Brown", "+1 415 555 0100"),
+                        new ContactsIndex.Entry(2, "Bob Jackson", "4155550199")));
+    }
+
+    @Test
+    public void numberPrefixFindsRecord() {
+        List<Map<String, Object>> results = index.search("98", 10);
+        assertEquals(1, results.size());
+        assertEquals("9876543210", results.get(0).get("number"));
+        assertEquals("number", results.get(0).get("matchType"));
+    }
+
+    @Test
+    public void namePrefixFindsRecord() {
+        // 52 = "ja"
+        List<Map<String, Object>> results = index.search("52", 10);
+        assertEquals(names("Jack Smith", "Bob Jackson"), names(results));
+    }
+
+    @Test
+    public void laterWordPrefixFindsRecord() {
+        // 27 = "br"
+        List<Map<String, Object>> results = index.search("27", 10);
+        assertEquals(names("Alice Brown"), names(results));
+    }
+
+    @Test
+    public void wholeKeyStillMatches() {
+        assertEquals(names("Jack Smith"), names(index.search("9876543210", 10)));
+        assertEquals(names("Jack Smith"), names(index.search("522576484", 10)));
+    }
+
+    @Test
+    public void countryCodeAndLocalPrefixesBothMatch() {
+        assertEquals(names("Alice Brown", "Bob Jackson"), names(index.search("4155", 10)));
+        assertEquals(names("Alice Brown"), names(index.search("1415", 10)));
+    }
+
+    @Test
+    public void shortPrefixKeepsBestRanked() {
+        List<ContactsIndex.Entry> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            many.add(new ContactsIndex.Entry(i, String.format("Contact %03d", i), String.format("70000%05d", i)));
+        }
+        index.build(Collections.singletonList(new LeadDirectory.Lead("Zed Lead", null, null, null, "7999999999")), many);
+        List<Map<String, Object>> results = index.search("7", 5);
+        assertEquals(5, results.size());
+        // Leads rank first, then contacts by name
+        assertEquals("Zed Lead", results.get(0).get("name"));
+        assertEquals("Contact 000", results.get(1).get("name"));
+        assertEquals(names("Contact 099"), names(index.search("7000000099", 5)));
+    }
+
+    private static List<String> names(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static List<Object> names(List<Map<String, Object>> results) {
+        List<Object> names = new ArrayList<>();
+        for (Map<String, Object> r : results) names.add(r.get("name"));
+        return names;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.call_navigator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settable clock and a logger that keeps warnings and errors, for {@link CallManager} tests.
+ */
+final class FakePlatform implements CallManager.Clock, CallManager.Logger {
+    long nowMs = 1000;
+    final List<String> warnings = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+
+    @Override
+    public long elapsedRealtime() {
+        return nowMs;
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return nowMs * 1_000_000L;
+    }
+
+    @Override
+    public void d(String tag, String message) {}
+
+    @Override
+    public void w(String tag, String message) {
+        warnings.add(message);
+    }
+
+    @Override
+    public void e(String tag, String message, Throwable t) {
+        errors.add(message);
+    }
+}
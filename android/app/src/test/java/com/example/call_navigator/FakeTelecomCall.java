@@ -0,0 +1,67 @@
+package com.example.call_navigator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory {@link TelecomCall} that records the operations invoked on it. Equality is identity,
+ * like one wrapper per platform call.
+ */
+final class FakeTelecomCall implements TelecomCall {
+    final List<String> operations = new ArrayList<>();
+    int state;
+    String number;
+    // Runs inside answer(), standing in for Telecom callbacks that arrive meanwhile
+    Runnable onAnswer;
+    int disconnectCause = CAUSE_UNKNOWN;
+
+    FakeTelecomCall(int state) {
+        this.state = state;
+    }
+
+    @Override
+    public int getState() {
+        return state;
+    }
+
+    @Override
+    public String getNumber() {
+        return number;
+    }
+
+    @Override
+    public int getDisconnectCause() {
+        return disconnectCause;
+    }
+
+    @Override
+    public void answer() {
+        operations.add("answer");
+        if (onAnswer != null) onAnswer.run();
+    }
+
+    @Override
+    public void hold() {
+        operations.add("hold");
+    }
+
+    @Override
+    public void unhold() {
+        operations.add("unhold");
+    }
+
+    @Override
+    public void disconnect() {
+        operations.add("disconnect");
+    }
+
+    @Override
+    public void playDtmfTone(char digit) {
+        operations.add("tone " + digit);
+    }
+
+    @Override
+    public void stopDtmfTone() {
+        operations.add("stopTone");
+    }
+}
@@ -3,6 +3,7 @@ import 'dart:developer';
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 import 'package:get/get.dart';
+import 'package:shared_preferences/shared_preferences.dart';
 import '../model/call_record.dart';
 import '../services/call_database_service.dart';
 import '../services/call_sync_service.dart';
@@ -33,6 +34,8 @@ class CallController extends GetxController {
 
   // Native MethodChannel for call tracking
   static const MethodChannel _nativeChannel = MethodChannel('call_tracking');
+  // Tail of the onCallStateChanged chain; each event waits for the one before it
+  Future<void> _callEvents = Future.value();
 
   @override
   void onInit() {
@@ -45,204 +48,286 @@ class CallController extends GetxController {
   void _attachNativeCallbacks() {
     _nativeChannel.setMethodCallHandler((call) async {
       if (call.method == 'onCallStateChanged') {
+        // Replayed events arrive back to back; handle them one at a time, in sequence order,
+        // so no event is acked while an earlier one is still being handled
         final args = call.arguments as List?;
-        final String state = (args != null && args.isNotEmpty)
-            ? (args[0] as String)
-            : '';
-        final String phoneNumber = (args != null && args.length > 1)
-            ? (args[1] as String? ?? 'Unknown')
-            : 'Unknown';
+        _callEvents = _callEvents
+            .then((_) => _onNativeCallEvent(args))
+            .catchError((Object e) => log('[native] Call event failed: $e'));
+        await _callEvents;
+      } else if (call.method == 'debugLogBatch') {
+        final entries = call.arguments as List<dynamic>?;
+        if (entries != null) {
+          for (final entry in entries) {
+            final e = entry as Map<dynamic, dynamic>;
+            log('[${e['tag']}] ${e['msg']}', level: e['level'] as int? ?? 0);
+          }
+        }
+      } else if (call.method == 'onDtmfProgress') {
+        final p = call.arguments as Map<dynamic, dynamic>?;
+        if (p != null) {
+          log('[native] DTMF ${p['id']}: ${p['status']} '
+              '${p['symbol']} (${p['index']}/${p['length']})');
+        }
+      } else if (call.method == 'onPowerDialerEvent') {
+        final e = call.arguments as Map<dynamic, dynamic>?;
+        if (e != null) {
+          log('[native] Power dialer ${e['event']} ${e['number'] ?? ''} '
+              '${e['detail'] ?? ''} (${e['remaining']} left)');
+        }
+      } else if (call.method == 'debugLog') {
+        final msg = call.arguments as String?;
+        if (msg != null) {
+          log('[InCallService] $msg');
+        }
+      }
+      return;
+    });
+    // Handler is ready: ask native for call events that happened while Dart was down
+    _nativeChannel.invokeMethod('replayCallEvents').catchError((e) {
+      log('[native] replayCallEvents failed: $e');
+    });
+  }
+
+  Future<void> _onNativeCallEvent(List? args) async {
+    final String state = (args != null && args.isNotEmpty)
+        ? (args[0] as String)
+        : '';
+    final String phoneNumber = (args != null && args.length > 1)
+        ? (args[1] as String? ?? 'Unknown')
+        : 'Unknown';
+    // Queued events carry a sequence number; skip ones already handled
+    final int? seq =
+        (args != null && args.length > 2) ? args[2] as int? : null;
+    final int epoch =
+        (args != null && args.length > 4) ? args[4] as int? ?? 0 : 0;
+    if (seq != null && seq <= await _lastHandledCallEventSeq(epoch)) {
+      log('[native] Skipping already handled call event $seq');
+      await _ackCallEvent(seq, epoch);
+      return;
+    }
+    try {
+      await _handleNativeCallState(state, phoneNumber);
+    } finally {
+      if (seq != null) await _ackCallEvent(seq, epoch);
+    }
+  }
 
-        log('[native] onCallStateChanged state=$state number=$phoneNumber');
+  Future<void> _handleNativeCallState(String state, String phoneNumber) async {
+    log('[native] onCallStateChanged state=$state number=$phoneNumber');
 
-        // Ignore state changes if we're not tracking this call,
-        // EXCEPT: allow final outcomes to close the active-call banner robustly.
-        if (currentCallRecord.value != null &&
-            currentCallRecord.value!.phoneNumber != phoneNumber) {
-          // If this is a final outcome, query native if any active call exists.
-          if (isFinalOutcome(state)) {
-            try {
-              final bool hasActive =
-                  await _nativeChannel.invokeMethod('hasActiveCall') as bool;
-              if (!hasActive) {
-                log(
-                    '[native] Final state "$state" received for different number. No active calls detected natively — ending tracking.');
-                _endCallTracking();
-                _closeActiveCallScreenIfVisible();
-              } else {
-                log(
-                    '[native] Final state "$state" received but native reports active calls. Keeping tracking.');
-              }
-            } catch (e) {
-              log(
-                  '[native] Error checking active call on final state: $e. Falling back to ignore.');
-            }
+    // Ignore state changes if we're not tracking this call,
+    // EXCEPT: allow final outcomes to close the active-call banner robustly.
+    if (currentCallRecord.value != null &&
+        currentCallRecord.value!.phoneNumber != phoneNumber) {
+      // If this is a final outcome, query native if any active call exists.
+      if (isFinalOutcome(state)) {
+        try {
+          final bool hasActive =
+              await _nativeChannel.invokeMethod('hasActiveCall') as bool;
+          if (!hasActive) {
+            log(
+                '[native] Final state "$state" received for different number. No active calls detected natively — ending tracking.');
+            _endCallTracking();
+            _closeActiveCallScreenIfVisible();
           } else {
             log(
-              '[native] Ignoring state change for different number: $phoneNumber vs ${currentCallRecord.value!.phoneNumber}',
-            );
+                '[native] Final state "$state" received but native reports active calls. Keeping tracking.');
           }
-          return;
+        } catch (e) {
+          log(
+              '[native] Error checking active call on final state: $e. Falling back to ignore.');
         }
+      } else {
+        log(
+          '[native] Ignoring state change for different number: $phoneNumber vs ${currentCallRecord.value!.phoneNumber}',
+        );
+      }
+      return;
+    }
 
-        if (state == 'CALL_DIALING' || state == 'CALL_CONNECTING') {
-          // Only start tracking if we're not already tracking a call
-          if (callStartTime.value == null) {
-            _startCallTracking(
-              phoneNumber,
-              isOutgoing: state == 'CALL_DIALING',
-            );
-          }
-          _updateCallRecordStatus(state);
-        } else if (state == 'CALL_RINGING') {
-          if (callStartTime.value == null) {
-            _startCallTracking(phoneNumber, isOutgoing: false);
-          } else {
-            // Call already started, but number might have been updated (e.g., from retry)
-            // Update phone number if it's no longer "Unknown" and current record has "Unknown"
-            if (currentCallRecord.value != null &&
-                currentCallRecord.value!.phoneNumber == 'Unknown' &&
-                phoneNumber != 'Unknown') {
-              log(
-                '[CallController] Updating phone number from Unknown to: $phoneNumber',
-              );
-              currentCallRecord.value!.phoneNumber = phoneNumber;
-              currentCallRecord.value!.contactName = _getContactName(
-                phoneNumber,
-              );
-              _saveCallRecord(currentCallRecord.value!);
-            }
-          }
-          _updateCallRecordStatus(state);
-        } else if (state == 'CALL_INCOMING') {
-          // Regular incoming call
-          if (callStartTime.value == null) {
-            _startCallTracking(phoneNumber, isOutgoing: false);
-          }
-          _updateCallRecordStatus('CALL_RINGING');
-        } else if (state == 'CALL_WAITING_INCOMING') {
-          // Call waiting - incoming call during active call
-          log('[CallWaiting] Incoming call during active call: $phoneNumber');
-          // Show call waiting notification in Flutter
-          _showCallWaitingNotification(phoneNumber);
-        } else if (state == 'CALL_ACTIVE') {
-          // Call became active (could be from call waiting or hold)
-          _hadConnectedCall.value = true;
-          _updateCallRecordStatus(state);
-        } else if (state == 'CALL_SWITCHED') {
-          // Switched to another call
-          log('[CallSwitch] Switched to call: $phoneNumber');
-          _updateCallRecordStatus('CALL_CONNECTED');
-        } else if (state == 'CALL_CONNECTED') {
-          // Call is now active - just mark it but don't end tracking
-          _hadConnectedCall.value = true;
-          _updateCallRecordStatus(state);
-          // Stay on the current screen, don't navigate
-        } else if (state == 'CALL_ENDED_CONNECTED') {
-          // Successful call - update to ended status and update lead
-          _updateCallRecordStatus(state);
-          final mapped = _mapAndroidOutcomeLabel(state);
-          if (!_shouldSkipOutcome(mapped)) {
-            _lastMappedOutcomeLabel = mapped;
-            await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
-          }
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-          // Removed auto-navigation to CALL_SCREEN to avoid double back and route jumps
-        } else if (state == 'CALL_ENDED_BY_CALLER' ||
-            state == 'CALL_ENDED_BY_CALLEE') {
-          // Precise connected-call end outcomes
-          _updateCallRecordStatus(state);
-          final mapped = _mapAndroidOutcomeLabel(state);
-          if (!_shouldSkipOutcome(mapped)) {
-            _lastMappedOutcomeLabel = mapped;
-            await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
-          }
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-        } else if (state == 'CALL_ENDED_NO_ANSWER') {
-          _updateCallRecordStatus(state);
-          final mapped = _mapAndroidOutcomeLabel(state);
-          if (!_shouldSkipOutcome(mapped)) {
-            _lastMappedOutcomeLabel = mapped;
-            await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
-          }
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-          // Removed auto-navigation to CALL_SCREEN to avoid double back and route jumps
-        } else if (state == 'CALL_CANCELLED_BY_CALLER') {
-          _updateCallRecordStatus(state);
-          final mapped = _mapAndroidOutcomeLabel(state);
-          if (!_shouldSkipOutcome(mapped)) {
-            _lastMappedOutcomeLabel = mapped;
-            await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
-          }
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-        } else if (state == 'CALL_DECLINED_BY_LEAD' ||
-            state == 'CALL_DECLINED_BY_CALLEE' ||
-            state == 'CALL_DECLINED_BY_CALLER') {
-          _updateCallRecordStatus(state);
-          await _updateLeadAndTasksForOutcome(
-            phoneNumber,
-            _mapAndroidOutcomeLabel(state),
+    if (state == 'CALL_DIALING' || state == 'CALL_CONNECTING') {
+      // Only start tracking if we're not already tracking a call
+      if (callStartTime.value == null) {
+        _startCallTracking(
+          phoneNumber,
+          isOutgoing: state == 'CALL_DIALING',
+        );
+      }
+      _updateCallRecordStatus(state);
+    } else if (state == 'CALL_RINGING') {
+      if (callStartTime.value == null) {
+        _startCallTracking(phoneNumber, isOutgoing: false);
+      } else {
+        // Call already started, but number might have been updated (e.g., from retry)
+        // Update phone number if it's no longer "Unknown" and current record has "Unknown"
+        if (currentCallRecord.value != null &&
+            currentCallRecord.value!.phoneNumber == 'Unknown' &&
+            phoneNumber != 'Unknown') {
+          log(
+            '[CallController] Updating phone number from Unknown to: $phoneNumber',
           );
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-        } else if (state == 'CALL_BUSY') {
-          _updateCallRecordStatus(state);
-          await _updateLeadAndTasksForOutcome(
+          currentCallRecord.value!.phoneNumber = phoneNumber;
+          currentCallRecord.value!.contactName = _getContactName(
             phoneNumber,
-            _mapAndroidOutcomeLabel(state),
           );
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-        } else if (state == 'CALL_NO_ANSWER') {
-          _updateCallRecordStatus(state);
-          final mapped = _mapAndroidOutcomeLabel(state);
-          if (!_shouldSkipOutcome(mapped)) {
-            _lastMappedOutcomeLabel = mapped;
-            await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
-          }
-          // Notify native UI to enter post-call mode
-          if (isFinalOutcome(state)) {
-            await _nativeChannel.invokeMethod('enterPostCallMode');
-          }
-          _endCallTracking();
-          _closeActiveCallScreenIfVisible();
-        }
-      } else if (call.method == 'debugLog') {
-        final msg = call.arguments as String?;
-        if (msg != null) {
-          log('[InCallService] $msg');
+          _saveCallRecord(currentCallRecord.value!);
         }
       }
-      return;
-    });
+      _updateCallRecordStatus(state);
+    } else if (state == 'CALL_INCOMING') {
+      // Regular incoming call
+      if (callStartTime.value == null) {
+        _startCallTracking(phoneNumber, isOutgoing: false);
+      }
+      _updateCallRecordStatus('CALL_RINGING');
+    } else if (state == 'CALL_WAITING_INCOMING') {
+      // Call waiting - incoming call during active call
+      log('[CallWaiting] Incoming call during active call: $phoneNumber');
+      // Show call waiting notification in Flutter
+      _showCallWaitingNotification(phoneNumber);
+    } else if (state == 'CALL_ACTIVE') {
+      // Call became active (could be from call waiting or hold)
+      _hadConnectedCall.value = true;
+      _updateCallRecordStatus(state);
+    } else if (state == 'CALL_SWITCHED') {
+      // Switched to another call
+      log('[CallSwitch] Switched to call: $phoneNumber');
+      _updateCallRecordStatus('CALL_CONNECTED');
+    } else if (state == 'CALL_CONNECTED') {
+      // Call is now active - just mark it but don't end tracking
+      _hadConnectedCall.value = true;
+      _updateCallRecordStatus(state);
+      // Stay on the current screen, don't navigate
+    } else if (state == 'CALL_ENDED_CONNECTED') {
+      // Successful call - update to ended status and update lead
+      _updateCallRecordStatus(state);
+      final mapped = _mapAndroidOutcomeLabel(state);
+      if (!_shouldSkipOutcome(mapped)) {
+        _lastMappedOutcomeLabel = mapped;
+        await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
+      }
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+      // Removed auto-navigation to CALL_SCREEN to avoid double back and route jumps
+    } else if (state == 'CALL_ENDED_BY_CALLER' ||
+        state == 'CALL_ENDED_BY_CALLEE') {
+      // Precise connected-call end outcomes
+      _updateCallRecordStatus(state);
+      final mapped = _mapAndroidOutcomeLabel(state);
+      if (!_shouldSkipOutcome(mapped)) {
+        _lastMappedOutcomeLabel = mapped;
+        await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
+      }
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+    } else if (state == 'CALL_ENDED_NO_ANSWER') {
+      _updateCallRecordStatus(state);
+      final mapped = _mapAndroidOutcomeLabel(state);
+      if (!_shouldSkipOutcome(mapped)) {
+        _lastMappedOutcomeLabel = mapped;
+        await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
+      }
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+      // Removed auto-navigation to CALL_SCREEN to avoid double back and route jumps
+    } else if (state == 'CALL_CANCELLED_BY_CALLER') {
+      _updateCallRecordStatus(state);
+      final mapped = _mapAndroidOutcomeLabel(state);
+      if (!_shouldSkipOutcome(mapped)) {
+        _lastMappedOutcomeLabel = mapped;
+        await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
+      }
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+    } else if (state == 'CALL_DECLINED_BY_LEAD' ||
+        state == 'CALL_DECLINED_BY_CALLEE' ||
+        state == 'CALL_DECLINED_BY_CALLER') {
+      _updateCallRecordStatus(state);
+      await _updateLeadAndTasksForOutcome(
+        phoneNumber,
+        _mapAndroidOutcomeLabel(state),
+      );
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+    } else if (state == 'CALL_BUSY') {
+      _updateCallRecordStatus(state);
+      await _updateLeadAndTasksForOutcome(
+        phoneNumber,
+        _mapAndroidOutcomeLabel(state),
+      );
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+    } else if (state == 'CALL_NO_ANSWER') {
+      _updateCallRecordStatus(state);
+      final mapped = _mapAndroidOutcomeLabel(state);
+      if (!_shouldSkipOutcome(mapped)) {
+        _lastMappedOutcomeLabel = mapped;
+        await _updateLeadAndTasksForOutcome(phoneNumber, mapped);
+      }
+      // Notify native UI to enter post-call mode
+      if (isFinalOutcome(state)) {
+        await _nativeChannel.invokeMethod('enterPostCallMode');
+      }
+      _endCallTracking();
+      _closeActiveCallScreenIfVisible();
+    }
+  }
+
+  static const String _callEventSeqKey = 'native_call_event_seq';
+  static const String _callEventEpochKey = 'native_call_event_epoch';
+
+  // Sequences from another epoch were numbered by a queue that no longer exists
+  Future<int> _lastHandledCallEventSeq(int epoch) async {
+    final prefs = await SharedPreferences.getInstance();
+    if ((prefs.getInt(_callEventEpochKey) ?? 0) != epoch) return 0;
+    return prefs.getInt(_callEventSeqKey) ?? 0;
+  }
+
+  // Record the event as handled before acking, so a crash in between can't replay it. Events
+  // are handled in order, so the stored sequence is the highest with nothing pending below it;
+  // that, not the event's own sequence, is what native may drop up to.
+  Future<void> _ackCallEvent(int seq, int epoch) async {
+    try {
+      final prefs = await SharedPreferences.getInstance();
+      int handled = prefs.getInt(_callEventSeqKey) ?? 0;
+      if ((prefs.getInt(_callEventEpochKey) ?? 0) != epoch) {
+        // Sequence first: a crash in between must not pair an old count with the new epoch
+        handled = seq;
+        await prefs.setInt(_callEventSeqKey, seq);
+        await prefs.setInt(_callEventEpochKey, epoch);
+      } else if (seq > handled) {
+        handled = seq;
+        await prefs.setInt(_callEventSeqKey, seq);
+      }
+      await _nativeChannel.invokeMethod('ackCallEvents', {'seq': handled});
+    } catch (e) {
+      log('[native] Failed to ack call event $seq: $e');
+    }
   }
 
   Future<void> _updateLeadAndTasksForOutcome(
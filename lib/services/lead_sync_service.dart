@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'package:flutter/services.dart';
 import 'package:get/get.dart';
 import '../model/lead.dart';
 import '../repository/lead_repository.dart';
@@ -11,6 +12,8 @@ import 'task_service.dart';
 class LeadSyncService extends GetxService {
   static LeadSyncService get instance => Get.find<LeadSyncService>();
 
+  static const MethodChannel _nativeChannel = MethodChannel('call_tracking');
+
   final LeadRepository _leadRepo = LeadRepository.instance;
   late final ApiService _apiService;
   late final NetworkService _networkService;
@@ -139,6 +142,9 @@ class LeadSyncService extends GetxService {
       // 4. Sync local changes to server
       final localChangesResult = await _syncLocalChangesToServer();
 
+      // 5. Refresh the native lead directory used to identify callers
+      await pushLeadDirectory();
+
       final totalSuccess =
           (statusOptionsResult.successCount ?? 0) +
           (leadsResult.successCount ?? 0) +
@@ -166,6 +172,30 @@ class LeadSyncService extends GetxService {
     }
   }
 
+  /// Push the local lead list to the native side so incoming calls can be
+  /// identified without waiting on the network
+  Future<void> pushLeadDirectory() async {
+    try {
+      final leads = _leadRepo
+          .getAllLeads()
+          .where((lead) => lead.phoneNumber.isNotEmpty)
+          .map(
+            (lead) => {
+              'phoneNumber': lead.phoneNumber,
+              'name': '${lead.firstName} ${lead.lastName}'.trim(),
+              'campus': lead.city,
+              'status': lead.status,
+              'remark': lead.remark,
+            },
+          )
+          .toList();
+      await _nativeChannel.invokeMethod('syncLeads', {'leads': leads});
+      print('[LeadSync] Pushed ${leads.length} leads to native directory');
+    } catch (e) {
+      print('[LeadSync] Failed to push lead directory: $e');
+    }
+  }
+
   /// Sync status options from server (READ-ONLY from admin panel)
   Future<LeadSyncResult> _syncStatusOptions() async {
     final authed =